@@ -0,0 +1,347 @@
+/*
+ * Copyright 2015 CAN YAPAN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.canyapan.randompasswordgenerator.cli;
+
+import com.canyapan.randompasswordgenerator.PasswordMeter;
+import com.canyapan.randompasswordgenerator.PasswordMeterException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Meters every line of a newline delimited UTF-8 password file.
+ * The file is split into regions ending at line breaks which are memory mapped and metered in parallel, so the heap
+ * only ever holds the regions in flight, whatever the size of the file. A line longer than a region is not a password,
+ * it is counted as skipped rather than mapped.
+ * <p>
+ * Scores are written one per line, -1 for a blank line and -2 for a skipped one.
+ */
+class Audit {
+    /* Mapped at once per task. Per line scores of a region are buffered until it is its turn to be written. */
+    private static final int REGION_SIZE = 16 * 1024 * 1024;
+    private static final int BLANK = 101;
+    private static final int SKIPPED = 102;
+
+    private final File input;
+    private final int threads;
+    private final boolean scores;
+    private final int regionSize;
+
+    /**
+     * @param input   password file.
+     * @param threads number of threads metering regions.
+     * @param scores  true to write the score of every line instead of a summary.
+     */
+    Audit(File input, int threads, boolean scores) {
+        this(input, threads, scores, REGION_SIZE);
+    }
+
+    Audit(File input, int threads, boolean scores, int regionSize) {
+        this.input = input;
+        this.threads = threads;
+        this.scores = scores;
+        this.regionSize = regionSize;
+    }
+
+    void run(OutputStream out) throws IOException {
+        final RandomAccessFile file = new RandomAccessFile(input, "r");
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final FileChannel channel = file.getChannel();
+            final long size = channel.size();
+            final long[] histogram = new long[SKIPPED + 1];
+            final Deque<Future<Region>> inFlight = new ArrayDeque<Future<Region>>();
+
+            long position = 0;
+            while (position < size || !inFlight.isEmpty()) {
+                while (position < size && inFlight.size() < threads * 2) {
+                    final long end = findRegionEnd(channel, position, size);
+                    if (end == position) {
+                        /* in order with the regions in flight, so that scores stay one per line */
+                        inFlight.add(CompletableFuture.completedFuture(new Region(scores).skip()));
+                        position = findLineEnd(channel, position, size);
+                        continue;
+                    }
+
+                    inFlight.add(executor.submit(new RegionTask(channel, position, end - position)));
+                    position = end;
+                }
+
+                final Region region = get(inFlight.poll());
+                for (int i = 0; i < histogram.length; i++) {
+                    histogram[i] += region.histogram[i];
+                }
+
+                if (scores) {
+                    region.scores.writeTo(out);
+                }
+            }
+
+            if (!scores) {
+                writeSummary(new PrintStream(out, false, "UTF-8"), histogram);
+            }
+            if (histogram[SKIPPED] > 0) {
+                System.err.printf("Skipped %d lines longer than %d bytes.%n", histogram[SKIPPED], regionSize);
+            }
+            out.flush();
+        } finally {
+            executor.shutdownNow();
+            file.close();
+        }
+    }
+
+    private static Region get(Future<Region> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Audit interrupted.", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Audit failed.", e.getCause());
+        }
+    }
+
+    /**
+     * @return position right after the last line break within a region from position, the file size when the rest of
+     *         the file fits in a region, or position itself when the line at position is longer than a region.
+     */
+    private long findRegionEnd(FileChannel channel, long position, long size) throws IOException {
+        if (size - position <= regionSize) {
+            return size;
+        }
+
+        final ByteBuffer buffer = ByteBuffer.allocate(8192);
+        long end = position + regionSize;
+        while (end > position) {
+            final int length = (int) Math.min(buffer.capacity(), end - position);
+            buffer.clear().limit(length);
+            while (buffer.hasRemaining()) {
+                channel.read(buffer, end - length + buffer.position());
+            }
+            for (int i = length - 1; i >= 0; i--) {
+                if (buffer.get(i) == '\n') {
+                    return end - length + i + 1;
+                }
+            }
+            end -= length;
+        }
+
+        return position;
+    }
+
+    /**
+     * @return position right after the first line break at or after position, or the file size.
+     */
+    private static long findLineEnd(FileChannel channel, long position, long size) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(8192);
+        while (position < size) {
+            buffer.clear();
+            final int read = channel.read(buffer, position);
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+
+        return size;
+    }
+
+    private static void writeSummary(PrintStream out, long[] histogram) {
+        long metered = 0, total = 0;
+        for (int score = 0; score < BLANK; score++) {
+            metered += histogram[score];
+            total += (long) score * histogram[score];
+        }
+
+        out.printf("Lines: %d%nBlank: %d%nSkipped: %d%nMetered: %d%n", metered + histogram[BLANK] + histogram[SKIPPED],
+                histogram[BLANK], histogram[SKIPPED], metered);
+        if (metered == 0) {
+            out.flush();
+            return;
+        }
+
+        out.printf("Mean score: %.2f%n", (double) total / metered);
+        out.printf("Percentiles: min %d, p10 %d, p25 %d, p50 %d, p75 %d, p90 %d, p99 %d, max %d%n",
+                percentile(histogram, metered, 0d), percentile(histogram, metered, 0.10d),
+                percentile(histogram, metered, 0.25d), percentile(histogram, metered, 0.50d),
+                percentile(histogram, metered, 0.75d), percentile(histogram, metered, 0.90d),
+                percentile(histogram, metered, 0.99d), percentile(histogram, metered, 1d));
+
+        final long[] complexities = new long[PasswordMeter.Complexity.values().length];
+        for (int score = 0; score < BLANK; score++) {
+            complexities[PasswordMeter.Complexity.of(score).ordinal()] += histogram[score];
+        }
+        for (PasswordMeter.Complexity complexity : PasswordMeter.Complexity.values()) {
+            out.printf("%-12s %12d %6.2f%%%n", complexity, complexities[complexity.ordinal()],
+                    100d * complexities[complexity.ordinal()] / metered);
+        }
+        out.flush();
+    }
+
+    /**
+     * @return lowest score which at least the given fraction of metered passwords are less than or equal to.
+     */
+    private static int percentile(long[] histogram, long metered, double fraction) {
+        final long rank = Math.max(1, (long) Math.ceil(fraction * metered));
+        long seen = 0;
+        for (int score = 0; score < BLANK; score++) {
+            seen += histogram[score];
+            if (seen >= rank) {
+                return score;
+            }
+        }
+
+        return 100;
+    }
+
+    private static final class Region {
+        private final long[] histogram = new long[SKIPPED + 1];
+        private final ByteArrayOutputStream scores;
+
+        private Region(boolean scores) {
+            this.scores = scores ? new ByteArrayOutputStream() : null;
+        }
+
+        /**
+         * @return this region as one skipped line.
+         */
+        private Region skip() {
+            histogram[SKIPPED]++;
+            if (null != scores) {
+                scores.write('-');
+                scores.write('2');
+                scores.write('\n');
+            }
+
+            return this;
+        }
+    }
+
+    private final class RegionTask implements Callable<Region> {
+        private final FileChannel channel;
+        private final long position, size;
+
+        private RegionTask(FileChannel channel, long position, long size) {
+            this.channel = channel;
+            this.position = position;
+            this.size = size;
+        }
+
+        public Region call() throws IOException {
+            final MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+            final ByteBuffer line = mapped.duplicate();
+            final CharsetDecoder decoder = Charset.forName("UTF-8").newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            final Region region = new Region(scores);
+            final byte[] digits = new byte[4];
+            CharBuffer chars = CharBuffer.allocate(256);
+
+            int start = 0;
+            final int limit = mapped.limit();
+            while (start < limit) {
+                int end = start;
+                while (end < limit && mapped.get(end) != '\n') {
+                    end++;
+                }
+                final int next = end + 1;
+                if (end > start && mapped.get(end - 1) == '\r') {
+                    end--;
+                }
+
+                while (true) {
+                    line.limit(end).position(start);
+                    decoder.reset();
+                    chars.clear();
+                    final CoderResult result = decoder.decode(line, chars, true);
+                    if (!result.isOverflow() && !decoder.flush(chars).isOverflow()) {
+                        break;
+                    }
+                    chars = CharBuffer.allocate(chars.capacity() * 2);
+                }
+                chars.flip();
+
+                int score = -1;
+                if (!isBlank(chars)) {
+                    try {
+                        score = PasswordMeter.check(chars).getScore();
+                    } catch (PasswordMeterException e) {
+                        score = -1;
+                    }
+                }
+                region.histogram[score < 0 ? BLANK : score]++;
+
+                if (null != region.scores) {
+                    writeScore(region.scores, score, digits);
+                }
+
+                start = next;
+            }
+
+            return region;
+        }
+
+        private boolean isBlank(CharBuffer chars) {
+            for (int i = chars.position(); i < chars.limit(); i++) {
+                if (!Character.isWhitespace(chars.get(i))) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        private void writeScore(ByteArrayOutputStream out, int score, byte[] digits) {
+            if (score < 0) {
+                out.write('-');
+                out.write('1');
+            } else {
+                int count = 0;
+                do {
+                    digits[count++] = (byte) ('0' + score % 10);
+                    score /= 10;
+                } while (score > 0);
+                while (count > 0) {
+                    out.write(digits[--count]);
+                }
+            }
+            out.write('\n');
+        }
+    }
+}
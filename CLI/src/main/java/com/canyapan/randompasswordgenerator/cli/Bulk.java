@@ -0,0 +1,233 @@
+/*
+ * Copyright 2015 CAN YAPAN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.canyapan.randompasswordgenerator.cli;
+
+import com.canyapan.randompasswordgenerator.PasswordGenerator;
+import com.canyapan.randompasswordgenerator.PasswordMeter;
+import com.canyapan.randompasswordgenerator.PasswordMeterException;
+import com.canyapan.randompasswordgenerator.PasswordSink;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Generates a number of passwords non-interactively and streams them to a channel.
+ * Every thread generates chunks of passwords into its own buffers and writes each chunk with one channel write,
+ * so records are never interleaved and nothing is allocated per password unless scores are requested.
+ * Plain passwords go through a {@link PasswordSink}, generated straight into the direct buffer.
+ */
+class Bulk {
+    /* Passwords generated, formatted and written at once. */
+    private static final int CHUNK_SIZE = 4096;
+
+    enum Format {
+        plain, csv, ndjson
+    }
+
+    private final PasswordGenerator generator;
+    private final Format format;
+    private final boolean scores;
+    private final int threads;
+
+    Bulk(PasswordGenerator generator, Format format, boolean scores, int threads) {
+        this.generator = generator;
+        this.format = format;
+        this.scores = scores;
+        this.threads = threads;
+    }
+
+    void run(final long count, final WritableByteChannel channel) throws IOException {
+        if (format == Format.csv) {
+            write(channel, ByteBuffer.wrap((scores ? "password,score\n" : "password\n").getBytes("US-ASCII")));
+        }
+
+        final AtomicLong remaining = new AtomicLong(count);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final List<Thread> workers = new ArrayList<Thread>(threads);
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        generate(remaining, channel);
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                        remaining.set(0);
+                    }
+                }
+            }, "bulk-" + t);
+            workers.add(worker);
+            worker.start();
+        }
+
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Generation interrupted.", e);
+            }
+        }
+
+        if (null != failure.get()) {
+            throw new IOException("Generation failed.", failure.get());
+        }
+    }
+
+    private void generate(AtomicLong remaining, WritableByteChannel channel) throws IOException, PasswordMeterException {
+        final int length = generator.getPasswordLength();
+        final char[] passwords = new char[CHUNK_SIZE * length];
+        final StringBuilder text = new StringBuilder(CHUNK_SIZE * (length + 32));
+        final CharsetEncoder encoder = Charset.forName("UTF-8").newEncoder();
+        final PasswordSink sink = format == Format.plain && !scores && generator.isAscii() ? new PasswordSink(generator) : null;
+        final ByteBuffer bytes = ByteBuffer.allocateDirect((int) Math.ceil(text.capacity() * encoder.maxBytesPerChar()));
+
+        while (true) {
+            final long claimed = claim(remaining);
+            if (claimed == 0) {
+                return;
+            }
+
+            final int n = (int) claimed;
+            if (null != sink) {
+                /* plain passwords are generated straight into the buffer */
+                bytes.clear();
+                sink.write(bytes, n);
+                bytes.flip();
+                write(channel, bytes);
+                continue;
+            }
+
+            generator.generate(passwords, 0, n);
+
+            text.setLength(0);
+            for (int p = 0; p < n; p++) {
+                append(text, passwords, p * length, length);
+            }
+
+            bytes.clear();
+            encode(encoder, text, bytes);
+            bytes.flip();
+            write(channel, bytes);
+        }
+    }
+
+    /**
+     * Encodes the whole text, a partly encoded chunk is never written; a text not fitting the buffer throws
+     * {@link java.nio.BufferOverflowException}.
+     *
+     * @throws CharacterCodingException thrown when the text cannot be encoded, e.g. an unpaired surrogate.
+     */
+    static void encode(CharsetEncoder encoder, CharSequence text, ByteBuffer bytes) throws CharacterCodingException {
+        encoder.reset();
+        CoderResult result = encoder.encode(CharBuffer.wrap(text), bytes, true);
+        if (result.isUnderflow()) {
+            result = encoder.flush(bytes);
+        }
+        if (!result.isUnderflow()) {
+            result.throwException();
+        }
+    }
+
+    private static long claim(AtomicLong remaining) {
+        while (true) {
+            final long left = remaining.get();
+            if (left <= 0) {
+                return 0;
+            }
+
+            final long claimed = Math.min(left, CHUNK_SIZE);
+            if (remaining.compareAndSet(left, left - claimed)) {
+                return claimed;
+            }
+        }
+    }
+
+    private void append(StringBuilder text, char[] passwords, int offset, int length) throws PasswordMeterException {
+        switch (format) {
+            case csv:
+                text.append('"');
+                for (int i = offset; i < offset + length; i++) {
+                    text.append(passwords[i]);
+                    if (passwords[i] == '"') {
+                        text.append('"');
+                    }
+                }
+                text.append('"');
+                break;
+            case ndjson:
+                text.append("{\"password\":\"");
+                for (int i = offset; i < offset + length; i++) {
+                    final char c = passwords[i];
+                    if (c == '"' || c == '\\') {
+                        text.append('\\').append(c);
+                    } else if (c < 0x20) {
+                        text.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        text.append(c);
+                    }
+                }
+                text.append('"');
+                break;
+            case plain:
+            default:
+                text.append(passwords, offset, length);
+                break;
+        }
+
+        if (scores) {
+            final int score = PasswordMeter.check(CharBuffer.wrap(passwords, offset, length)).getScore();
+            switch (format) {
+                case csv:
+                    text.append(',').append(score);
+                    break;
+                case ndjson:
+                    text.append(",\"score\":").append(score);
+                    break;
+                case plain:
+                default:
+                    text.append('\t').append(score);
+                    break;
+            }
+        }
+
+        if (format == Format.ndjson) {
+            text.append('}');
+        }
+        text.append('\n');
+    }
+
+    /**
+     * Writes the whole buffer as one record block, channel writes of different threads never interleave.
+     */
+    private static void write(WritableByteChannel channel, ByteBuffer bytes) throws IOException {
+        synchronized (channel) {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        }
+    }
+}
@@ -16,16 +16,214 @@
 
 package com.canyapan.randompasswordgenerator.cli;
 
+import com.canyapan.randompasswordgenerator.Blocklist;
+import com.canyapan.randompasswordgenerator.EntropyEstimator;
+import com.canyapan.randompasswordgenerator.MarkovModel;
 import com.canyapan.randompasswordgenerator.PasswordMeter;
 import com.canyapan.randompasswordgenerator.PasswordMeterException;
 import com.canyapan.randompasswordgenerator.RandomPasswordGenerator;
 import com.canyapan.randompasswordgenerator.RandomPasswordGeneratorException;
+import com.canyapan.randompasswordgenerator.RandomPronounceablePasswordGenerator;
 import org.apache.commons.cli.*;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Scanner;
+import java.util.stream.Stream;
 
 public class Main {
+    private static final double BLOCKLIST_FALSE_POSITIVE_RATE = 0.001d;
+
     public static void main(String[] args) {
+        Options options = createOptions();
+
+        CommandLineParser parser = new DefaultParser();
+        CommandLine cmd = null;
+        boolean printHelp = false;
+        try {
+            cmd = parser.parse(options, args);
+        } catch (ParseException e) {
+            printHelp = true;
+        }
+
+        if (printHelp || args.length == 0 || cmd.hasOption("h")) {
+            HelpFormatter formatter = new HelpFormatter();
+            formatter.printHelp("java -jar RandomPasswordGenerator.jar [-p <arg>] [-l] [-u] [-s] [-d] [-dc <arg>] [-a] [-f]"
+                    + " [-n <arg> [-format <arg>] [-scores] [-o <file>] [-t <arg>]] | -audit <file> [-scores] [-o <file>] [-t <arg>]"
+                    + " | -server [-socket <file>] [-t <arg>] | -entropytable <file> [-o <file>] | -blocklist <file> -o <file>"
+                    + " | -markovmodel <file> -o <file> | -pronounceable [<file>] [-p <arg>] [-uc <arg>] [-dc <arg>] [-sc <arg>] [-c]", options);
+            return;
+        }
+
+        final int threads = Integer.parseInt(cmd.getOptionValue("t", String.valueOf(Runtime.getRuntime().availableProcessors())));
+
+        if (cmd.hasOption("audit")) {
+            try {
+                OutputStream out = openOutput(cmd.getOptionValue("o"));
+                try {
+                    new Audit(new File(cmd.getOptionValue("audit")), threads, cmd.hasOption("scores")).run(out);
+                } finally {
+                    out.close();
+                }
+            } catch (IOException e) {
+                System.err.println(e.getMessage());
+            }
+            return;
+        }
+
+        if (cmd.hasOption("entropytable")) {
+            try {
+                OutputStream out = openOutput(cmd.getOptionValue("o"));
+                try (Stream<String> lines = lines(Paths.get(cmd.getOptionValue("entropytable")))) {
+                    Iterable<String> corpus = lines::iterator;
+                    EntropyEstimator.build(corpus, out);
+                } finally {
+                    out.close();
+                }
+            } catch (IOException | UncheckedIOException e) {
+                System.err.println(e.getMessage());
+            }
+            return;
+        }
+
+        if (cmd.hasOption("blocklist")) {
+            if (!cmd.hasOption("o")) {
+                System.err.println("Blocklist needs an output file.");
+                return;
+            }
+
+            final Path wordlist = Paths.get(cmd.getOptionValue("blocklist"));
+            try {
+                /* the filter is sized by the number of lines, so the list is read twice */
+                final long count;
+                try (Stream<String> lines = lines(wordlist)) {
+                    count = lines.count();
+                }
+                try (Stream<String> lines = lines(wordlist)) {
+                    Iterable<String> passwords = lines::iterator;
+                    Blocklist.build(passwords, count, BLOCKLIST_FALSE_POSITIVE_RATE, Paths.get(cmd.getOptionValue("o")));
+                }
+            } catch (IOException | UncheckedIOException e) {
+                System.err.println(e.getMessage());
+            }
+            return;
+        }
+
+        if (cmd.hasOption("markovmodel")) {
+            if (!cmd.hasOption("o")) {
+                System.err.println("Markov model needs an output file.");
+                return;
+            }
+
+            try (Stream<String> lines = lines(Paths.get(cmd.getOptionValue("markovmodel")));
+                 OutputStream out = openOutput(cmd.getOptionValue("o"))) {
+                Iterable<String> corpus = lines::iterator;
+                MarkovModel.build(corpus, out);
+            } catch (IOException | UncheckedIOException | IllegalArgumentException e) {
+                System.err.println(e.getMessage());
+            }
+            return;
+        }
+
+        if (cmd.hasOption("pronounceable")) {
+            try {
+                final String model = cmd.getOptionValue("pronounceable");
+                final RandomPronounceablePasswordGenerator rpg = new RandomPronounceablePasswordGenerator()
+                        .withModel(null == model ? null : MarkovModel.open(Paths.get(model)))
+                        .withPasswordLength(Integer.parseInt(cmd.getOptionValue("p", "8")))
+                        .withMinUpperCaseCharacterCount(Integer.parseInt(cmd.getOptionValue("uc", "0")))
+                        .withMinDigitCount(Integer.parseInt(cmd.getOptionValue("dc", "0")))
+                        .withMinSymbolCount(Integer.parseInt(cmd.getOptionValue("sc", "0")));
+                final Scanner scanner = new Scanner(System.in);
+                do {
+                    final String password = rpg.generate();
+                    final PasswordMeter.Result result = PasswordMeter.check(password);
+                    System.out.printf("%s%nScore: %s%%%nComplexity: %s%nEntropy: %.1f bits%n%n", password, result.getScore(), result.getComplexity(),
+                            rpg.compile().getEntropy());
+
+                    if (cmd.hasOption("c")) {
+                        System.out.print("Another? y/N: ");
+                    }
+                } while (cmd.hasOption("c") && scanner.nextLine().matches("^(?i:y(?:es)?)$"));
+            } catch (IOException e) {
+                System.err.println(e.getMessage());
+            }
+            return;
+        }
+
+        if (cmd.hasOption("server")) {
+            Server server = new Server(threads);
+            try {
+                if (cmd.hasOption("socket")) {
+                    server.listen(Paths.get(cmd.getOptionValue("socket")));
+                } else {
+                    server.serve(System.in, new FileOutputStream(FileDescriptor.out));
+                }
+            } catch (IOException e) {
+                System.err.println(e.getMessage());
+            } finally {
+                server.close();
+            }
+            return;
+        }
+
+        RandomPasswordGenerator rpg = createGenerator(cmd);
+
+        if (cmd.hasOption("n")) {
+            final Bulk.Format format;
+            try {
+                format = Bulk.Format.valueOf(cmd.getOptionValue("format", Bulk.Format.plain.name()));
+            } catch (IllegalArgumentException e) {
+                System.err.println("Unknown format: " + cmd.getOptionValue("format"));
+                return;
+            }
+
+            try {
+                FileChannel channel = openChannel(cmd.getOptionValue("o"));
+                try {
+                    new Bulk(rpg.compile(), format, cmd.hasOption("scores"), threads).run(Long.parseLong(cmd.getOptionValue("n")), channel);
+                } finally {
+                    channel.close();
+                }
+            } catch (IOException e) {
+                System.err.println(e.getMessage());
+            }
+            return;
+        }
+
+        Scanner scanner = new Scanner(System.in);
+
+        try {
+            do {
+                final String password = rpg.generate();
+                final PasswordMeter.Result result = PasswordMeter.check(password);
+                System.out.printf("%s%nScore: %s%%%nComplexity: %s%nEntropy: %.1f bits%n%n", password, result.getScore(), result.getComplexity(),
+                        rpg.compile().getEntropy());
+
+                if (cmd.hasOption("c")) {
+                    System.out.print("Another? y/N: ");
+                }
+            } while(cmd.hasOption("c") && scanner.nextLine().matches("^(?i:y(?:es)?)$"));
+        } catch (RandomPasswordGeneratorException e) {
+            System.err.println(e.getMessage());
+        } catch (PasswordMeterException e) {
+            System.err.println(e.getMessage());
+        }
+    }
+
+    static Options createOptions() {
         Options options = new Options();
         options.addOption("h", false, "prints help");
         options.addOption("def", false, "generates 8 character password with default options");
@@ -41,22 +239,28 @@ public class Main {
         options.addOption("a", false, "avoid ambiguous characters");
         options.addOption("f", false, "force every character type");
         options.addOption("c", false, "continuous password generation");
+        options.addOption("audit", true, "meters every line of a password file instead of generating");
+        options.addOption("scores", false, "audit writes the score of every line instead of a summary (-1 blank, -2 skipped), bulk writes scores next to passwords");
+        options.addOption("n", true, "generates this many passwords non-interactively");
+        options.addOption("format", true, "bulk output format: plain, csv or ndjson (default plain)");
+        options.addOption("o", true, "output file (default stdout)");
+        options.addOption("t", true, "number of threads (default number of processors)");
+        options.addOption("server", false, "serves \"<generator options>, <count>\" requests line by line from stdin or a socket");
+        options.addOption("socket", true, "server listens on this UNIX domain socket instead of stdin");
+        options.addOption("entropytable", true, "builds an EntropyEstimator table from a password file, one per line");
+        options.addOption("blocklist", true, "builds a Blocklist file from a password file, one per line");
+        options.addOption("markovmodel", true, "builds a MarkovModel file from a text file of words");
+        final Option pronounceable = new Option("pronounceable", true, "generates pronounceable passwords from a MarkovModel file (default English)");
+        pronounceable.setOptionalArg(true);
+        options.addOption(pronounceable);
 
-        CommandLineParser parser = new DefaultParser();
-        CommandLine cmd = null;
-        boolean printHelp = false;
-        try {
-            cmd = parser.parse(options, args);
-        } catch (ParseException e) {
-            printHelp = true;
-        }
-
-        if (printHelp || args.length == 0 || cmd.hasOption("h")) {
-            HelpFormatter formatter = new HelpFormatter();
-            formatter.printHelp("java -jar RandomPasswordGenerator.jar [-p <arg>] [-l] [-u] [-s] [-d] [-dc <arg>] [-a] [-f]", options);
-            return;
-        }
+        return options;
+    }
 
+    /**
+     * Configures a generator from the generator options of a command line, server requests use the same options.
+     */
+    static RandomPasswordGenerator createGenerator(CommandLine cmd) {
         RandomPasswordGenerator rpg = new RandomPasswordGenerator();
 
         if (cmd.hasOption("def")) {
@@ -87,22 +291,35 @@ public class Main {
             }
         }
 
-        Scanner scanner = new Scanner(System.in);
+        return rpg;
+    }
 
-        try {
-            do {
-                final String password = rpg.generate();
-                final PasswordMeter.Result result = PasswordMeter.check(password);
-                System.out.printf("%s%nScore: %s%%%nComplexity: %s%n%n", password, result.getScore(), result.getComplexity());
+    /**
+     * Lines of a password file. Malformed bytes are replaced rather than failing a corpus of leaked passwords.
+     */
+    private static Stream<String> lines(Path file) throws IOException {
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8), 1 << 16);
 
-                if (cmd.hasOption("c")) {
-                    System.out.print("Another? y/N: ");
-                }
-            } while(cmd.hasOption("c") && scanner.nextLine().matches("^(?i:y(?:es)?)$"));
-        } catch (RandomPasswordGeneratorException e) {
-            System.err.println(e.getMessage());
-        } catch (PasswordMeterException e) {
-            System.err.println(e.getMessage());
-        }
+        return reader.lines().onClose(() -> {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * @param file path of the output file, null for stdout.
+     */
+    private static FileChannel openChannel(String file) throws IOException {
+        return (null == file ? new FileOutputStream(FileDescriptor.out) : new FileOutputStream(file)).getChannel();
+    }
+
+    /**
+     * @param file path of the output file, null for stdout.
+     */
+    private static OutputStream openOutput(String file) throws IOException {
+        return new BufferedOutputStream(null == file ? new FileOutputStream(FileDescriptor.out) : new FileOutputStream(file), 1 << 16);
     }
 }
@@ -0,0 +1,450 @@
+/*
+ * Copyright 2015 CAN YAPAN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.canyapan.randompasswordgenerator.cli;
+
+import com.canyapan.randompasswordgenerator.PasswordGenerator;
+import com.canyapan.randompasswordgenerator.RandomPasswordGeneratorException;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.ParseException;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Long-running generator answering one request per line, so callers pay the JVM startup once.
+ * <p>
+ * A request is {@code <generator options>, <count>} with the same generator options as the command line,
+ * e.g. {@code -p 16 -l -u -d -s, 3}; the count is 1 when omitted. The response is count passwords, one per line,
+ * or a single {@code ERR <message>} line. Requests are pipelined: a client may send many before reading,
+ * they are handled in parallel by the workers and answered in the order they were sent.
+ * Compiled policies are cached, so a repeated policy costs nothing but the generation.
+ * <p>
+ * Passwords being generated or waiting to be written are limited across every connection, so clients pipelining
+ * requests without reading the responses hold a bounded amount of memory; their requests wait instead.
+ */
+class Server {
+    /* Passwords a single request may ask for. */
+    static final int MAX_COUNT = 1 << 16;
+    /* Distinct policies kept compiled, requests with other policies are compiled every time. */
+    private static final int MAX_POLICIES = 1024;
+    /* Requests of a connection handled or waiting to be written at once. */
+    private static final int PIPELINE_DEPTH = 1024;
+    /* Passwords generated or waiting to be written at once by default, about 64 MiB of the longest ones. */
+    static final int MAX_IN_FLIGHT = 1 << 18;
+    /* Marks the end of the requests of a connection. */
+    private static final Pending END = new Pending(new FutureTask<byte[]>(new Callable<byte[]>() {
+        public byte[] call() {
+            return null;
+        }
+    }), 0);
+
+    private final ConcurrentMap<String, PasswordGenerator> generators = new ConcurrentHashMap<String, PasswordGenerator>();
+    private final ExecutorService workers;
+    /* One permit per password in flight, taken before a request is handled and released once it is written. */
+    private final Semaphore inFlight;
+    private final int maxInFlight;
+    private final CountDownLatch listening = new CountDownLatch(1);
+    /* The channel listen accepts on, closed by close. */
+    private ServerSocketChannel server;
+    private boolean closed;
+
+    Server(int threads) {
+        this(threads, MAX_IN_FLIGHT);
+    }
+
+    /**
+     * @param threads     number of workers.
+     * @param maxInFlight passwords generated or waiting to be written at once across every connection.
+     */
+    Server(int threads, int maxInFlight) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("Passwords in flight should be more than 0.");
+        }
+
+        this.maxInFlight = maxInFlight;
+        inFlight = new Semaphore(maxInFlight);
+        final AtomicInteger ids = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "server-" + ids.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Accepts connections on a UNIX domain socket until the server is closed, every connection is served by its own thread.
+     *
+     * @param socket path of the socket file, replaced when it exists.
+     */
+    void listen(Path socket) throws IOException {
+        Files.deleteIfExists(socket);
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(UnixDomainSocketAddress.of(socket));
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                this.server = server;
+            }
+            listening.countDown();
+
+            while (true) {
+                final SocketChannel channel;
+                try {
+                    channel = server.accept();
+                } catch (ClosedChannelException e) {
+                    if (isClosed()) {
+                        return;
+                    }
+                    throw e;
+                }
+
+                new Thread(new Runnable() {
+                    public void run() {
+                        try (SocketChannel c = channel) {
+                            serve(new ChannelInputStream(c), new ChannelOutputStream(c));
+                        } catch (IOException e) {
+                            System.err.println(e.getMessage());
+                        }
+                    }
+                }, "connection").start();
+            }
+        } finally {
+            Files.deleteIfExists(socket);
+        }
+    }
+
+    /**
+     * Serves requests of one connection until its input ends, returns after every response is written.
+     */
+    void serve(InputStream in, OutputStream out) throws IOException {
+        final BlockingQueue<Pending> responses = new ArrayBlockingQueue<Pending>(PIPELINE_DEPTH);
+        final OutputStream buffered = new BufferedOutputStream(out, 1 << 16);
+        final IOException[] failure = new IOException[1];
+
+        Thread writer = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    while (true) {
+                        final Pending response = responses.take();
+                        if (response == END) {
+                            buffered.flush();
+                            return;
+                        }
+
+                        try {
+                            final byte[] bytes = response.future.get();
+                            buffered.write(bytes);
+                            Arrays.fill(bytes, (byte) 0);
+                        } finally {
+                            inFlight.release(response.permits);
+                        }
+
+                        /* Flush once the pipeline drains, so bursts of requests share writes. */
+                        if (responses.isEmpty()) {
+                            buffered.flush();
+                        }
+                    }
+                } catch (IOException e) {
+                    failure[0] = e;
+                } catch (InterruptedException e) {
+                    failure[0] = new IOException("Server interrupted.", e);
+                } catch (ExecutionException e) {
+                    failure[0] = new IOException("Request failed.", e.getCause());
+                } finally {
+                    /* Unblock the reader if writing failed. */
+                    discard(responses);
+                }
+            }
+        }, "writer");
+        writer.start();
+
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        try {
+            String line;
+            while (writer.isAlive() && null != (line = reader.readLine())) {
+                final String request = line;
+                final int permits = Math.min(maxInFlight, Math.max(1, count(request)));
+                if (!acquire(permits, writer)) {
+                    break;
+                }
+
+                final Pending response = new Pending(workers.submit(new Callable<byte[]>() {
+                    public byte[] call() {
+                        return handle(request);
+                    }
+                }), permits);
+                if (!enqueue(responses, response, writer)) {
+                    response.future.cancel(true);
+                    inFlight.release(permits);
+                    break;
+                }
+            }
+
+            enqueue(responses, END, writer);
+            writer.join();
+            /* Requests queued after a failed writer gave up. */
+            discard(responses);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Server interrupted.", e);
+        }
+
+        if (null != failure[0]) {
+            throw failure[0];
+        }
+    }
+
+    /**
+     * Waits for room in the pipeline, gives up when the writer is gone.
+     *
+     * @return false if the writer is gone.
+     */
+    private static boolean enqueue(BlockingQueue<Pending> responses, Pending response, Thread writer) throws InterruptedException {
+        while (!responses.offer(response, 100, TimeUnit.MILLISECONDS)) {
+            if (!writer.isAlive()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Cancels the queued requests and releases their passwords in flight.
+     */
+    private void discard(BlockingQueue<Pending> responses) {
+        Pending response;
+        while (null != (response = responses.poll())) {
+            response.future.cancel(true);
+            inFlight.release(response.permits);
+        }
+    }
+
+    /**
+     * Waits until the passwords of a request may be in flight, gives up when the writer is gone.
+     *
+     * @return false if the writer is gone.
+     */
+    private boolean acquire(int permits, Thread writer) throws InterruptedException {
+        while (!inFlight.tryAcquire(permits, 100, TimeUnit.MILLISECONDS)) {
+            if (!writer.isAlive()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @return the count of a request line, 0 when it is missing a valid count.
+     */
+    private static int count(String request) {
+        final int comma = request.lastIndexOf(',');
+        if (comma < 0) {
+            return 1;
+        }
+
+        try {
+            return Math.max(0, Math.min(MAX_COUNT, Integer.parseInt(request.substring(comma + 1).trim())));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * @return the response of one request line.
+     */
+    byte[] handle(String request) {
+        final int comma = request.lastIndexOf(',');
+        final String policy = (comma < 0 ? request : request.substring(0, comma)).trim();
+
+        final int count;
+        try {
+            count = comma < 0 ? 1 : Integer.parseInt(request.substring(comma + 1).trim());
+        } catch (NumberFormatException e) {
+            return error("Invalid count: " + request.substring(comma + 1).trim());
+        }
+
+        if (count < 0 || count > MAX_COUNT) {
+            return error("Count should be between 0 and " + MAX_COUNT + ".");
+        }
+
+        final PasswordGenerator generator;
+        try {
+            generator = getGenerator(policy);
+        } catch (RandomPasswordGeneratorException e) {
+            return error(e.getMessage());
+        } catch (ParseException e) {
+            return error(e.getMessage());
+        } catch (NumberFormatException e) {
+            return error("Invalid number: " + e.getMessage());
+        }
+
+        final int length = generator.getPasswordLength();
+        final char[] passwords = generator.generate(count);
+        final byte[] response = new byte[count * (length + 1)];
+        for (int p = 0, i = 0, o = 0; p < count; p++) {
+            for (int c = 0; c < length; c++) {
+                /* Passwords are ASCII. */
+                response[o++] = (byte) passwords[i++];
+            }
+            response[o++] = '\n';
+        }
+        Arrays.fill(passwords, '\0');
+
+        return response;
+    }
+
+    private PasswordGenerator getGenerator(String policy) throws RandomPasswordGeneratorException, ParseException {
+        PasswordGenerator generator = generators.get(policy);
+        if (null == generator) {
+            final String[] args = policy.isEmpty() ? new String[0] : policy.split("\\s+");
+            generator = Main.createGenerator(new DefaultParser().parse(Main.createOptions(), args)).compile();
+            if (generators.size() < MAX_POLICIES) {
+                generators.putIfAbsent(policy, generator);
+            }
+        }
+
+        return generator;
+    }
+
+    private static byte[] error(String message) {
+        return ("ERR " + String.valueOf(message).replace('\n', ' ') + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Waits until {@link #listen(Path)} accepts connections.
+     *
+     * @return false if it does not within the timeout.
+     */
+    boolean awaitListening(long timeout, TimeUnit unit) throws InterruptedException {
+        return listening.await(timeout, unit);
+    }
+
+    private synchronized boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Stops accepting connections, {@link #listen(Path)} returns.
+     */
+    void close() {
+        synchronized (this) {
+            closed = true;
+            if (null != server) {
+                try {
+                    server.close();
+                } catch (IOException e) {
+                    System.err.println(e.getMessage());
+                }
+            }
+        }
+        workers.shutdownNow();
+    }
+
+    /**
+     * Response of a request and the passwords in flight it holds.
+     */
+    private static final class Pending {
+        final Future<byte[]> future;
+        final int permits;
+
+        Pending(Future<byte[]> future, int permits) {
+            this.future = future;
+            this.permits = permits;
+        }
+    }
+
+    /**
+     * Reads a socket channel directly, streams of {@link java.nio.channels.Channels} would lock reads against writes.
+     */
+    private static final class ChannelInputStream extends InputStream {
+        private final SocketChannel channel;
+
+        ChannelInputStream(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return len == 0 ? 0 : channel.read(ByteBuffer.wrap(b, off, len));
+        }
+    }
+
+    /**
+     * Writes a socket channel directly, see {@link ChannelInputStream}.
+     */
+    private static final class ChannelOutputStream extends OutputStream {
+        private final SocketChannel channel;
+
+        ChannelOutputStream(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            final ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+}
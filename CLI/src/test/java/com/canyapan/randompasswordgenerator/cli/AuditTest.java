@@ -0,0 +1,70 @@
+/*
+ * Copyright 2015 CAN YAPAN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.canyapan.randompasswordgenerator.cli;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AuditTest {
+
+    @Test
+    public void testLinesLongerThanARegionAreSkipped() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            text.append("Pa55word").append(i).append('\n');
+            if (i % 30 == 0) {
+                text.append("x".repeat(300)).append("\n\n  \r\n");
+            }
+        }
+        text.append("y".repeat(500));
+
+        final Path file = Files.createTempFile("audit", ".txt");
+        try {
+            Files.write(file, text.toString().getBytes(StandardCharsets.UTF_8));
+
+            ByteArrayOutputStream scores = new ByteArrayOutputStream();
+            new Audit(file.toFile(), 3, true, 256).run(scores);
+            String[] lines = scores.toString(StandardCharsets.UTF_8).split("\n");
+            assertEquals(100 + 4 * 3 + 1, lines.length);
+            for (int i = 0, line = 0; i < 100; i++) {
+                assertTrue(lines[line], Integer.parseInt(lines[line++]) >= 0);
+                if (i % 30 == 0) {
+                    assertEquals("-2", lines[line++]);
+                    assertEquals("-1", lines[line++]);
+                    assertEquals("-1", lines[line++]);
+                }
+            }
+            assertEquals("-2", lines[lines.length - 1]);
+
+            ByteArrayOutputStream summary = new ByteArrayOutputStream();
+            new Audit(file.toFile(), 3, false, 256).run(summary);
+            assertTrue(summary.toString(StandardCharsets.UTF_8), summary.toString(StandardCharsets.UTF_8)
+                    .startsWith(String.format("Lines: 113%nBlank: 8%nSkipped: 5%nMetered: 100%n")));
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
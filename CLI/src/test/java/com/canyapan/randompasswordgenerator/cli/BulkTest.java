@@ -0,0 +1,69 @@
+/*
+ * Copyright 2015 CAN YAPAN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.canyapan.randompasswordgenerator.cli;
+
+import com.canyapan.randompasswordgenerator.RandomPasswordGenerator;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BulkTest {
+
+    @Test
+    public void testNonAsciiPasswords() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new Bulk(new RandomPasswordGenerator().withPasswordLength(4).withCharacterClass("accents", "\u00e7\u00f6\u00fc", 0).compile(),
+                Bulk.Format.plain, false, 2).run(10000, Channels.newChannel(out));
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(10000, lines.length);
+        for (String line : lines) {
+            assertTrue(line, line.matches("[\u00e7\u00f6\u00fc]{4}"));
+        }
+    }
+
+    @Test
+    public void testIncompleteEncodingFails() throws CharacterCodingException {
+        final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+        final ByteBuffer bytes = ByteBuffer.allocate(16);
+        Bulk.encode(encoder, "abc\u00e7\n", bytes);
+        assertEquals(6, bytes.position());
+
+        for (String text : new String[]{"abc\ud800def\n", "abcdefghijklmnopq\n"}) {
+            bytes.clear();
+            try {
+                Bulk.encode(encoder, text, bytes);
+                fail(text);
+            } catch (CharacterCodingException e) {
+                /* expected */
+            } catch (BufferOverflowException e) {
+                /* expected */
+            }
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2015 CAN YAPAN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.canyapan.randompasswordgenerator.cli;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStreamReader;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ServerTest {
+
+    @Test
+    public void testPipelinedRequestsAreAnsweredInOrder() throws Exception {
+        StringBuilder requests = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            requests.append("-p ").append(8 + i % 5).append(" -l -d, ").append(i % 3).append('\n');
+        }
+        requests.append("-p 12 -u -s\n");
+
+        String[] lines = serve(requests.toString()).split("\n", -1);
+
+        int line = 0;
+        for (int i = 0; i < 200; i++) {
+            for (int p = 0; p < i % 3; p++) {
+                assertTrue(lines[line], lines[line].matches("[a-z0-9]{" + (8 + i % 5) + "}"));
+                line++;
+            }
+        }
+        assertTrue(lines[line], lines[line++].matches("[A-Z!@#$%^&*]{12}"));
+        assertEquals("", lines[line++]);
+        assertEquals(line, lines.length);
+    }
+
+    @Test(timeout = 10000)
+    public void testPasswordsInFlightAreLimited() throws Exception {
+        StringBuilder requests = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            requests.append("-p 8 -l, 3\n");
+        }
+        requests.append("-p 8 -l, 10\n");
+
+        Server server = new Server(4, 4);
+        try {
+            for (int run = 0; run < 2; run++) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                server.serve(new ByteArrayInputStream(requests.toString().getBytes(StandardCharsets.UTF_8)), out);
+
+                String[] lines = new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n");
+                assertEquals(310, lines.length);
+                for (String line : lines) {
+                    assertTrue(line, line.matches("[a-z]{8}"));
+                }
+            }
+        } finally {
+            server.close();
+        }
+    }
+
+    @Test
+    public void testErrors() throws Exception {
+        Server server = new Server(1);
+        try {
+            assertEquals("ERR At least one character set should be selected.\n", new String(server.handle("-p 8, 1"), StandardCharsets.UTF_8));
+            assertEquals("ERR Invalid count: x\n", new String(server.handle("-p 8 -l, x"), StandardCharsets.UTF_8));
+            assertTrue(new String(server.handle("-l, " + (Server.MAX_COUNT + 1)), StandardCharsets.UTF_8).startsWith("ERR "));
+            assertTrue(new String(server.handle("-bogus -l, 1"), StandardCharsets.UTF_8).startsWith("ERR "));
+            assertEquals(0, server.handle("-l, 0").length);
+        } finally {
+            server.close();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testUnixDomainSocket() throws Exception {
+        final Path socket = Files.createTempDirectory("rpg").resolve("rpg.sock");
+        final Server server = new Server(2);
+        Thread listener = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    server.listen(socket);
+                } catch (Exception ignored) {
+                }
+            }
+        });
+        listener.setDaemon(true);
+        listener.start();
+
+        try {
+            assertTrue(server.awaitListening(5, TimeUnit.SECONDS));
+
+            try (SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+                channel.connect(UnixDomainSocketAddress.of(socket));
+                channel.write(ByteBuffer.wrap("-def, 2\n-p 16 -l, 1\n".getBytes(StandardCharsets.UTF_8)));
+
+                BufferedReader reader = new BufferedReader(new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8));
+                assertEquals(8, reader.readLine().length());
+                assertEquals(8, reader.readLine().length());
+                assertTrue(reader.readLine().matches("[a-z]{16}"));
+            }
+        } finally {
+            server.close();
+            listener.join(5000);
+        }
+
+        assertFalse(listener.isAlive());
+        assertFalse(Files.exists(socket));
+        Files.delete(socket.getParent());
+    }
+
+    private static String serve(String requests) throws Exception {
+        Server server = new Server(4);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            server.serve(new ByteArrayInputStream(requests.getBytes(StandardCharsets.UTF_8)), out);
+
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        } finally {
+            server.close();
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2015 CAN YAPAN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.canyapan.randompasswordgenerator.http;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Request parsing and response writing shared by the handlers.
+ * Responses always carry a content length so connections are kept alive between requests.
+ */
+final class Exchanges {
+    private Exchanges() {
+    }
+
+    /**
+     * Thrown for requests which cannot be served, its message is sent back with the status.
+     */
+    static final class BadRequestException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        BadRequestException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+
+        int getStatus() {
+            return status;
+        }
+    }
+
+    /**
+     * @return parameters of the query sorted by name, a parameter without a value maps to an empty string.
+     */
+    static Map<String, String> parseQuery(String rawQuery) throws BadRequestException {
+        final Map<String, String> parameters = new TreeMap<String, String>();
+        if (null == rawQuery || rawQuery.isEmpty()) {
+            return parameters;
+        }
+
+        for (String pair : rawQuery.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+
+            final int equals = pair.indexOf('=');
+            final String name = decode(equals < 0 ? pair : pair.substring(0, equals));
+            final String value = equals < 0 ? "" : decode(pair.substring(equals + 1));
+            if (null != parameters.put(name, value)) {
+                throw new BadRequestException(400, "Parameter is repeated: " + name);
+            }
+        }
+
+        return parameters;
+    }
+
+    private static String decode(String text) throws BadRequestException {
+        try {
+            return URLDecoder.decode(text, StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(400, "Malformed query.");
+        }
+    }
+
+    static int getInt(Map<String, String> parameters, String name, int defaultValue) throws BadRequestException {
+        final String value = parameters.get(name);
+        if (null == value) {
+            return defaultValue;
+        }
+
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new BadRequestException(400, "Parameter " + name + " should be a number.");
+        }
+    }
+
+    /**
+     * A parameter is true when it is given without a value, as "true" or as "1".
+     */
+    static boolean getBoolean(Map<String, String> parameters, String name) throws BadRequestException {
+        final String value = parameters.get(name);
+        if (null == value) {
+            return false;
+        }
+
+        if (value.isEmpty() || "true".equals(value) || "1".equals(value)) {
+            return true;
+        } else if ("false".equals(value) || "0".equals(value)) {
+            return false;
+        }
+
+        throw new BadRequestException(400, "Parameter " + name + " should be true or false.");
+    }
+
+    /**
+     * Reads the whole request body.
+     *
+     * @param limit maximum accepted size in bytes.
+     */
+    static byte[] readBody(HttpExchange exchange, int limit) throws IOException, BadRequestException {
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[8192];
+        try (InputStream in = exchange.getRequestBody()) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                if (body.size() + n > limit) {
+                    throw new BadRequestException(413, "Request body should not exceed " + limit + " bytes.");
+                }
+                body.write(buffer, 0, n);
+            }
+        }
+
+        return body.toByteArray();
+    }
+
+    static void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.getResponseHeaders().set("Cache-Control", "no-store");
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        /* Drain what is left of the request so the connection can be reused, skip() would bypass the body length. */
+        final byte[] buffer = new byte[8192];
+        try (InputStream in = exchange.getRequestBody()) {
+            while (in.read(buffer) > 0) {
+                /* discard */
+            }
+        }
+
+        send(exchange, status, "text/plain; charset=utf-8", (message + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Appends a JSON string literal.
+     */
+    static void appendJson(StringBuilder json, CharSequence text) {
+        json.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+}
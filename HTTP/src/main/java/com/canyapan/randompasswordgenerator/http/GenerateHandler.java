@@ -0,0 +1,159 @@
+/*
+ * Copyright 2015 CAN YAPAN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.canyapan.randompasswordgenerator.http;
+
+import com.canyapan.randompasswordgenerator.PasswordGenerator;
+import com.canyapan.randompasswordgenerator.RandomPasswordGenerator;
+import com.canyapan.randompasswordgenerator.RandomPasswordGeneratorException;
+import com.canyapan.randompasswordgenerator.http.Exchanges.BadRequestException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * {@code GET /generate?length=&lower=&upper=&digits=&symbols=&minLower=&minUpper=&minDigits=&minSymbols=&avoidAmbiguous=&forceEvery=&count=&format=}
+ * <p>
+ * Responds with count passwords, one per line, or a JSON array of them when format is json.
+ * Policies are compiled once and cached by their query, count and format excluded.
+ */
+class GenerateHandler implements HttpHandler {
+    /* Passwords a single request may ask for. */
+    static final int MAX_COUNT = 1 << 16;
+    /* Distinct policies kept compiled, requests with other policies are compiled every time. */
+    private static final int MAX_POLICIES = 1024;
+    private static final Set<String> PARAMETERS = new HashSet<String>(Arrays.asList(
+            "length", "lower", "upper", "digits", "symbols", "minLower", "minUpper", "minDigits", "minSymbols",
+            "avoidAmbiguous", "forceEvery", "count", "format"));
+
+    private final ConcurrentMap<String, PasswordGenerator> generators = new ConcurrentHashMap<String, PasswordGenerator>();
+
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                throw new BadRequestException(405, "Only GET is supported.");
+            }
+
+            final Map<String, String> parameters = Exchanges.parseQuery(exchange.getRequestURI().getRawQuery());
+            for (String name : parameters.keySet()) {
+                if (!PARAMETERS.contains(name)) {
+                    throw new BadRequestException(400, "Unknown parameter: " + name);
+                }
+            }
+
+            final int count = Exchanges.getInt(parameters, "count", 1);
+            if (count < 0 || count > MAX_COUNT) {
+                throw new BadRequestException(400, "Parameter count should be between 0 and " + MAX_COUNT + ".");
+            }
+
+            final String format = parameters.containsKey("format") ? parameters.get("format") : "plain";
+            if (!"plain".equals(format) && !"json".equals(format)) {
+                throw new BadRequestException(400, "Parameter format should be plain or json.");
+            }
+
+            final PasswordGenerator generator = getGenerator(parameters);
+            final int length = generator.getPasswordLength();
+            final char[] passwords = generator.generate(count);
+            final byte[] body;
+            if ("json".equals(format)) {
+                final StringBuilder json = new StringBuilder(count * (length + 3) + 2).append('[');
+                for (int p = 0; p < count; p++) {
+                    if (p > 0) {
+                        json.append(',');
+                    }
+                    Exchanges.appendJson(json, CharBuffer.wrap(passwords, p * length, length));
+                }
+                body = json.append(']').toString().getBytes(StandardCharsets.UTF_8);
+            } else {
+                body = new byte[count * (length + 1)];
+                for (int p = 0, i = 0, o = 0; p < count; p++) {
+                    for (int c = 0; c < length; c++) {
+                        /* Passwords are ASCII. */
+                        body[o++] = (byte) passwords[i++];
+                    }
+                    body[o++] = '\n';
+                }
+            }
+            Arrays.fill(passwords, '\0');
+
+            Exchanges.send(exchange, 200, "json".equals(format) ? "application/json" : "text/plain; charset=utf-8", body);
+            Arrays.fill(body, (byte) 0);
+        } catch (BadRequestException e) {
+            Exchanges.sendError(exchange, e.getStatus(), e.getMessage());
+        } catch (RandomPasswordGeneratorException e) {
+            Exchanges.sendError(exchange, 400, e.getMessage());
+        }
+    }
+
+    private PasswordGenerator getGenerator(Map<String, String> parameters) throws BadRequestException, RandomPasswordGeneratorException {
+        /* Parameters are sorted, so the same policy maps to the same key whatever the order of the query. */
+        final StringBuilder key = new StringBuilder();
+        for (Map.Entry<String, String> parameter : parameters.entrySet()) {
+            if (!"count".equals(parameter.getKey()) && !"format".equals(parameter.getKey())) {
+                key.append(parameter.getKey()).append('=').append(parameter.getValue()).append('&');
+            }
+        }
+
+        PasswordGenerator generator = generators.get(key.toString());
+        if (null == generator) {
+            generator = createGenerator(parameters).compile();
+            if (generators.size() < MAX_POLICIES) {
+                generators.putIfAbsent(key.toString(), generator);
+            }
+        }
+
+        return generator;
+    }
+
+    private static RandomPasswordGenerator createGenerator(Map<String, String> parameters) throws BadRequestException {
+        RandomPasswordGenerator rpg = new RandomPasswordGenerator()
+                .withPasswordLength(Exchanges.getInt(parameters, "length", 8))
+                .withLowerCaseCharacters(Exchanges.getBoolean(parameters, "lower"))
+                .withUpperCaseCharacters(Exchanges.getBoolean(parameters, "upper"))
+                .withDigits(Exchanges.getBoolean(parameters, "digits"))
+                .withSymbols(Exchanges.getBoolean(parameters, "symbols"))
+                .withAvoidAmbiguousCharacters(Exchanges.getBoolean(parameters, "avoidAmbiguous"))
+                .withForceEveryCharacterType(Exchanges.getBoolean(parameters, "forceEvery"));
+
+        if (parameters.containsKey("minLower")) {
+            rpg.withMinLowerCaseCharacterCount(Exchanges.getInt(parameters, "minLower", 0));
+        }
+
+        if (parameters.containsKey("minUpper")) {
+            rpg.withMinUpperCaseCharacterCount(Exchanges.getInt(parameters, "minUpper", 0));
+        }
+
+        if (parameters.containsKey("minDigits")) {
+            rpg.withMinDigitCount(Exchanges.getInt(parameters, "minDigits", 0));
+        }
+
+        if (parameters.containsKey("minSymbols")) {
+            rpg.withMinSymbolCount(Exchanges.getInt(parameters, "minSymbols", 0));
+        }
+
+        return rpg;
+    }
+}
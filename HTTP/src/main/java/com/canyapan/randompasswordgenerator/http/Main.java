@@ -0,0 +1,44 @@
+/*
+ * Copyright 2015 CAN YAPAN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.canyapan.randompasswordgenerator.http;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+
+public class Main {
+    /**
+     * Usage: java -jar RandomPasswordGeneratorHttp.jar [port] [host], listens on 127.0.0.1:8080 by default.
+     */
+    public static void main(String[] args) {
+        final int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        final String host = args.length > 1 ? args[1] : "127.0.0.1";
+
+        try {
+            final PasswordService service = new PasswordService(new InetSocketAddress(host, port));
+            Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+                public void run() {
+                    service.stop(1);
+                }
+            }));
+            service.start();
+            System.out.println("Listening on " + service.getAddress());
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2015 CAN YAPAN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.canyapan.randompasswordgenerator.http;
+
+import com.canyapan.randompasswordgenerator.PasswordMeter;
+import com.canyapan.randompasswordgenerator.PasswordMeter.Complexity;
+import com.canyapan.randompasswordgenerator.http.Exchanges.BadRequestException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code POST /meter?format=} with one password per line in the body.
+ * <p>
+ * Responds with {@code <score>\t<complexity>} per password in the same order, or a JSON array of
+ * {@code {"score":..,"complexity":..}} objects when format is json. Blank lines score -1 with no complexity.
+ * Passwords are read from the body only, so they never end up in access logs.
+ */
+class MeterHandler implements HttpHandler {
+    /* Largest accepted body. */
+    static final int MAX_BODY_SIZE = 16 << 20;
+
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                throw new BadRequestException(405, "Only POST is supported.");
+            }
+
+            final Map<String, String> parameters = Exchanges.parseQuery(exchange.getRequestURI().getRawQuery());
+            final String format = parameters.containsKey("format") ? parameters.get("format") : "plain";
+            if (!"plain".equals(format) && !"json".equals(format)) {
+                throw new BadRequestException(400, "Parameter format should be plain or json.");
+            }
+
+            final byte[] body = Exchanges.readBody(exchange, MAX_BODY_SIZE);
+            final CharBuffer text = StandardCharsets.UTF_8.decode(ByteBuffer.wrap(body));
+            Arrays.fill(body, (byte) 0);
+
+            final List<CharSequence> passwords = new ArrayList<CharSequence>();
+            int start = 0;
+            for (int i = 0; i < text.limit(); i++) {
+                if (text.get(i) == '\n') {
+                    passwords.add(line(text, start, i));
+                    start = i + 1;
+                }
+            }
+            if (start < text.limit()) {
+                passwords.add(line(text, start, text.limit()));
+            }
+
+            final int[] scores = PasswordMeter.checkAll(passwords.toArray(new CharSequence[0])).getScores();
+            Arrays.fill(text.array(), text.arrayOffset(), text.arrayOffset() + text.limit(), '\0');
+
+            final StringBuilder response = new StringBuilder(scores.length * 16);
+            if ("json".equals(format)) {
+                response.append('[');
+                for (int i = 0; i < scores.length; i++) {
+                    if (i > 0) {
+                        response.append(',');
+                    }
+                    final Complexity complexity = Complexity.of(scores[i]);
+                    response.append("{\"score\":").append(scores[i]).append(",\"complexity\":");
+                    if (null == complexity) {
+                        response.append("null");
+                    } else {
+                        Exchanges.appendJson(response, complexity.toString());
+                    }
+                    response.append('}');
+                }
+                response.append(']');
+            } else {
+                for (int score : scores) {
+                    final Complexity complexity = Complexity.of(score);
+                    response.append(score).append('\t').append(null == complexity ? "" : complexity.toString()).append('\n');
+                }
+            }
+
+            Exchanges.send(exchange, 200, "json".equals(format) ? "application/json" : "text/plain; charset=utf-8",
+                    response.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (BadRequestException e) {
+            Exchanges.sendError(exchange, e.getStatus(), e.getMessage());
+        }
+    }
+
+    /**
+     * @return the line without its line break.
+     */
+    private static CharSequence line(CharBuffer text, int start, int end) {
+        if (end > start && text.get(end - 1) == '\r') {
+            end--;
+        }
+
+        return text.subSequence(start, end);
+    }
+}
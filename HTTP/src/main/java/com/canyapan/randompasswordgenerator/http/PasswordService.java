@@ -0,0 +1,95 @@
+/*
+ * Copyright 2015 CAN YAPAN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.canyapan.randompasswordgenerator.http;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Password generation and metering over HTTP, built on the JDK's own {@link HttpServer}.
+ * <ul>
+ * <li>{@code GET /generate}, see {@link GenerateHandler}</li>
+ * <li>{@code POST /meter}, see {@link MeterHandler}</li>
+ * </ul>
+ * Requests run on virtual threads when the runtime has them, on a fixed pool of one thread per processor otherwise.
+ */
+public class PasswordService {
+    static {
+        /*
+         * Headers and body are written separately, Nagle's algorithm would hold the body back until the client's
+         * delayed ACK and add ~40 ms to every kept-alive response. Read once when the first server is created.
+         */
+        if (null == System.getProperty("sun.net.httpserver.nodelay")) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * Binds the service, call {@link #start()} to serve.
+     *
+     * @param address address to listen on, port 0 picks a free port.
+     */
+    public PasswordService(InetSocketAddress address) throws IOException {
+        server = HttpServer.create(address, 0);
+        server.createContext("/generate", new GenerateHandler());
+        server.createContext("/meter", new MeterHandler());
+        executor = createExecutor();
+        server.setExecutor(executor);
+    }
+
+    /**
+     * @return a virtual thread per task executor on Java 21 and later, a fixed pool before.
+     */
+    static ExecutorService createExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException e) {
+            /* before Java 21 */
+        } catch (IllegalAccessException e) {
+            /* fall back */
+        } catch (InvocationTargetException e) {
+            /* fall back */
+        }
+
+        return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops accepting requests and waits at most the given delay for running ones.
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+    }
+
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2015 CAN YAPAN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.canyapan.randompasswordgenerator.http;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Load test of the password service over localhost. Not a unit test, run its main method:
+ * <pre>
+ * PasswordServiceLoad [clients] [seconds] [path] [base url]
+ * </pre>
+ * Starts a service in process unless a base url is given. Every client sends requests back to back
+ * over its kept-alive connection, then throughput and latency percentiles are printed.
+ */
+public class PasswordServiceLoad {
+    public static void main(String[] args) throws Exception {
+        final int clients = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        final int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        final String path = args.length > 2 ? args[2] : "/generate?length=16&lower&upper&digits&symbols&count=1";
+
+        PasswordService service = null;
+        String base;
+        if (args.length > 3) {
+            base = args[3];
+        } else {
+            service = new PasswordService(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            service.start();
+            base = "http://127.0.0.1:" + service.getAddress().getPort();
+        }
+
+        final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        final HttpRequest request = HttpRequest.newBuilder(URI.create(base + path)).GET().build();
+
+        /* warm up */
+        for (int i = 0; i < 2000; i++) {
+            client.send(request, HttpResponse.BodyHandlers.discarding());
+        }
+
+        final long end = System.nanoTime() + seconds * 1000000000L;
+        final List<long[]> latencies = new ArrayList<long[]>();
+        final int[] counts = new int[clients];
+        final int[] failures = new int[clients];
+        final List<Thread> threads = new ArrayList<Thread>();
+        for (int c = 0; c < clients; c++) {
+            final int index = c;
+            final long[] samples = new long[1 << 20];
+            latencies.add(samples);
+            Thread thread = new Thread(new Runnable() {
+                public void run() {
+                    while (System.nanoTime() < end) {
+                        final long start = System.nanoTime();
+                        try {
+                            if (client.send(request, HttpResponse.BodyHandlers.ofByteArray()).statusCode() != 200) {
+                                failures[index]++;
+                            }
+                        } catch (Exception e) {
+                            failures[index]++;
+                        }
+                        samples[counts[index]++ & (samples.length - 1)] = System.nanoTime() - start;
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        int total = 0;
+        int failed = 0;
+        for (int c = 0; c < clients; c++) {
+            threads.get(c).join();
+            total += counts[c];
+            failed += failures[c];
+        }
+
+        int sampled = 0;
+        for (int c = 0; c < clients; c++) {
+            sampled += Math.min(counts[c], latencies.get(c).length);
+        }
+        final long[] all = new long[sampled];
+        for (int c = 0, o = 0; c < clients; c++) {
+            final int n = Math.min(counts[c], latencies.get(c).length);
+            System.arraycopy(latencies.get(c), 0, all, o, n);
+            o += n;
+        }
+        Arrays.sort(all);
+
+        System.out.printf("%s, %d clients, %d s%n", base + path, clients, seconds);
+        System.out.printf("requests %d, failed %d, %.0f req/s%n", total, failed, total / (double) seconds);
+        System.out.printf("latency us p50 %.1f p90 %.1f p99 %.1f max %.1f%n",
+                percentile(all, 0.5), percentile(all, 0.9), percentile(all, 0.99), all.length == 0 ? 0 : all[all.length - 1] / 1000.0);
+
+        if (null != service) {
+            service.stop(0);
+        }
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        return sorted.length == 0 ? 0 : sorted[(int) Math.min(sorted.length - 1, Math.floor(p * sorted.length))] / 1000.0;
+    }
+}
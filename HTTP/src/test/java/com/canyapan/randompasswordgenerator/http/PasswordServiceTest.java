@@ -0,0 +1,103 @@
+/*
+ * Copyright 2015 CAN YAPAN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.canyapan.randompasswordgenerator.http;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PasswordServiceTest {
+    private static PasswordService service;
+    private static HttpClient client;
+
+    @BeforeClass
+    public static void start() throws Exception {
+        service = new PasswordService(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        service.start();
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @AfterClass
+    public static void stop() {
+        service.stop(0);
+    }
+
+    @Test
+    public void testGenerate() throws Exception {
+        HttpResponse<String> response = get("/generate?length=12&lower&digits=true&minDigits=3&count=50");
+        assertEquals(200, response.statusCode());
+
+        String[] passwords = response.body().split("\n");
+        assertEquals(50, passwords.length);
+        for (String password : passwords) {
+            assertTrue(password, password.matches("[a-z0-9]{12}"));
+            assertTrue(password, password.replaceAll("[^0-9]", "").length() >= 3);
+        }
+
+        response = get("/generate?upper&count=3&format=json&length=4");
+        assertEquals(200, response.statusCode());
+        assertTrue(response.body(), response.body().matches("\\[\"[A-Z]{4}\",\"[A-Z]{4}\",\"[A-Z]{4}\"]"));
+    }
+
+    @Test
+    public void testGenerateErrors() throws Exception {
+        assertEquals(400, get("/generate?length=8").statusCode());
+        assertEquals(400, get("/generate?lower&count=" + (GenerateHandler.MAX_COUNT + 1)).statusCode());
+        assertEquals(400, get("/generate?lower&bogus=1").statusCode());
+        assertEquals(400, get("/generate?lower=maybe").statusCode());
+        assertEquals(400, get("/generate?lower&length=x").statusCode());
+    }
+
+    @Test
+    public void testMeter() throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(uri("/meter"))
+                .POST(HttpRequest.BodyPublishers.ofString("aaa\r\n\nAbcdef1!xyZ\n"))
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+
+        String[] lines = response.body().split("\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[0], lines[0].matches("\\d+\t.+"));
+        assertEquals("-1\t", lines[1]);
+        assertTrue(lines[2], lines[2].matches("\\d+\t.+"));
+
+        request = HttpRequest.newBuilder(uri("/meter?format=json")).POST(HttpRequest.BodyPublishers.ofString("\n")).build();
+        assertEquals("[{\"score\":-1,\"complexity\":null}]", client.send(request, HttpResponse.BodyHandlers.ofString()).body());
+
+        assertEquals(405, get("/meter").statusCode());
+    }
+
+    private static HttpResponse<String> get(String path) throws Exception {
+        return client.send(HttpRequest.newBuilder(uri(path)).GET().build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static URI uri(String path) {
+        return URI.create("http://127.0.0.1:" + service.getAddress().getPort() + path);
+    }
+}
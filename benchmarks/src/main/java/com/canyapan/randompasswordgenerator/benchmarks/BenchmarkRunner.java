@@ -0,0 +1,57 @@
+/*
+ * Copyright 2015 CAN YAPAN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.canyapan.randompasswordgenerator.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler and writes JSON results to jmh-result.json, so runs of different
+ * commits can be compared, e.g. on https://jmh.morethan.net. Every JMH command line option is accepted and wins
+ * over these defaults:
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar [JMH options] [benchmark regexp]
+ * java -jar benchmarks/target/benchmarks.jar -rff jmh-result-$(git rev-parse --short HEAD).json GeneratorBenchmark -p length=16
+ * </pre>
+ */
+public class BenchmarkRunner {
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        final CommandLineOptions commandLine = new CommandLineOptions(args);
+
+        OptionsBuilder builder = new OptionsBuilder();
+        builder.parent(commandLine);
+        if (commandLine.getProfilers().isEmpty()) {
+            builder.addProfiler(GCProfiler.class);
+        }
+        if (!commandLine.getResultFormat().hasValue()) {
+            builder.resultFormat(ResultFormatType.JSON);
+        }
+        if (!commandLine.getResult().hasValue()) {
+            builder.result("jmh-result.json");
+        }
+
+        final Options options = builder.build();
+        new Runner(options).run();
+    }
+}
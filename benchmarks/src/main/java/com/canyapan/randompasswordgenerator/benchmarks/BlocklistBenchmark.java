@@ -0,0 +1,117 @@
+/*
+ * Copyright 2015 CAN YAPAN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.canyapan.randompasswordgenerator.benchmarks;
+
+import com.canyapan.randompasswordgenerator.Blocklist;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of Blocklist.contains for passwords on the list and not, with lists of up to ten million passwords.
+ * Larger lists miss the CPU caches and cost one memory access per lookup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BlocklistBenchmark {
+    @Param({"100000", "10000000"})
+    public int size;
+
+    private Path file;
+    private Blocklist blocklist;
+    private String[] listed;
+    private String[] unlisted;
+
+    @Setup
+    public void setup() throws IOException {
+        file = Files.createTempFile("blocklist", ".bloom");
+        Blocklist.build(new Iterable<String>() {
+            public Iterator<String> iterator() {
+                return new Iterator<String>() {
+                    private int next;
+
+                    public boolean hasNext() {
+                        return next < size;
+                    }
+
+                    public String next() {
+                        return password(next++);
+                    }
+
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        }, size, 0.001d, file);
+        blocklist = Blocklist.open(file);
+
+        listed = new String[1024];
+        unlisted = new String[1024];
+        for (int i = 0; i < listed.length; i++) {
+            listed[i] = password((int) ((i * 2654435761L) % size));
+            unlisted[i] = password(size + i);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.delete(file);
+    }
+
+    private static String password(int i) {
+        return "Summer" + i + "!";
+    }
+
+    /**
+     * Cycles through the passwords, per thread, so branch prediction cannot learn a single one.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    public boolean listed(Cursor cursor) {
+        return blocklist.contains(listed[cursor.next++ & (listed.length - 1)]);
+    }
+
+    @Benchmark
+    public boolean unlisted(Cursor cursor) {
+        return blocklist.contains(unlisted[cursor.next++ & (unlisted.length - 1)]);
+    }
+}
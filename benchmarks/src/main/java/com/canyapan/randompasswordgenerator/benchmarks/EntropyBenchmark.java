@@ -0,0 +1,112 @@
+/*
+ * Copyright 2015 CAN YAPAN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.canyapan.randompasswordgenerator.benchmarks;
+
+import com.canyapan.randompasswordgenerator.EntropyEstimator;
+import com.canyapan.randompasswordgenerator.PasswordGenerator;
+import com.canyapan.randompasswordgenerator.RandomPasswordGenerator;
+import com.canyapan.randompasswordgenerator.RandomPasswordGeneratorException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of EntropyEstimator.estimate per password, with a table trained on a synthetic corpus of word based passwords.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntropyBenchmark {
+    private static final String[] WORDS = {"password", "dragon", "monkey", "letmein", "qwerty", "sunshine", "football", "princess"};
+
+    @Param({"8", "16", "64"})
+    public int length;
+
+    private Path table;
+    private EntropyEstimator estimator;
+    private PasswordGenerator generator;
+    private String[] passwords;
+
+    @Setup
+    public void setup() throws IOException, RandomPasswordGeneratorException {
+        final Random random = new Random(42L);
+        final List<String> corpus = new ArrayList<String>();
+        for (int i = 0; i < 100000; i++) {
+            corpus.add(WORDS[random.nextInt(WORDS.length)] + random.nextInt(100));
+        }
+
+        table = Files.createTempFile("entropy", ".table");
+        final OutputStream out = Files.newOutputStream(table);
+        try {
+            EntropyEstimator.build(corpus, out);
+        } finally {
+            out.close();
+        }
+        estimator = EntropyEstimator.open(table);
+
+        generator = new RandomPasswordGenerator().withDefault().withPasswordLength(length).compile();
+        passwords = new String[256];
+        for (int i = 0; i < passwords.length; i++) {
+            passwords[i] = generator.generate();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.delete(table);
+    }
+
+    /**
+     * Cycles through the passwords, per thread, so branch prediction cannot learn a single one.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    public double estimate(Cursor cursor) {
+        return estimator.estimate(passwords[cursor.next++ & (passwords.length - 1)]);
+    }
+
+    @Benchmark
+    public double policyEntropy() {
+        return generator.getEntropy();
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2015 CAN YAPAN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.canyapan.randompasswordgenerator.benchmarks;
+
+import com.canyapan.randompasswordgenerator.PasswordGenerator;
+import com.canyapan.randompasswordgenerator.RandomPasswordGenerator;
+import com.canyapan.randompasswordgenerator.RandomPasswordGeneratorException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of password generation over every configuration axis.
+ * Character sets are given as letters: l lower case, u upper case, d digits, s symbols.
+ * The minimum count applies to every selected character set and is skipped where it exceeds the length.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeneratorBenchmark {
+    @Param({"8", "16", "64", "256"})
+    public int length;
+
+    @Param({"l", "lu", "lud", "luds"})
+    public String charsets;
+
+    @Param({"false", "true"})
+    public boolean avoidAmbiguous;
+
+    @Param({"false", "true"})
+    public boolean forceEvery;
+
+    @Param({"0", "2"})
+    public int minCount;
+
+    private RandomPasswordGenerator rpg;
+    private PasswordGenerator compiled;
+
+    @Setup
+    public void setup() throws RandomPasswordGeneratorException {
+        final boolean lower = charsets.indexOf('l') >= 0;
+        final boolean upper = charsets.indexOf('u') >= 0;
+        final boolean digits = charsets.indexOf('d') >= 0;
+        final boolean symbols = charsets.indexOf('s') >= 0;
+        final int min = minCount * charsets.length() <= length ? minCount : 0;
+
+        rpg = new RandomPasswordGenerator()
+                .withPasswordLength(length)
+                .withLowerCaseCharacters(lower)
+                .withUpperCaseCharacters(upper)
+                .withDigits(digits)
+                .withSymbols(symbols)
+                .withMinLowerCaseCharacterCount(lower ? min : 0)
+                .withMinUpperCaseCharacterCount(upper ? min : 0)
+                .withMinDigitCount(digits ? min : 0)
+                .withMinSymbolCount(symbols ? min : 0)
+                .withAvoidAmbiguousCharacters(avoidAmbiguous)
+                .withForceEveryCharacterType(forceEvery);
+        compiled = rpg.compile();
+    }
+
+    /**
+     * The builder API on one thread, the way the library was always used.
+     */
+    @Benchmark
+    public String generate() throws RandomPasswordGeneratorException {
+        return rpg.generate();
+    }
+
+    /**
+     * One compiled generator shared by a thread per processor.
+     */
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String generateShared() {
+        return compiled.generate();
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2015 CAN YAPAN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.canyapan.randompasswordgenerator.benchmarks;
+
+import com.canyapan.randompasswordgenerator.PasswordMeter;
+import com.canyapan.randompasswordgenerator.PasswordMeterException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of PasswordMeter.check per password.
+ * "mixed" passwords have few repeats, "repeated" passwords are made of 2 characters and hit the repeat deduction hardest.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MeterBenchmark {
+    private static final String MIXED = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789!@#$%^&*";
+    private static final String REPEATED = "aB";
+
+    @Param({"8", "16", "64", "256", "1024", "4096"})
+    public int length;
+
+    @Param({"mixed", "repeated"})
+    public String kind;
+
+    private String[] passwords;
+
+    @Setup
+    public void setup() {
+        final String characters = "repeated".equals(kind) ? REPEATED : MIXED;
+        final Random random = new Random(42L);
+
+        passwords = new String[256];
+        for (int i = 0; i < passwords.length; i++) {
+            final char[] password = new char[length];
+            for (int c = 0; c < length; c++) {
+                password[c] = characters.charAt(random.nextInt(characters.length()));
+            }
+            passwords[i] = new String(password);
+        }
+    }
+
+    /**
+     * Cycles through the passwords, per thread, so branch prediction cannot learn a single one.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    public PasswordMeter.Result check(Cursor cursor) throws PasswordMeterException {
+        return PasswordMeter.check(passwords[cursor.next++ & (passwords.length - 1)]);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public PasswordMeter.Result checkShared(Cursor cursor) throws PasswordMeterException {
+        return PasswordMeter.check(passwords[cursor.next++ & (passwords.length - 1)]);
+    }
+}
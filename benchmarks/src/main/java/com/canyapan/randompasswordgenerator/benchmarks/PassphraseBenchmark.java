@@ -0,0 +1,100 @@
+/*
+ * Copyright 2015 CAN YAPAN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.canyapan.randompasswordgenerator.benchmarks;
+
+import com.canyapan.randompasswordgenerator.PassphraseGenerator;
+import com.canyapan.randompasswordgenerator.RandomPassphraseGenerator;
+import com.canyapan.randompasswordgenerator.RandomPasswordGeneratorException;
+import com.canyapan.randompasswordgenerator.WordList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of passphrase generation from a synthetic list of the size of the EFF long list.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PassphraseBenchmark {
+    @Param({"4", "6", "8"})
+    public int words;
+
+    @Param({"0", "2"})
+    public int minCount;
+
+    private PassphraseGenerator generator;
+
+    @Setup
+    public void setup() throws RandomPasswordGeneratorException {
+        List<String> list = new ArrayList<String>();
+        for (int i = 0; i < 7776; i++) {
+            StringBuilder word = new StringBuilder();
+            for (int n = i * 7919 + 100000; n > 0; n /= 26) {
+                word.append((char) ('a' + n % 26));
+            }
+            list.add(word.toString());
+        }
+
+        generator = new RandomPassphraseGenerator()
+                .withWordList(WordList.of(list))
+                .withWordCount(words)
+                .withSeparator("-")
+                .withCapitalization(RandomPassphraseGenerator.Capitalization.RANDOM)
+                .withMinDigitCount(minCount)
+                .withMinSymbolCount(minCount)
+                .compile();
+    }
+
+    /**
+     * Per thread destination, the way a caller which wipes its secrets generates them.
+     */
+    @State(Scope.Thread)
+    public static class Destination {
+        char[] chars;
+    }
+
+    @Benchmark
+    public int generateInto(Destination destination) {
+        if (null == destination.chars) {
+            destination.chars = new char[generator.getMaxLength()];
+        }
+
+        return generator.generateInto(destination.chars, 0);
+    }
+
+    @Benchmark
+    public String generate() {
+        return generator.generate();
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2015 CAN YAPAN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.canyapan.randompasswordgenerator.benchmarks;
+
+import com.canyapan.randompasswordgenerator.MarkovModel;
+import com.canyapan.randompasswordgenerator.PronounceablePasswordGenerator;
+import com.canyapan.randompasswordgenerator.RandomPasswordGeneratorException;
+import com.canyapan.randompasswordgenerator.RandomPronounceablePasswordGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of pronounceable password generation from a model of random syllables. The cost of a letter does not
+ * depend on the model, so the length is the only axis that matters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PronounceableBenchmark {
+    @Param({"8", "16", "64"})
+    public int length;
+
+    private PronounceablePasswordGenerator generator;
+    private char[] dest;
+
+    @Setup
+    public void setup() throws IOException, RandomPasswordGeneratorException {
+        final String consonants = "bcdfghjklmnprstvwz";
+        final String vowels = "aeiou";
+        final Random random = new Random(42);
+        List<String> corpus = new ArrayList<String>();
+        for (int i = 0; i < 20000; i++) {
+            StringBuilder word = new StringBuilder();
+            for (int s = 2 + random.nextInt(3); s > 0; s--) {
+                word.append(consonants.charAt(random.nextInt(consonants.length()))).append(vowels.charAt(random.nextInt(vowels.length())));
+            }
+            corpus.add(word.toString());
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MarkovModel.build(corpus, out);
+
+        generator = new RandomPronounceablePasswordGenerator()
+                .withModel(MarkovModel.read(new ByteArrayInputStream(out.toByteArray())))
+                .withPasswordLength(length)
+                .withMinDigitCount(1)
+                .withMinUpperCaseCharacterCount(1)
+                .compile();
+        dest = new char[length];
+    }
+
+    @Benchmark
+    public char[] generateInto() {
+        generator.generateInto(dest, 0);
+
+        return dest;
+    }
+
+    @Benchmark
+    public String generate() {
+        return generator.generate();
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2015 CAN YAPAN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.canyapan.randompasswordgenerator.benchmarks;
+
+import com.canyapan.randompasswordgenerator.IncrementalPasswordMeter;
+import com.canyapan.randompasswordgenerator.PasswordMeter;
+import com.canyapan.randompasswordgenerator.PasswordMeterException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of scoring a password on every keystroke, typed up to the given length and started over.
+ * "recheck" meters the whole text again, "incremental" updates an IncrementalPasswordMeter.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TypingBenchmark {
+    private static final String CHARACTERS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789!@#$%^&*";
+
+    @Param({"8", "16", "64"})
+    public int length;
+
+    private char[] keys;
+    private int next;
+    private final StringBuilder text = new StringBuilder();
+    private final IncrementalPasswordMeter meter = new IncrementalPasswordMeter();
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(42L);
+
+        keys = new char[4096];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = CHARACTERS.charAt(random.nextInt(CHARACTERS.length()));
+        }
+    }
+
+    @Benchmark
+    public int recheck() throws PasswordMeterException {
+        if (text.length() == length) {
+            text.setLength(0);
+        }
+        text.append(keys[next++ & (keys.length - 1)]);
+
+        return PasswordMeter.check(text).getScore();
+    }
+
+    @Benchmark
+    public int incremental() throws PasswordMeterException {
+        if (meter.length() == length) {
+            meter.clear();
+        }
+        meter.append(keys[next++ & (keys.length - 1)]);
+
+        return meter.score();
+    }
+}
@@ -0,0 +1,311 @@
+/*
+ * Copyright 2015 CAN YAPAN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.canyapan.randompasswordgenerator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Passwords which must not be used, e.g. the ones of breach corpora, kept in a Bloom filter file which is memory
+ * mapped instead of loaded, so lists of hundreds of millions of passwords take no heap.
+ * <p>
+ * The filter is split into blocks of one cache line and all bits of a password are in the same block, so a lookup
+ * reads one cache line of the file. A password on the list is always found, one which is not is found with, on
+ * average, at most the false positive rate the filter was built for. Passwords are compared exactly, case included.
+ * <p>
+ * Thread-safe.
+ *
+ * @see PasswordMeter#check(CharSequence, Blocklist)
+ * @see RandomPasswordGenerator#withBlocklist(Blocklist)
+ */
+public final class Blocklist {
+    private static final int MAGIC = 0x52504742;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    /* Bits of a block, one cache line. */
+    private static final int BLOCK_BITS = 512;
+    /*
+    Every hash takes 9 bits of a 64 bit hash to address a bit of the block. Rates which would take more hashes get
+    more bits instead, see blocksFor.
+    */
+    private static final int MAX_HASHES = 7;
+
+    private final ByteBuffer filter;
+    private final int blocks;
+    private final int hashes;
+    private final long count;
+
+    private Blocklist(ByteBuffer filter) {
+        this.filter = filter;
+        this.hashes = filter.getInt(8);
+        this.blocks = filter.getInt(12);
+        this.count = filter.getLong(16);
+    }
+
+    /**
+     * Maps a blocklist written by {@link #build(Iterable, long, double, Path)}.
+     *
+     * @param file blocklist file.
+     * @return a blocklist backed by the mapped file.
+     * @throws IOException thrown when the file cannot be read or is not a blocklist.
+     */
+    public static Blocklist open(Path file) throws IOException {
+        final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        final MappedByteBuffer mapped;
+        try {
+            if (channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Not a blocklist: " + file);
+            }
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            channel.close();
+        }
+
+        if (mapped.getInt(0) != MAGIC || mapped.getInt(4) != VERSION || mapped.getInt(8) < 1 || mapped.getInt(8) > MAX_HASHES
+                || mapped.getInt(12) < 1 || mapped.capacity() != HEADER_SIZE + (long) mapped.getInt(12) * (BLOCK_BITS / 8)) {
+            throw new IOException("Not a blocklist: " + file);
+        }
+
+        return new Blocklist(mapped);
+    }
+
+    /**
+     * Writes a blocklist of the given passwords. The filter is written through a mapping of the file, so building
+     * takes no heap either.
+     *
+     * @param passwords         passwords to block, empty ones are skipped.
+     * @param expectedCount     number of passwords, the filter is sized for it.
+     * @param falsePositiveRate highest rate of other passwords found on the list, e.g. 0.001.
+     * @param file              file to write, replaced if it exists.
+     * @throws IOException thrown when the file cannot be written or would exceed 2 GiB.
+     */
+    public static void build(Iterable<? extends CharSequence> passwords, long expectedCount, double falsePositiveRate, Path file)
+            throws IOException {
+        if (!(falsePositiveRate > 0d && falsePositiveRate < 1d)) {
+            throw new IllegalArgumentException("False positive rate should be between 0 and 1.");
+        }
+
+        final double ln2 = Math.log(2);
+        final long n = Math.max(1, expectedCount);
+        final double bits = Math.ceil(-n * Math.log(falsePositiveRate) / (ln2 * ln2));
+        final int hashes = (int) Math.max(1, Math.min(MAX_HASHES, Math.round(bits / n * ln2)));
+        final long blocks = blocksFor(n, hashes, falsePositiveRate, (long) Math.ceil(bits / BLOCK_BITS));
+        final long size = HEADER_SIZE + blocks * (BLOCK_BITS / 8);
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Blocklist of " + expectedCount + " passwords at rate " + falsePositiveRate + " exceeds 2 GiB.");
+        }
+
+        final FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            final MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            mapped.putInt(0, MAGIC);
+            mapped.putInt(4, VERSION);
+            mapped.putInt(8, hashes);
+            mapped.putInt(12, (int) blocks);
+
+            long count = 0;
+            for (CharSequence password : passwords) {
+                if (password.length() == 0) {
+                    continue;
+                }
+
+                long h = 0L;
+                for (int i = 0; i < password.length(); i++) {
+                    h = step(h, password.charAt(i));
+                }
+
+                final int base = base(h, password.length(), (int) blocks);
+                long bitsOfBlock = bits(h, password.length());
+                for (int i = 0; i < hashes; i++, bitsOfBlock >>>= 9) {
+                    final int bit = (int) bitsOfBlock & (BLOCK_BITS - 1);
+                    final int index = base + (bit >>> 3);
+                    mapped.put(index, (byte) (mapped.get(index) | (1 << (bit & 7))));
+                }
+                count++;
+            }
+
+            mapped.putLong(16, count);
+            mapped.force();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * The textbook size assumes the optimal number of hashes and a filter of one block. With fewer hashes and
+     * passwords spread unevenly over blocks, the rate would be higher, so the blocks are grown until it is not.
+     *
+     * @return the fewest blocks, at least from, whose expected false positive rate is at most rate.
+     */
+    private static long blocksFor(long count, int hashes, double rate, long from) {
+        long low = Math.max(1, from);
+        if (falsePositiveRate(count, low, hashes) <= rate) {
+            return low;
+        }
+
+        long high = low * 2;
+        while (falsePositiveRate(count, high, hashes) > rate) {
+            low = high;
+            high *= 2;
+        }
+
+        /* falsePositiveRate(low) > rate >= falsePositiveRate(high) */
+        while (high - low > 1) {
+            final long middle = (low + high) >>> 1;
+            if (falsePositiveRate(count, middle, hashes) > rate) {
+                low = middle;
+            } else {
+                high = middle;
+            }
+        }
+
+        return high;
+    }
+
+    /**
+     * @return expected false positive rate of a filter, averaged over the Poisson distributed number of passwords in
+     *         the block a lookup reads.
+     */
+    private static double falsePositiveRate(long count, long blocks, int hashes) {
+        final double load = (double) count / blocks;
+        /* log of the chance a bit of a block is left clear by one password */
+        final double clear = hashes * Math.log1p(-1d / BLOCK_BITS);
+        final long last = (long) Math.ceil(load + 12 * Math.sqrt(load) + 20);
+
+        double rate = 0d;
+        double logPoisson = -load;
+        for (long j = 0; j <= last; j++) {
+            if (j > 0) {
+                logPoisson += Math.log(load / j);
+            }
+            rate += Math.exp(logPoisson + hashes * Math.log(-Math.expm1(clear * j)));
+        }
+
+        return rate;
+    }
+
+    /**
+     * @param password A password to look up.
+     * @return true when the password is on the list, or rarely when it is a false positive.
+     */
+    public boolean contains(CharSequence password) {
+        long h = 0L;
+        for (int i = 0; i < password.length(); i++) {
+            h = step(h, password.charAt(i));
+        }
+
+        return contains(h, password.length());
+    }
+
+    /**
+     * Looks up a password kept in an array, without copying it into a String.
+     *
+     * @param password A password to look up.
+     * @return true when the password is on the list, or rarely when it is a false positive.
+     */
+    public boolean contains(char[] password) {
+        return contains(CharBuffer.wrap(password));
+    }
+
+    /**
+     * Looks up a range of an array, e.g. one password of a batch.
+     */
+    boolean contains(char[] password, int offset, int length) {
+        long h = 0L;
+        for (int i = offset; i < offset + length; i++) {
+            h = step(h, password[i]);
+        }
+
+        return contains(h, length);
+    }
+
+    /**
+     * Looks up an ASCII password written at an absolute index of a buffer.
+     */
+    boolean contains(ByteBuffer password, int index, int length) {
+        long h = 0L;
+        for (int i = index; i < index + length; i++) {
+            h = step(h, password.get(i) & 0xFF);
+        }
+
+        return contains(h, length);
+    }
+
+    /**
+     * @return number of passwords the list was built from.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    private boolean contains(long h, int length) {
+        if (length == 0) {
+            return false;
+        }
+
+        final int base = base(h, length, blocks);
+        long bitsOfBlock = bits(h, length);
+        for (int i = 0; i < hashes; i++, bitsOfBlock >>>= 9) {
+            final int bit = (int) bitsOfBlock & (BLOCK_BITS - 1);
+            if ((filter.get(base + (bit >>> 3)) & (1 << (bit & 7))) == 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static long step(long h, int c) {
+        return Long.rotateLeft((h ^ c) * 0x9E3779B97F4A7C15L, 29);
+    }
+
+    /**
+     * @return index of the first byte of the block of a password.
+     */
+    private static int base(long h, int length, int blocks) {
+        final long block = ((mix(h ^ length) >>> 32) * blocks) >>> 32;
+
+        return HEADER_SIZE + (int) block * (BLOCK_BITS / 8);
+    }
+
+    /**
+     * @return bits of a password within its block, 9 bits each.
+     */
+    private static long bits(long h, int length) {
+        return mix(h ^ length ^ 0x5851F42D4C957F2DL);
+    }
+
+    /**
+     * Finalizer of MurmurHash3, every input bit affects every output bit.
+     */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+
+        return h;
+    }
+}
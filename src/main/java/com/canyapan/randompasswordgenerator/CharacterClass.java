@@ -0,0 +1,140 @@
+/*
+ * Copyright 2015 CAN YAPAN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.canyapan.randompasswordgenerator;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * A named set of characters passwords may be made of, in addition to the built-in lower case, upper case,
+ * digit and symbol sets, e.g. a site specific symbol set or a Unicode alphabet.
+ * Characters should be in the Basic Multilingual Plane, so every character is one char of the password.
+ * Classes of a policy should not share characters.
+ */
+public final class CharacterClass {
+    private final String name;
+    private final String characters;
+    private final int minCount;
+    private final int maxCount;
+
+    /**
+     * @param name       unique name of the class within a policy.
+     * @param characters characters of the class, repeated ones are counted once.
+     * @param minCount   minimum number of characters of this class in a password, a value >= 0.
+     */
+    public CharacterClass(String name, String characters, int minCount) {
+        this(name, characters, minCount, 0);
+    }
+
+    /**
+     * @param name       unique name of the class within a policy.
+     * @param characters characters of the class, repeated ones are counted once.
+     * @param minCount   minimum number of characters of this class in a password, a value >= 0.
+     * @param maxCount   maximum number of characters of this class in a password, 0 for no limit.
+     */
+    public CharacterClass(String name, String characters, int minCount, int maxCount) {
+        if (null == name || name.isEmpty()) {
+            throw new IllegalArgumentException("Character class should have a name.");
+        }
+
+        if (null == characters || characters.isEmpty()) {
+            throw new IllegalArgumentException("Character class " + name + " should have characters.");
+        }
+
+        if (minCount < 0) {
+            throw new IllegalArgumentException("Minimum count of character class " + name + " cannot be negative.");
+        }
+
+        if (maxCount < 0 || (maxCount > 0 && maxCount < minCount)) {
+            throw new IllegalArgumentException("Maximum count of character class " + name + " should be 0 or not less than its minimum count.");
+        }
+
+        final Set<Character> unique = new LinkedHashSet<Character>();
+        for (int i = 0; i < characters.length(); i++) {
+            final char c = characters.charAt(i);
+            if (Character.isSurrogate(c)) {
+                throw new IllegalArgumentException("Character class " + name + " should have characters of the Basic Multilingual Plane only.");
+            }
+            unique.add(c);
+        }
+
+        final StringBuilder text = new StringBuilder(unique.size());
+        for (Character c : unique) {
+            text.append(c.charValue());
+        }
+
+        this.name = name;
+        this.characters = text.toString();
+        this.minCount = minCount;
+        this.maxCount = maxCount;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return characters of the class, each once.
+     */
+    public String getCharacters() {
+        return characters;
+    }
+
+    public int getMinCount() {
+        return minCount;
+    }
+
+    /**
+     * @return maximum count, 0 when there is no limit.
+     */
+    public int getMaxCount() {
+        return maxCount;
+    }
+
+    char[] toCharArray() {
+        return characters.toCharArray();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+
+        if (!(o instanceof CharacterClass)) {
+            return false;
+        }
+
+        CharacterClass that = (CharacterClass) o;
+        return minCount == that.minCount && maxCount == that.maxCount && name.equals(that.name) && characters.equals(that.characters);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(new Object[]{name, characters, minCount, maxCount});
+    }
+
+    /**
+     * @return e.g. {@code symbols[-_.]>=1<=2}.
+     */
+    @Override
+    public String toString() {
+        return name + "[" + characters + "]" + (minCount > 0 ? ">=" + minCount : "") + (maxCount > 0 ? "<=" + maxCount : "");
+    }
+}
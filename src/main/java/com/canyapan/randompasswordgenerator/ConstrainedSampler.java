@@ -0,0 +1,248 @@
+/*
+ * Copyright 2015 CAN YAPAN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.canyapan.randompasswordgenerator;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Draws passwords uniformly from all passwords that satisfy minimum and maximum counts per character class and a
+ * limit of consecutive characters of the same class, in one pass without retries.
+ * <p>
+ * A password is a sequence of classes and a character of each. The number of valid completions of every prefix only
+ * depends on its state, which is the count of every class capped at its limit and the class and length of the last run.
+ * These are counted backwards at compile time, each class weighted by its size, then every position picks its class
+ * in proportion to the completions it leaves and a character of it uniformly. A draw costs one pass over the classes.
+ * Weights are doubles, so probabilities are exact to about 2^-53 of each other.
+ */
+final class ConstrainedSampler {
+    /* Counting tables larger than this many entries are refused, 16 MiB of weights. */
+    private static final long MAX_TABLE_SIZE = 1L << 21;
+
+    private final char[][] charsets;
+    /* Every class back to back, the class of every character and where every class starts. */
+    private final char[] characters;
+    private final int[] classes;
+    private final int[] offsets;
+    private final int length;
+    private final int stateCount;
+    /* Next state of state s after a character of class k at s * classes + k, -1 when it breaks a limit. */
+    private final int[] transitions;
+    /* Relative number of valid completions of state s after p characters at p * stateCount + s, scaled per position. */
+    private final double[] weights;
+    /* log2 of the number of valid passwords, every one of them is equally likely. */
+    private final double entropy;
+
+    /**
+     * @param charsets       table of every class.
+     * @param minCounts      minimum count of every class.
+     * @param maxCounts      maximum count of every class, 0 for no limit.
+     * @param maxConsecutive maximum number of characters of the same class in a row, 0 for no limit.
+     * @param length         password length.
+     * @throws RandomPasswordGeneratorException thrown when no password satisfies the limits or they are too many to count.
+     */
+    ConstrainedSampler(char[][] charsets, int[] minCounts, int[] maxCounts, int maxConsecutive, int length) throws RandomPasswordGeneratorException {
+        final int classes = charsets.length;
+        this.charsets = charsets;
+        this.length = length;
+
+        int size = 0;
+        for (char[] charset : charsets) {
+            size += charset.length;
+        }
+
+        this.characters = new char[size];
+        this.classes = new int[size];
+        this.offsets = new int[classes];
+        for (int k = 0, at = 0; k < classes; at += charsets[k].length, k++) {
+            System.arraycopy(charsets[k], 0, characters, at, charsets[k].length);
+            Arrays.fill(this.classes, at, at + charsets[k].length, k);
+            offsets[k] = at;
+        }
+
+        /* counts are mixed radix digits, a class without a maximum is only counted up to its minimum */
+        final int[] caps = new int[classes];
+        final int[] strides = new int[classes];
+        long countStates = 1;
+        for (int k = 0; k < classes; k++) {
+            caps[k] = maxCounts[k] > 0 ? Math.min(maxCounts[k], length) : Math.min(minCounts[k], length);
+            strides[k] = (int) countStates;
+            countStates *= caps[k] + 1;
+            if (countStates > MAX_TABLE_SIZE) {
+                throw tooComplex();
+            }
+        }
+
+        /* run index 0 is the empty password, 1 + k * maxConsecutive + (run - 1) a run of class k */
+        final long runStates = maxConsecutive > 0 ? 1 + (long) classes * maxConsecutive : 1;
+        if (countStates * runStates * (length + 1) > MAX_TABLE_SIZE || countStates * runStates * classes > MAX_TABLE_SIZE) {
+            throw tooComplex();
+        }
+
+        stateCount = (int) (countStates * runStates);
+        transitions = new int[stateCount * classes];
+        final boolean[] accepted = new boolean[stateCount];
+        for (int s = 0; s < stateCount; s++) {
+            final int counts = s / (int) runStates;
+            final int run = s % (int) runStates;
+
+            boolean accept = true;
+            for (int k = 0; k < classes; k++) {
+                final int count = counts / strides[k] % (caps[k] + 1);
+                accept &= count >= minCounts[k];
+
+                int next;
+                if (maxCounts[k] > 0 && count == caps[k]) {
+                    next = -1;
+                } else {
+                    next = count < caps[k] ? counts + strides[k] : counts;
+                }
+
+                if (next >= 0 && runStates > 1) {
+                    final int lastLength = run > 0 && (run - 1) / maxConsecutive == k ? (run - 1) % maxConsecutive + 1 : 0;
+                    if (lastLength == maxConsecutive) {
+                        next = -1;
+                    } else {
+                        next = next * (int) runStates + 1 + k * maxConsecutive + lastLength;
+                    }
+                }
+
+                transitions[s * classes + k] = next;
+            }
+            accepted[s] = accept;
+        }
+
+        weights = new double[stateCount * (length + 1)];
+        double log2Scale = 0d;
+        for (int s = 0; s < stateCount; s++) {
+            weights[length * stateCount + s] = accepted[s] ? 1 : 0;
+        }
+
+        for (int p = length - 1; p >= 0; p--) {
+            final int row = p * stateCount;
+            final int nextRow = row + stateCount;
+            double max = 0;
+            for (int s = 0; s < stateCount; s++) {
+                double sum = 0;
+                for (int k = 0; k < classes; k++) {
+                    final int next = transitions[s * classes + k];
+                    if (next >= 0) {
+                        sum += charsets[k].length * weights[nextRow + next];
+                    }
+                }
+                weights[row + s] = sum;
+                max = Math.max(max, sum);
+            }
+
+            if (max == 0) {
+                break;
+            }
+
+            /* only weights of the same position are compared, scaling keeps long passwords from underflowing */
+            for (int s = 0; s < stateCount; s++) {
+                weights[row + s] /= max;
+            }
+            log2Scale += Math.log(max) / Math.log(2);
+        }
+
+        if (weights[0] == 0) {
+            throw new RandomPasswordGeneratorException("No password satisfies the minimum, maximum and consecutive character counts.");
+        }
+
+        entropy = log2Scale + Math.log(weights[0]) / Math.log(2);
+    }
+
+    double getEntropy() {
+        return entropy;
+    }
+
+    private static RandomPasswordGeneratorException tooComplex() {
+        return new RandomPasswordGeneratorException("Character count limits are too many to be compiled.");
+    }
+
+    void generate(char[] dest, int offset, RandomBlock block) {
+        int state = 0;
+        for (int p = 0; p < length; p++) {
+            final int j = nextCharacter(p, state, block);
+            dest[offset + p] = characters[j];
+            state = transitions[state * charsets.length + classes[j]];
+        }
+    }
+
+    void generate(ByteBuffer dest, int index, RandomBlock block) {
+        int state = 0;
+        for (int p = 0; p < length; p++) {
+            final int j = nextCharacter(p, state, block);
+            dest.put(index + p, (byte) characters[j]);
+            state = transitions[state * charsets.length + classes[j]];
+        }
+    }
+
+    /**
+     * Picks the character of position p, its class in proportion to the valid completions it leaves.
+     *
+     * @return index of the character in the flat table.
+     */
+    private int nextCharacter(int p, int state, RandomBlock block) {
+        final int row = (p + 1) * stateCount;
+        final int from = state * charsets.length;
+
+        double total = 0;
+        double max = 0;
+        for (int k = 0; k < charsets.length; k++) {
+            final int next = transitions[from + k];
+            if (next >= 0) {
+                total += charsets[k].length * weights[row + next];
+                max = Math.max(max, weights[row + next]);
+            }
+        }
+
+        /*
+         * Usually the classes leave about as many completions each, then a uniform character of the flat table
+         * accepted with the relative weight of its class costs a few bits instead of a 53 bit double.
+         */
+        if (total * 2 >= max * characters.length) {
+            while (true) {
+                final int j = block.nextIndex(characters.length);
+                final int next = transitions[from + classes[j]];
+                if (next >= 0) {
+                    final double weight = weights[row + next];
+                    if (weight == max || (weight > 0 && block.nextBoolean(weight / max))) {
+                        return j;
+                    }
+                }
+            }
+        }
+
+        double target = block.nextDouble() * total;
+        int chosen = -1;
+        for (int k = 0; k < charsets.length; k++) {
+            final int next = transitions[from + k];
+            if (next >= 0 && weights[row + next] > 0) {
+                /* the last class with completions absorbs rounding */
+                chosen = k;
+                target -= charsets[k].length * weights[row + next];
+                if (target < 0) {
+                    break;
+                }
+            }
+        }
+
+        return offsets[chosen] + block.nextIndex(charsets[chosen].length);
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2015 CAN YAPAN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.canyapan.randompasswordgenerator;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Estimates bits of entropy of passwords chosen by people, as the number of guesses an attacker trained on leaked
+ * passwords needs, in bits. Generated passwords know theirs from the policy, see {@link PasswordGenerator#getEntropy()}.
+ * <p>
+ * The estimate is the cost of every character after the two before it under a character trigram model, built from a
+ * corpus by {@link #build(Iterable, OutputStream)} into a table of {@value #SYMBOLS}^3 quantized costs and memory
+ * mapped by {@link #open(Path)}, so it takes no heap and a character costs one lookup.
+ * Printable ASCII characters are modelled one by one, every other character is one symbol.
+ * <p>
+ * Thread-safe.
+ */
+public final class EntropyEstimator {
+    /* Start of the password, printable ASCII 0x20-0x7E, and anything else. */
+    private static final int SYMBOLS = 97;
+    private static final int MAGIC = 0x52504745;
+    private static final int VERSION = 1;
+    /* Costs are stored in quarter bits, up to 63.75 bits per character. */
+    private static final int UNITS_PER_BIT = 4;
+    private static final int HEADER_SIZE = 16;
+    private static final int TABLE_SIZE = SYMBOLS * SYMBOLS * SYMBOLS;
+
+    private final ByteBuffer table;
+
+    private EntropyEstimator(ByteBuffer table) {
+        this.table = table;
+    }
+
+    /**
+     * Maps a table written by {@link #build(Iterable, OutputStream)}.
+     *
+     * @param file table file.
+     * @return an estimator backed by the mapped file.
+     * @throws IOException thrown when the file cannot be read or is not a table.
+     */
+    public static EntropyEstimator open(Path file) throws IOException {
+        final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        final MappedByteBuffer mapped;
+        try {
+            if (channel.size() != HEADER_SIZE + TABLE_SIZE) {
+                throw new IOException("Not an entropy table: " + file);
+            }
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            channel.close();
+        }
+
+        if (mapped.getInt(0) != MAGIC || mapped.getInt(4) != VERSION || mapped.getInt(8) != SYMBOLS || mapped.getInt(12) != UNITS_PER_BIT) {
+            throw new IOException("Not an entropy table: " + file);
+        }
+
+        return new EntropyEstimator(mapped);
+    }
+
+    /**
+     * Estimates bits of entropy of a password.
+     *
+     * @param password A password to estimate.
+     * @return bits, 0 for an empty password.
+     */
+    public double estimate(CharSequence password) {
+        int units = 0;
+        int first = 0, second = 0;
+        for (int i = 0; i < password.length(); i++) {
+            final int third = symbol(password.charAt(i));
+            units += table.get(HEADER_SIZE + (first * SYMBOLS + second) * SYMBOLS + third) & 0xFF;
+            first = second;
+            second = third;
+        }
+
+        return (double) units / UNITS_PER_BIT;
+    }
+
+    /**
+     * Estimates bits of entropy of a password kept in an array, without copying it into a String.
+     *
+     * @param password A password to estimate.
+     * @return bits, 0 for an empty password.
+     */
+    public double estimate(char[] password) {
+        return estimate(CharBuffer.wrap(password));
+    }
+
+    /**
+     * Trains a table from a corpus of passwords, one per entry. Probabilities of a character after two others are
+     * smoothed with those after one and none by Witten-Bell interpolation, so unseen characters cost a lot but not all.
+     *
+     * @param corpus passwords to learn from.
+     * @param out    stream the table is written to, not closed.
+     * @throws IOException thrown when the table cannot be written.
+     */
+    public static void build(Iterable<? extends CharSequence> corpus, OutputStream out) throws IOException {
+        final int[] trigrams = new int[TABLE_SIZE];
+        final long[] bigrams = new long[SYMBOLS * SYMBOLS];
+        final long[] unigrams = new long[SYMBOLS];
+        long total = 0;
+
+        for (CharSequence password : corpus) {
+            int first = 0, second = 0;
+            for (int i = 0; i < password.length(); i++) {
+                final int third = symbol(password.charAt(i));
+                trigrams[(first * SYMBOLS + second) * SYMBOLS + third]++;
+                bigrams[second * SYMBOLS + third]++;
+                unigrams[third]++;
+                total++;
+                first = second;
+                second = third;
+            }
+        }
+
+        /* totals and distinct continuations of every context */
+        final long[] bigramTotals = new long[SYMBOLS];
+        final int[] bigramTypes = new int[SYMBOLS];
+        for (int b = 0; b < SYMBOLS; b++) {
+            for (int c = 0; c < SYMBOLS; c++) {
+                bigramTotals[b] += bigrams[b * SYMBOLS + c];
+                bigramTypes[b] += bigrams[b * SYMBOLS + c] > 0 ? 1 : 0;
+            }
+        }
+
+        final double[] unigram = new double[SYMBOLS];
+        for (int c = 0; c < SYMBOLS; c++) {
+            /* the start symbol is never a continuation */
+            unigram[c] = c == 0 ? 0d : (unigrams[c] + 1d) / (total + SYMBOLS - 1);
+        }
+
+        final DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(SYMBOLS);
+        data.writeInt(UNITS_PER_BIT);
+
+        final double[] bigram = new double[SYMBOLS];
+        final byte[] row = new byte[SYMBOLS];
+        for (int a = 0; a < SYMBOLS; a++) {
+            for (int b = 0; b < SYMBOLS; b++) {
+                interpolate(bigrams, b * SYMBOLS, bigramTotals[b], bigramTypes[b], unigram, bigram);
+
+                final int context = (a * SYMBOLS + b) * SYMBOLS;
+                long contextTotal = 0;
+                int contextTypes = 0;
+                for (int c = 0; c < SYMBOLS; c++) {
+                    contextTotal += trigrams[context + c];
+                    contextTypes += trigrams[context + c] > 0 ? 1 : 0;
+                }
+
+                for (int c = 0; c < SYMBOLS; c++) {
+                    final double p = contextTotal == 0 ? bigram[c]
+                            : (trigrams[context + c] + contextTypes * bigram[c]) / (contextTotal + contextTypes);
+                    final double units = p > 0 ? Math.ceil(-Math.log(p) / Math.log(2) * UNITS_PER_BIT) : 255;
+                    row[c] = (byte) Math.min(255, Math.max(0, units));
+                }
+                data.write(row);
+            }
+        }
+        data.flush();
+    }
+
+    private static void interpolate(long[] counts, int from, long total, int types, double[] lower, double[] result) {
+        for (int c = 0; c < SYMBOLS; c++) {
+            result[c] = total == 0 ? lower[c] : (counts[from + c] + types * lower[c]) / (total + types);
+        }
+    }
+
+    private static int symbol(char c) {
+        return c >= 0x20 && c <= 0x7E ? c - 0x1F : SYMBOLS - 1;
+    }
+}
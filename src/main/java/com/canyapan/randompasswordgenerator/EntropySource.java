@@ -0,0 +1,33 @@
+/*
+ * Copyright 2015 CAN YAPAN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.canyapan.randompasswordgenerator;
+
+/**
+ * Source of the random bytes passwords are made of.
+ * Generators pull bytes in blocks, so implementations are called rarely but must be safe to call from any thread.
+ *
+ * @see EntropySources
+ */
+public interface EntropySource {
+
+    /**
+     * Fills the given array with random bytes.
+     *
+     * @param bytes array to fill.
+     */
+    void nextBytes(byte[] bytes);
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2015 CAN YAPAN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.canyapan.randompasswordgenerator;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Random;
+
+/**
+ * Ready made {@link EntropySource} implementations.
+ */
+public final class EntropySources {
+
+    private EntropySources() {
+    }
+
+    /**
+     * One SecureRandom shared by every thread. This is the default.
+     *
+     * @return a new source.
+     */
+    public static EntropySource secureRandom() {
+        return secureRandom(new SecureRandom());
+    }
+
+    /**
+     * Wraps the given SecureRandom.
+     *
+     * @param random random to draw bytes from.
+     * @return a new source.
+     */
+    public static EntropySource secureRandom(SecureRandom random) {
+        return new RandomSource(random);
+    }
+
+    /**
+     * One SecureRandom of the given algorithm shared by every thread, e.g. "DRBG", "NativePRNGNonBlocking" or "SHA1PRNG".
+     *
+     * @param algorithm SecureRandom algorithm name.
+     * @return a new source.
+     * @throws NoSuchAlgorithmException thrown when no provider supports the algorithm.
+     */
+    public static EntropySource secureRandom(String algorithm) throws NoSuchAlgorithmException {
+        return secureRandom(SecureRandom.getInstance(algorithm));
+    }
+
+    /**
+     * A fixed pool of SecureRandom instances, threads pick one by their id.
+     * Spreads the lock of SecureRandom over the stripes while keeping the number of instances bounded.
+     *
+     * @param stripes A value > 0, typically the number of cores.
+     * @return a new source.
+     */
+    public static EntropySource striped(int stripes) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("Stripe count should be greater than 0.");
+        }
+
+        return new StripedSource(stripes);
+    }
+
+    /**
+     * One SecureRandom per thread, nothing is shared between threads.
+     *
+     * @return a new source.
+     */
+    public static EntropySource threadLocal() {
+        return new ThreadLocalSource();
+    }
+
+    /**
+     * Deterministic source which repeats the same bytes for the same seed.
+     * Meant for tests only, the output is predictable.
+     *
+     * @param seed seed of the sequence.
+     * @return a new source.
+     */
+    public static EntropySource seeded(long seed) {
+        return new RandomSource(new Random(seed));
+    }
+
+    private static final class RandomSource implements EntropySource {
+        private final Random random;
+
+        private RandomSource(Random random) {
+            this.random = random;
+        }
+
+        public void nextBytes(byte[] bytes) {
+            random.nextBytes(bytes);
+        }
+    }
+
+    private static final class StripedSource implements EntropySource {
+        private final SecureRandom[] stripes;
+
+        private StripedSource(int stripes) {
+            this.stripes = new SecureRandom[stripes];
+            for (int i = 0; i < stripes; i++) {
+                this.stripes[i] = new SecureRandom();
+            }
+        }
+
+        public void nextBytes(byte[] bytes) {
+            stripes[(int) (Thread.currentThread().getId() % stripes.length)].nextBytes(bytes);
+        }
+    }
+
+    private static final class ThreadLocalSource implements EntropySource {
+        private final ThreadLocal<SecureRandom> randoms = new ThreadLocal<SecureRandom>() {
+            @Override
+            protected SecureRandom initialValue() {
+                return new SecureRandom();
+            }
+        };
+
+        public void nextBytes(byte[] bytes) {
+            randoms.get().nextBytes(bytes);
+        }
+    }
+}
@@ -0,0 +1,440 @@
+/*
+ * Copyright 2015 CAN YAPAN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.canyapan.randompasswordgenerator;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Meters a password while it is typed, keeping the counts of {@link PasswordMeter} up to date on every edit instead
+ * of metering the whole password again. {@link #score()} equals {@link PasswordMeter#check(CharSequence)} of the
+ * same text in the same default locale.
+ * <p>
+ * Character type counts, consecutive types and sequence windows are updated in O(1) per edit.
+ * The repeat increment of a character is the sum of its length / distance to every identical character. An edit
+ * adds or removes the pairs of the edited character, k of them for k identical characters, and the changed length
+ * only moves the quotients of distances dividing it by one. {@link #score()} then folds the increments in one pass.
+ * Passwords with non-ASCII characters rescan their sequences on score, as their lower case form depends on context,
+ * and non-ASCII characters find their previous identical one by scanning back.
+ * <p>
+ * Not thread-safe. {@link #clear()} wipes every copy of the password, arrays outgrown are wiped as they are replaced.
+ */
+public final class IncrementalPasswordMeter {
+    private static final int NONE = 0, UPPER_CASE = 1, LOWER_CASE = 2, NUMBER = 3, SYMBOL = 4;
+
+    private final boolean dotlessI = PasswordMeter.isDotlessILocale();
+    private final boolean lithuanian = "lt".equals(Locale.getDefault().getLanguage());
+
+    /* Every character typed, whitespace included, and the sequence bit of the window ending at it, -1 for none. */
+    private char[] text = new char[16];
+    private byte[] windows = new byte[16];
+    private int length;
+    private int nonAscii;
+    /* Characters which are not whitespace to Character.isWhitespace, the password is blank without them. */
+    private int nonBlank;
+
+    /* Characters without whitespace, their type, repeat increment and position of the previous identical one. */
+    private char[] characters = new char[16];
+    private byte[] types = new byte[16];
+    private int[] increments = new int[16];
+    private int[] previous = new int[16];
+    private int count;
+
+    /* Last position of every ASCII character. */
+    private final int[] lastAscii = new int[128];
+    /* Lower cased text of a password with non-ASCII characters, wiped after every score. */
+    private char[] lowerCase = new char[0];
+
+    /* Positions x with an identical character at x + d, per distance d. */
+    private int[][] pairs = new int[16][];
+    private int[] pairCounts = new int[16];
+
+    private final int[] typeCounts = new int[5];
+    private final int[] consecutiveCounts = new int[5];
+    private final int[] windowCounts = new int[64];
+
+    public IncrementalPasswordMeter() {
+        Arrays.fill(lastAscii, -1);
+    }
+
+    /**
+     * Appends a character to the end of the password.
+     *
+     * @param c character typed.
+     * @return object itself
+     */
+    public IncrementalPasswordMeter append(char c) {
+        if (length == text.length) {
+            text = grow(text);
+            windows = grow(windows);
+        }
+
+        text[length] = c;
+        windows[length] = (byte) (length >= 2 ? window(length) : -1);
+        if (windows[length] >= 0) {
+            windowCounts[windows[length]]++;
+        }
+        if (c >= 0x80) {
+            nonAscii++;
+        }
+        if (!Character.isWhitespace(c)) {
+            nonBlank++;
+        }
+        length++;
+
+        if (!PasswordMeter.isWhitespace(c)) {
+            add(c);
+        }
+
+        return this;
+    }
+
+    /**
+     * Appends every character of a text, e.g. a paste.
+     *
+     * @return object itself
+     */
+    public IncrementalPasswordMeter append(CharSequence chars) {
+        for (int i = 0; i < chars.length(); i++) {
+            append(chars.charAt(i));
+        }
+
+        return this;
+    }
+
+    /**
+     * Removes the last character, nothing happens when the password is empty.
+     *
+     * @return object itself
+     */
+    public IncrementalPasswordMeter deleteLast() {
+        if (length == 0) {
+            return this;
+        }
+
+        length--;
+        final char c = text[length];
+        if (windows[length] >= 0) {
+            windowCounts[windows[length]]--;
+        }
+        if (c >= 0x80) {
+            nonAscii--;
+        }
+        if (!Character.isWhitespace(c)) {
+            nonBlank--;
+        }
+        text[length] = '\0';
+        windows[length] = 0;
+
+        if (!PasswordMeter.isWhitespace(c)) {
+            remove();
+        }
+
+        return this;
+    }
+
+    /**
+     * Wipes the password.
+     */
+    public void clear() {
+        while (length > 0) {
+            deleteLast();
+        }
+    }
+
+    /**
+     * @return length of the password, whitespace included.
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Meters strength of the password typed so far.
+     *
+     * @return Strength in percent.
+     * @throws PasswordMeterException thrown when the password is blank.
+     */
+    public int score() throws PasswordMeterException {
+        if (nonBlank == 0) {
+            throw new PasswordMeterException("Password cannot be blank");
+        }
+
+        final int numbersAndSymbols = typeCounts[NUMBER] + typeCounts[SYMBOL];
+        int midChar = numbersAndSymbols;
+        if (isNumberOrSymbol(types[0])) {
+            midChar--;
+        }
+        if (count > 1 && isNumberOrSymbol(types[count - 1])) {
+            midChar--;
+        }
+
+        double repInc = 0d;
+        for (int a = 0, repChar = 0; a < count; a++) {
+            if (increments[a] > 0) {
+                repChar++;
+                repInc = PasswordMeter.addRepeat(repInc, increments[a], count - repChar);
+            }
+        }
+
+        long sequences = 0L;
+        if (nonAscii > 0) {
+            try {
+                final int lowerCaseLength = lowerCaseText();
+                sequences = PasswordMeter.findSequences(CharBuffer.wrap(text, 0, length), CharBuffer.wrap(lowerCase, 0, lowerCaseLength), false);
+            } finally {
+                Arrays.fill(lowerCase, '\0');
+            }
+        } else {
+            for (int bit = 0; bit < windowCounts.length; bit++) {
+                if (windowCounts[bit] > 0) {
+                    sequences |= 1L << bit;
+                }
+            }
+        }
+
+        return PasswordMeter.score(length, typeCounts[UPPER_CASE], typeCounts[LOWER_CASE], typeCounts[NUMBER], typeCounts[SYMBOL], midChar,
+                consecutiveCounts[UPPER_CASE], consecutiveCounts[LOWER_CASE], consecutiveCounts[NUMBER], repInc, sequences);
+    }
+
+    /**
+     * @return score and complexity of the password typed so far.
+     * @throws PasswordMeterException thrown when the password is blank.
+     */
+    public PasswordMeter.Result result() throws PasswordMeterException {
+        return new PasswordMeter.Result(score());
+    }
+
+    private void add(char c) {
+        if (count == characters.length) {
+            characters = grow(characters);
+            types = grow(types);
+            increments = grow(increments);
+            previous = grow(previous);
+            final int[][] grown = Arrays.copyOf(pairs, count * 2);
+            Arrays.fill(pairs, null);
+            pairs = grown;
+            pairCounts = grow(pairCounts);
+        }
+
+        final int a = count++;
+        final byte type = type(c);
+        characters[a] = c;
+        types[a] = type;
+        increments[a] = 0;
+        typeCounts[type]++;
+        if (type != NONE && a > 0 && types[a - 1] == type) {
+            consecutiveCounts[type]++;
+        }
+
+        /* the length grew to count, quotients of distances dividing it grew by one */
+        shiftQuotients(1);
+
+        previous[a] = last(c, a);
+        setLast(c, a);
+        for (int b = previous[a]; b >= 0; b = previous[b]) {
+            final int increment = count / (a - b);
+            increments[a] += increment;
+            increments[b] += increment;
+            addPair(a - b, b);
+        }
+    }
+
+    private void remove() {
+        final int a = count - 1;
+        final char c = characters[a];
+        final byte type = types[a];
+
+        for (int b = previous[a]; b >= 0; b = previous[b]) {
+            increments[b] -= count / (a - b);
+            /* pairs of the last character are the last ones of their distances */
+            pairs[a - b][--pairCounts[a - b]] = 0;
+        }
+        setLast(c, previous[a]);
+
+        shiftQuotients(-1);
+
+        typeCounts[type]--;
+        if (type != NONE && a > 0 && types[a - 1] == type) {
+            consecutiveCounts[type]--;
+        }
+        characters[a] = '\0';
+        types[a] = 0;
+        increments[a] = 0;
+        previous[a] = 0;
+        count--;
+    }
+
+    /**
+     * Moves the increments of every pair whose distance divides the current length.
+     */
+    private void shiftQuotients(int delta) {
+        for (int d = 1; d * d <= count; d++) {
+            if (count % d == 0) {
+                shiftQuotients(d, delta);
+                if (d * d != count) {
+                    shiftQuotients(count / d, delta);
+                }
+            }
+        }
+    }
+
+    private void shiftQuotients(int d, int delta) {
+        if (d >= pairCounts.length) {
+            return;
+        }
+
+        final int[] positions = pairs[d];
+        for (int i = 0; i < pairCounts[d]; i++) {
+            increments[positions[i]] += delta;
+            increments[positions[i] + d] += delta;
+        }
+    }
+
+    private void addPair(int d, int x) {
+        if (null == pairs[d]) {
+            pairs[d] = new int[4];
+        } else if (pairCounts[d] == pairs[d].length) {
+            pairs[d] = grow(pairs[d]);
+        }
+
+        pairs[d][pairCounts[d]++] = x;
+    }
+
+    /**
+     * @return position of the last c before position a, -1 for none.
+     */
+    private int last(char c, int a) {
+        if (c < 128) {
+            return lastAscii[c];
+        }
+
+        /* a map would keep boxed copies of the password */
+        for (int b = a - 1; b >= 0; b--) {
+            if (characters[b] == c) {
+                return b;
+            }
+        }
+
+        return -1;
+    }
+
+    private void setLast(char c, int position) {
+        if (c < 128) {
+            lastAscii[c] = position;
+        }
+    }
+
+    /**
+     * Lower cases the text into {@link #lowerCase} like {@link String#toLowerCase()} of the same locale, without a
+     * String copy of the password. Sequences are ASCII, so only the special cases which lower case to ASCII letters are
+     * kept; combining marks between a Turkish 'I' and its dot are not skipped.
+     *
+     * @return length of the lower cased text.
+     */
+    private int lowerCaseText() {
+        if (lowerCase.length < length * 3) {
+            lowerCase = new char[text.length * 3];
+        }
+
+        int n = 0;
+        for (int i = 0; i < length; ) {
+            final int c = Character.codePointAt(text, i, length);
+            i += Character.charCount(c);
+
+            if (c == '\u0130') {
+                lowerCase[n++] = 'i';
+                if (!dotlessI) {
+                    lowerCase[n++] = '\u0307';
+                }
+            } else if (dotlessI && c == 'I') {
+                if (i < length && text[i] == '\u0307') {
+                    lowerCase[n++] = 'i';
+                    i++;
+                } else {
+                    lowerCase[n++] = '\u0131';
+                }
+            } else if (lithuanian && (c == '\u00cc' || c == '\u00cd' || c == '\u0128')) {
+                lowerCase[n++] = 'i';
+                lowerCase[n++] = '\u0307';
+                lowerCase[n++] = c == '\u00cc' ? '\u0300' : c == '\u00cd' ? '\u0301' : '\u0303';
+            } else {
+                n += Character.toChars(Character.toLowerCase(c), lowerCase, n);
+            }
+        }
+
+        return n;
+    }
+
+    /**
+     * @return a copy twice as long, the array itself is wiped.
+     */
+    private static char[] grow(char[] array) {
+        final char[] grown = Arrays.copyOf(array, array.length * 2);
+        Arrays.fill(array, '\0');
+        return grown;
+    }
+
+    private static byte[] grow(byte[] array) {
+        final byte[] grown = Arrays.copyOf(array, array.length * 2);
+        Arrays.fill(array, (byte) 0);
+        return grown;
+    }
+
+    private static int[] grow(int[] array) {
+        final int[] grown = Arrays.copyOf(array, array.length * 2);
+        Arrays.fill(array, 0);
+        return grown;
+    }
+
+    /**
+     * @return sequence bit index of the lower cased window ending at index i, -1 for none.
+     */
+    private int window(int i) {
+        final long bit = PasswordMeter.sequenceBit(lowerCase(text[i - 2]), lowerCase(text[i - 1]), lowerCase(text[i]));
+
+        return bit == 0L ? -1 : Long.numberOfTrailingZeros(bit);
+    }
+
+    private char lowerCase(char c) {
+        if (c >= 'A' && c <= 'Z') {
+            return dotlessI && c == 'I' ? '\u0131' : (char) (c + ('a' - 'A'));
+        }
+
+        return c;
+    }
+
+    private static byte type(char c) {
+        if (c >= 'A' && c <= 'Z') {
+            return UPPER_CASE;
+        } else if (c >= 'a' && c <= 'z') {
+            return LOWER_CASE;
+        } else if (c >= '0' && c <= '9') {
+            return NUMBER;
+        } else if (c != '_') {
+            return SYMBOL;
+        }
+
+        return NONE;
+    }
+
+    private static boolean isNumberOrSymbol(byte type) {
+        return type == NUMBER || type == SYMBOL;
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2015 CAN YAPAN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.canyapan.randompasswordgenerator;
+
+/**
+ * Optional instrumentation of generators and the meter. Nothing is measured until a listener is installed;
+ * without one the cost is a single volatile read per call.
+ */
+public final class Instrumentation {
+    /* Read once per call by the instrumented code, null when instrumentation is disabled. */
+    static volatile InstrumentationListener listener;
+
+    private Instrumentation() {
+    }
+
+    /**
+     * Installs the listener of every generator and the meter, replacing the previous one.
+     *
+     * @param listener listener to install, null disables instrumentation.
+     */
+    public static void setListener(InstrumentationListener listener) {
+        Instrumentation.listener = listener;
+    }
+
+    public static InstrumentationListener getListener() {
+        return listener;
+    }
+}
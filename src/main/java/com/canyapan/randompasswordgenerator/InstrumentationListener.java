@@ -0,0 +1,63 @@
+/*
+ * Copyright 2015 CAN YAPAN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.canyapan.randompasswordgenerator;
+
+/**
+ * Receives generation and metering events once installed with {@link Instrumentation#setListener(InstrumentationListener)}.
+ * Methods are called synchronously on the generating or metering thread, so they should be quick, thread-safe and
+ * never throw.
+ *
+ * @see PasswordMetrics
+ */
+public interface InstrumentationListener {
+
+    /**
+     * Called after a generate call of a compiled generator.
+     *
+     * @param policy policy of the generator.
+     * @param count  number of passwords generated by the call.
+     * @param nanos  duration of the call.
+     */
+    void generated(PasswordPolicy policy, int count, long nanos);
+
+    /**
+     * Called right before the exception is thrown when a policy cannot be compiled, a {@link RandomPasswordGeneratorException},
+     * or when generated passwords keep being on its blocklist, an {@link IllegalStateException}.
+     */
+    void generationFailed(PasswordPolicy policy, Exception e);
+
+    /**
+     * Called when a generator pulls a block of random bytes from its {@link EntropySource}.
+     *
+     * @param bytes number of bytes pulled.
+     */
+    void entropyConsumed(int bytes);
+
+    /**
+     * Called after a password is metered, once per password of a batch.
+     *
+     * @param score strength in percent.
+     * @param nanos duration of metering.
+     */
+    void metered(int score, long nanos);
+
+    /**
+     * Called when a password cannot be metered, right before the exception is thrown.
+     */
+    void meterFailed(PasswordMeterException e);
+}
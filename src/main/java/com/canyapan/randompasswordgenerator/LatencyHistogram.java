@@ -0,0 +1,124 @@
+/*
+ * Copyright 2015 CAN YAPAN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.canyapan.randompasswordgenerator;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent histogram of durations in nanoseconds, laid out like an HDR histogram: every power of two is split
+ * into {@value #SUB_BUCKET_COUNT} linear buckets, so any recorded value is reported within 1/{@value #SUB_BUCKET_COUNT}
+ * of its real value. Buckets are striped counters, recording never blocks and costs the same whatever the value.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    /* Longest tracked duration, about 18 minutes, longer ones are counted as this. */
+    private static final long MAX_VALUE = (1L << 40) - 1;
+    private static final int BUCKET_COUNT = bucketOf(MAX_VALUE) + 1;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKET_COUNT];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0L);
+
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    private static int bucketOf(long value) {
+        if (value < 2 * SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+
+        final int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKET_COUNT + (int) (value >>> shift);
+    }
+
+    /**
+     * @return the largest value that falls into the bucket.
+     */
+    private static long highestValueOf(int bucket) {
+        final int shift = Math.max(0, bucket / SUB_BUCKET_COUNT - 1);
+        final long lowest = (long) (bucket - shift * SUB_BUCKET_COUNT) << shift;
+
+        return lowest + (1L << shift) - 1;
+    }
+
+    /**
+     * @param nanos a duration, negative ones are counted as 0.
+     */
+    public void record(long nanos) {
+        final long value = Math.min(Math.max(nanos, 0L), MAX_VALUE);
+        buckets[bucketOf(value)].increment();
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        final long n = count.sum();
+        return n == 0 ? 0 : sum.sum() / (double) n;
+    }
+
+    /**
+     * @param percentile a value between 0 and 100.
+     * @return the value below or at which the given percentage of recorded values fall, 0 when nothing is recorded.
+     */
+    public long getPercentile(double percentile) {
+        final long[] counts = new long[buckets.length];
+        long total = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = buckets[i].sum();
+            total += counts[i];
+        }
+
+        final long target = Math.max(1L, (long) Math.ceil(total * Math.min(Math.max(percentile, 0.0), 100.0) / 100.0));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return Math.min(highestValueOf(i), getMax());
+            }
+        }
+
+        return 0;
+    }
+
+    /**
+     * Clears recorded values. Values recorded concurrently may be partly kept.
+     */
+    public void reset() {
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+        count.reset();
+        sum.reset();
+        max.reset();
+    }
+}
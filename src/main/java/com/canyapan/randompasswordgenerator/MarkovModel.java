@@ -0,0 +1,319 @@
+/*
+ * Copyright 2015 CAN YAPAN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.canyapan.randompasswordgenerator;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Letter transitions of a language, the probability of every letter after the two before it, which makes
+ * {@link PronounceablePasswordGenerator} passwords pronounceable.
+ * <p>
+ * Models are trained offline from a corpus of words by {@link #build(Iterable, OutputStream)} into {@value #CONTEXTS}
+ * rows of 16-bit weights, 37 KB, small enough to ship as a class path resource. Reading a model compiles every row
+ * into an alias table, so a letter is drawn with two random indexes whatever its context.
+ * <p>
+ * An English model trained from about 3,400 common words ships with the library, see {@link #english()}.
+ * <p>
+ * Immutable and thread-safe.
+ */
+public final class MarkovModel {
+    private static final int LETTERS = 26;
+    /* Word start and the letters, before each of two letters. */
+    private static final int CONTEXTS = (LETTERS + 1) * (LETTERS + 1);
+    private static final int MAGIC = 0x5250474D;
+    private static final int VERSION = 1;
+    private static final int ORDER = 2;
+    private static final int MAX_WEIGHT = 0xFFFF;
+    private static final String ENGLISH = "english.markov";
+    /* Read on first use. */
+    private static MarkovModel english;
+
+    /* Weight of letter c after context x is weights[x * LETTERS + c], totals[x] is their sum. */
+    private final int[] weights;
+    private final int[] totals;
+    /* Alias table, column c of context x keeps c below thresholds[x * LETTERS + c] out of totals[x], else aliases. */
+    private final int[] thresholds;
+    private final byte[] aliases;
+
+    private MarkovModel(int[] weights) {
+        this.weights = weights;
+        this.totals = new int[CONTEXTS];
+        this.thresholds = new int[weights.length];
+        this.aliases = new byte[weights.length];
+
+        final int[] scaled = new int[LETTERS];
+        final int[] small = new int[LETTERS];
+        final int[] large = new int[LETTERS];
+        for (int x = 0; x < CONTEXTS; x++) {
+            final int row = x * LETTERS;
+            for (int c = 0; c < LETTERS; c++) {
+                totals[x] += weights[row + c];
+            }
+
+            /* Vose's alias method in integers, every column holds totals[x] so the probabilities are exact */
+            int smalls = 0, larges = 0;
+            for (int c = 0; c < LETTERS; c++) {
+                scaled[c] = weights[row + c] * LETTERS;
+                if (scaled[c] < totals[x]) {
+                    small[smalls++] = c;
+                } else {
+                    large[larges++] = c;
+                }
+            }
+
+            while (smalls > 0 && larges > 0) {
+                final int s = small[--smalls];
+                final int l = large[larges - 1];
+                thresholds[row + s] = scaled[s];
+                aliases[row + s] = (byte) l;
+                scaled[l] -= totals[x] - scaled[s];
+                if (scaled[l] < totals[x]) {
+                    larges--;
+                    small[smalls++] = l;
+                }
+            }
+
+            while (larges > 0) {
+                thresholds[row + large[--larges]] = totals[x];
+            }
+            while (smalls > 0) {
+                thresholds[row + small[--smalls]] = totals[x];
+            }
+        }
+    }
+
+    /**
+     * Reads a model written by {@link #build(Iterable, OutputStream)}, e.g. from a class path resource.
+     *
+     * @param in stream of the model, not closed.
+     * @return the model.
+     * @throws IOException thrown when the stream cannot be read or is not a model.
+     */
+    public static MarkovModel read(InputStream in) throws IOException {
+        final DataInputStream data = new DataInputStream(in);
+        try {
+            if (data.readInt() != MAGIC || data.readInt() != VERSION || data.readInt() != LETTERS || data.readInt() != ORDER) {
+                throw new IOException("Not a Markov model.");
+            }
+
+            final int[] weights = new int[CONTEXTS * LETTERS];
+            for (int x = 0; x < CONTEXTS; x++) {
+                int total = 0;
+                for (int c = 0; c < LETTERS; c++) {
+                    weights[x * LETTERS + c] = data.readUnsignedShort();
+                    total += weights[x * LETTERS + c];
+                }
+
+                if (total == 0) {
+                    throw new IOException("Not a Markov model, a context has no letters.");
+                }
+            }
+
+            return new MarkovModel(weights);
+        } catch (EOFException e) {
+            throw new IOException("Not a Markov model, it is truncated.", e);
+        }
+    }
+
+    /**
+     * The model pronounceable passwords follow unless another one is set, read once from a class path resource.
+     *
+     * @return the English model.
+     * @throws IOException thrown when the resource cannot be read.
+     */
+    public static synchronized MarkovModel english() throws IOException {
+        if (null == english) {
+            final InputStream in = MarkovModel.class.getResourceAsStream(ENGLISH);
+            if (null == in) {
+                throw new IOException("Markov model resource " + ENGLISH + " is missing.");
+            }
+
+            try {
+                english = read(in);
+            } finally {
+                in.close();
+            }
+        }
+
+        return english;
+    }
+
+    /**
+     * Reads a model file written by {@link #build(Iterable, OutputStream)}.
+     *
+     * @param file model file.
+     * @return the model.
+     * @throws IOException thrown when the file cannot be read or is not a model.
+     */
+    public static MarkovModel open(Path file) throws IOException {
+        final InputStream in = Files.newInputStream(file);
+        try {
+            return read(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Trains a model from a corpus of words. Letters are counted case-insensitively and anything else ends a word.
+     * Every context takes the letters seen after its two letters, or after its last letter when those were never
+     * seen together, or anywhere at all, so nothing is smoothed into an unpronounceable pair.
+     *
+     * @param corpus words to learn from.
+     * @param out    stream the model is written to, not closed.
+     * @throws IOException              thrown when the model cannot be written.
+     * @throws IllegalArgumentException thrown when the corpus has no letters.
+     */
+    public static void build(Iterable<? extends CharSequence> corpus, OutputStream out) throws IOException {
+        final long[] trigrams = new long[CONTEXTS * LETTERS];
+        final long[] bigrams = new long[(LETTERS + 1) * LETTERS];
+        final long[] unigrams = new long[LETTERS];
+        long total = 0;
+
+        for (CharSequence text : corpus) {
+            int first = 0, second = 0;
+            for (int i = 0; i < text.length(); i++) {
+                final char c = Character.toLowerCase(text.charAt(i));
+                if (c < 'a' || c > 'z') {
+                    first = second = 0;
+                    continue;
+                }
+
+                trigrams[(first * (LETTERS + 1) + second) * LETTERS + c - 'a']++;
+                bigrams[second * LETTERS + c - 'a']++;
+                unigrams[c - 'a']++;
+                total++;
+                first = second;
+                second = c - 'a' + 1;
+            }
+        }
+
+        if (total == 0) {
+            throw new IllegalArgumentException("Corpus should have letters.");
+        }
+
+        final DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(LETTERS);
+        data.writeInt(ORDER);
+
+        for (int first = 0; first <= LETTERS; first++) {
+            for (int second = 0; second <= LETTERS; second++) {
+                long[] counts = trigrams;
+                int from = (first * (LETTERS + 1) + second) * LETTERS;
+                if (max(counts, from) == 0) {
+                    counts = bigrams;
+                    from = second * LETTERS;
+                }
+                if (max(counts, from) == 0) {
+                    counts = unigrams;
+                    from = 0;
+                }
+
+                /* scaled to 16 bits, letters which were seen keep a weight of at least 1 */
+                final long max = max(counts, from);
+                for (int c = 0; c < LETTERS; c++) {
+                    final long count = counts[from + c];
+                    data.writeShort(count == 0 ? 0 : (int) Math.max(1, count * MAX_WEIGHT / max));
+                }
+            }
+        }
+        data.flush();
+    }
+
+    private static long max(long[] counts, int from) {
+        long max = 0;
+        for (int c = 0; c < LETTERS; c++) {
+            max = Math.max(max, counts[from + c]);
+        }
+
+        return max;
+    }
+
+    /**
+     * Draws a letter after a context.
+     *
+     * @param context what {@link #next(int, int)} returned for the previous letter, 0 at the start.
+     * @return a letter index >= 0 and < 26.
+     */
+    int nextLetter(int context, RandomBlock block) {
+        final int column = context * LETTERS + block.nextIndex(LETTERS);
+
+        return block.nextIndex(totals[context]) < thresholds[column] ? column - context * LETTERS : aliases[column];
+    }
+
+    /**
+     * @return context of the letter after the given context and letter.
+     */
+    static int next(int context, int letter) {
+        return context % (LETTERS + 1) * (LETTERS + 1) + letter + 1;
+    }
+
+    /**
+     * Shannon entropy of a run of letters from the start, the expected bits of a password under this model.
+     *
+     * @param length number of letters.
+     * @return bits.
+     */
+    double entropy(int length) {
+        final double log2 = Math.log(2);
+        final double[] rows = new double[CONTEXTS];
+        for (int x = 0; x < CONTEXTS; x++) {
+            for (int c = 0; c < LETTERS; c++) {
+                final int w = weights[x * LETTERS + c];
+                if (w > 0) {
+                    rows[x] -= (double) w / totals[x] * Math.log((double) w / totals[x]) / log2;
+                }
+            }
+        }
+
+        /* probability of every context at each letter */
+        double[] probabilities = new double[CONTEXTS];
+        double[] following = new double[CONTEXTS];
+        probabilities[0] = 1d;
+        double bits = 0;
+        for (int i = 0; i < length; i++) {
+            Arrays.fill(following, 0d);
+            for (int x = 0; x < CONTEXTS; x++) {
+                if (probabilities[x] == 0) {
+                    continue;
+                }
+
+                bits += probabilities[x] * rows[x];
+                for (int c = 0; c < LETTERS; c++) {
+                    following[next(x, c)] += probabilities[x] * weights[x * LETTERS + c] / totals[x];
+                }
+            }
+
+            final double[] tmp = probabilities;
+            probabilities = following;
+            following = tmp;
+        }
+
+        return bits;
+    }
+}
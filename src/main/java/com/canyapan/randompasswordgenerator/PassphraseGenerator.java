@@ -0,0 +1,186 @@
+/*
+ * Copyright 2015 CAN YAPAN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.canyapan.randompasswordgenerator;
+
+import java.util.Arrays;
+
+/**
+ * Compiled form of a {@link RandomPassphraseGenerator}, words drawn uniformly from a {@link WordList}.
+ * Holds no mutable state, so one instance can be shared by any number of threads.
+ * Generating into a caller owned array allocates nothing.
+ */
+public final class PassphraseGenerator {
+    private static final char[] DIGITS = "0123456789".toCharArray();
+    private static final char[] SYMBOLS = "!@#$%^&*".toCharArray();
+    /* Random bytes drawn at once per thread. */
+    private static final int RANDOM_BLOCK_SIZE = 4096;
+
+    private final EntropySource entropySource;
+    private final ThreadLocal<ThreadState> threadStates = new ThreadLocal<ThreadState>() {
+        @Override
+        protected ThreadState initialValue() {
+            return new ThreadState(new RandomBlock(entropySource, RANDOM_BLOCK_SIZE), maxLength, minDigitCount + minSymbolCount);
+        }
+    };
+    private final WordList wordList;
+    private final int wordCount;
+    private final char[] separator;
+    private final RandomPassphraseGenerator.Capitalization capitalization;
+    private final int minDigitCount;
+    private final int minSymbolCount;
+    private final int maxLength;
+    private final double entropy;
+
+    PassphraseGenerator(RandomPassphraseGenerator generator) throws RandomPasswordGeneratorException {
+        if (null == generator.getWordList()) {
+            throw new RandomPasswordGeneratorException("A word list should be set.");
+        }
+
+        this.entropySource = generator.getEntropySource();
+        this.wordList = generator.getWordList();
+        this.wordCount = generator.getWordCount();
+        this.separator = generator.getSeparator().toCharArray();
+        this.capitalization = generator.getCapitalization();
+        this.minDigitCount = generator.getMinDigitCount();
+        this.minSymbolCount = generator.getMinSymbolCount();
+        this.maxLength = wordCount * wordList.getMaxLength() + (wordCount - 1) * separator.length + minDigitCount + minSymbolCount;
+
+        final double log2 = Math.log(2);
+        entropy = wordCount * wordList.getEntropy(capitalization)
+                + minDigitCount * Math.log(DIGITS.length) / log2
+                + minSymbolCount * Math.log(SYMBOLS.length) / log2;
+    }
+
+    /**
+     * Generates a passphrase. The String cannot be wiped, prefer {@link #generateInto(char[])} for secrets.
+     *
+     * @return a random passphrase.
+     */
+    public String generate() {
+        final ThreadState state = threadStates.get();
+        final int length = generate(state.scratch, 0, state);
+        final String result = new String(state.scratch, 0, length);
+        Arrays.fill(state.scratch, 0, length, '\0');
+
+        return result;
+    }
+
+    /**
+     * Generates a passphrase into a new array owned by the caller, who should wipe it after use.
+     *
+     * @return a random passphrase.
+     */
+    public char[] generateChars() {
+        final ThreadState state = threadStates.get();
+        final int length = generate(state.scratch, 0, state);
+        final char[] result = Arrays.copyOf(state.scratch, length);
+        Arrays.fill(state.scratch, 0, length, '\0');
+
+        return result;
+    }
+
+    /**
+     * Generates a passphrase into a caller owned array, nothing else keeps a copy of it.
+     *
+     * @param dest   destination array, at least {@link #getMaxLength()} long from the offset.
+     * @param offset index of the first character.
+     * @return length of the passphrase.
+     */
+    public int generateInto(char[] dest, int offset) {
+        if (offset < 0 || offset + (long) maxLength > dest.length) {
+            throw new IndexOutOfBoundsException("Destination cannot hold " + maxLength + " characters from offset " + offset + ".");
+        }
+
+        return generate(dest, offset, threadStates.get());
+    }
+
+    private int generate(char[] dest, int offset, ThreadState state) {
+        final RandomBlock block = state.block;
+
+        /* every digit and symbol is appended to a random word */
+        final int sprinkles = minDigitCount + minSymbolCount;
+        for (int s = 0; s < sprinkles; s++) {
+            state.targets[s] = block.nextIndex(wordCount);
+            state.sprinkles[s] = s < minDigitCount ? DIGITS[block.nextIndex(DIGITS.length)] : SYMBOLS[block.nextIndex(SYMBOLS.length)];
+        }
+
+        int at = offset;
+        for (int w = 0; w < wordCount; w++) {
+            if (w > 0) {
+                System.arraycopy(separator, 0, dest, at, separator.length);
+                at += separator.length;
+            }
+
+            final int start = at;
+            at = wordList.copy(block.nextIndex(wordList.size()), dest, at);
+            if (capitalization == RandomPassphraseGenerator.Capitalization.WORDS
+                    || (capitalization == RandomPassphraseGenerator.Capitalization.RANDOM && block.nextIndex(2) == 1)) {
+                dest[start] = Character.toUpperCase(dest[start]);
+            }
+
+            for (int s = 0; s < sprinkles; s++) {
+                if (state.targets[s] == w) {
+                    dest[at++] = state.sprinkles[s];
+                }
+            }
+        }
+
+        Arrays.fill(state.sprinkles, '\0');
+
+        return at - offset;
+    }
+
+    /**
+     * @return length of the longest possible passphrase.
+     */
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    /**
+     * Bits of entropy of a passphrase: the words, up to one bit more per word when words are capitalized at random,
+     * and the digits and symbols but not the words they are appended to. Capitalization counts only where it changes
+     * a word into one which is not produced otherwise.
+     *
+     * @return log2 of the number of equally likely passphrases, or a lower bound of it.
+     */
+    public double getEntropy() {
+        return entropy;
+    }
+
+    public WordList getWordList() {
+        return wordList;
+    }
+
+    /**
+     * Per thread random block and scratch buffers, the scratch buffers are wiped after every use.
+     */
+    private static final class ThreadState {
+        private final RandomBlock block;
+        private final char[] scratch;
+        private final int[] targets;
+        private final char[] sprinkles;
+
+        private ThreadState(RandomBlock block, int maxLength, int sprinkles) {
+            this.block = block;
+            this.scratch = new char[maxLength];
+            this.targets = new int[sprinkles];
+            this.sprinkles = new char[sprinkles];
+        }
+    }
+}
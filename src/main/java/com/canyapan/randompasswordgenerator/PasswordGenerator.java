@@ -0,0 +1,622 @@
+/*
+ * Copyright 2015 CAN YAPAN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.canyapan.randompasswordgenerator;
+
+import com.canyapan.randompasswordgenerator.RandomPasswordGenerator.CharacterType;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Compiled form of a {@link PasswordPolicy}.
+ * Holds no mutable state, so one instance can be shared by any number of threads.
+ */
+public final class PasswordGenerator {
+    private static final char[] UNAMBIGUOUS_LOWER_CASE_CHARACTERS = "abcdefghjkmnpqrstuvwxyz".toCharArray();
+    private static final char[] UNAMBIGUOUS_UPPER_CASE_CHARACTERS = "ABCDEFGHJKMNPQRSTUVWXYZ".toCharArray();
+    private static final char[] UNAMBIGUOUS_DIGITS = "23456789".toCharArray();
+    private static final char[] LOWER_CASE_CHARACTERS = "abcdefghjkmnpqrstuvwxyzilo".toCharArray();
+    private static final char[] UPPER_CASE_CHARACTERS = "ABCDEFGHJKMNPQRSTUVWXYZILO".toCharArray();
+    private static final char[] DIGITS = "2345678910".toCharArray();
+    private static final char[] SYMBOLS = "!@#$%^&*".toCharArray();
+
+    /* Random bytes drawn at once per thread, enough for a few hundred passwords of 16 characters. */
+    private static final int RANDOM_BLOCK_SIZE = 4096;
+    /* Passwords staged at once when the destination buffer has no accessible array. */
+    private static final int STAGING_PASSWORD_COUNT = 64;
+    /* Draws of a password which are all on the blocklist before giving up. */
+    private static final int MAX_BLOCKLIST_ATTEMPTS = 1000;
+    /* Longest array every VM can allocate. */
+    private static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+
+    private final PasswordPolicy policy;
+    private final EntropySource entropySource;
+    /* Passwords redrawn when generated, null for none. */
+    private final Blocklist blocklist;
+    /* Every thread consumes its own buffered block, so the entropy source is only touched once per block. */
+    private final ThreadLocal<ThreadState> threadStates = new ThreadLocal<ThreadState>() {
+        @Override
+        protected ThreadState initialValue() {
+            return new ThreadState(new RandomBlock(entropySource, RANDOM_BLOCK_SIZE));
+        }
+    };
+    /* Character table of every slot: required characters first, then the rest. */
+    private final char[][] slotCharsets;
+    /* Number of required slots, these are scattered to random positions of the password. */
+    private final int requiredCount;
+    /* Sampler of policies with count limits, null when there are none or minimum counts are too many to count. */
+    private final ConstrainedSampler sampler;
+    /* Bits of entropy of a password, computed once as every password of the policy needs it. */
+    private final double entropy;
+    /* Whether every character fits in a byte, byte buffers can only be written then. */
+    private final boolean ascii;
+
+    PasswordGenerator(PasswordPolicy policy, EntropySource entropySource) throws RandomPasswordGeneratorException {
+        final List<char[]> charsets = new ArrayList<char[]>();
+        final List<Integer> requiredCounts = new ArrayList<Integer>();
+        final List<Integer> maxCounts = new ArrayList<Integer>();
+        final ConstrainedSampler sampler;
+        try {
+            check(policy);
+            collect(policy, charsets, requiredCounts, maxCounts);
+            checkOverlaps(charsets);
+            sampler = compileSampler(policy, charsets, requiredCounts, maxCounts);
+        } catch (RandomPasswordGeneratorException e) {
+            final InstrumentationListener listener = Instrumentation.listener;
+            if (null != listener) {
+                listener.generationFailed(policy, e);
+            }
+            throw e;
+        }
+
+        this.policy = policy;
+        this.entropySource = entropySource;
+        this.blocklist = policy.getBlocklist();
+
+        /* one flat table of every class, so a free slot costs one draw however many classes there are */
+        int size = 0;
+        for (char[] charset : charsets) {
+            size += charset.length;
+        }
+
+        final char[] allAvailableCharacters = new char[size];
+        boolean ascii = true;
+        int at = 0;
+        for (char[] charset : charsets) {
+            System.arraycopy(charset, 0, allAvailableCharacters, at, charset.length);
+            at += charset.length;
+        }
+        for (char c : allAvailableCharacters) {
+            ascii &= c < 0x80;
+        }
+        this.ascii = ascii;
+        this.sampler = sampler;
+
+        slotCharsets = new char[policy.getPasswordLength()][];
+        int i = 0;
+        for (int c = 0; c < charsets.size(); c++) {
+            i = fill(i, charsets.get(c), requiredCounts.get(c));
+        }
+        requiredCount = i;
+        fill(i, allAvailableCharacters, slotCharsets.length - i);
+
+        if (null != sampler) {
+            entropy = sampler.getEntropy();
+        } else {
+            /* the characters drawn, the positions of required characters only add to it */
+            double bits = 0d;
+            for (char[] charset : slotCharsets) {
+                bits += Math.log(charset.length) / Math.log(2);
+            }
+            entropy = bits;
+        }
+    }
+
+    /**
+     * Checks if the policy has enough knowledge to generate a password.
+     *
+     * @throws RandomPasswordGeneratorException thrown when there is a problem with inputs.
+     */
+    private static void check(PasswordPolicy policy) throws RandomPasswordGeneratorException {
+        if (!policy.getUseDigits() && !policy.getUseLowerCaseCharacters() && !policy.getUseUpperCaseCharacters() && !policy.getUseSymbols()
+                && policy.getCharacterClasses().isEmpty()) {
+            throw new RandomPasswordGeneratorException("At least one character set should be selected.");
+        }
+
+        int sum = getRequiredCount(policy, CharacterType.Digit)
+                + getRequiredCount(policy, CharacterType.LowerCase)
+                + getRequiredCount(policy, CharacterType.UpperCase)
+                + getRequiredCount(policy, CharacterType.Special);
+        for (CharacterClass characterClass : policy.getCharacterClasses()) {
+            sum += getRequiredCount(policy, characterClass);
+        }
+
+        if (policy.getPasswordLength() < sum) {
+            throw new RandomPasswordGeneratorException("Password length should be greater than sum of minimum character counts.");
+        }
+    }
+
+    /**
+     * Collects the table and the required count of every selected class, built-in ones first.
+     */
+    private static void collect(PasswordPolicy policy, List<char[]> charsets, List<Integer> requiredCounts, List<Integer> maxCounts) {
+        final boolean avoid = policy.getAvoidAmbiguousCharacters();
+        if (policy.getUseLowerCaseCharacters()) {
+            charsets.add(avoid ? UNAMBIGUOUS_LOWER_CASE_CHARACTERS : LOWER_CASE_CHARACTERS);
+            requiredCounts.add(getRequiredCount(policy, CharacterType.LowerCase));
+            maxCounts.add(policy.getMaxLowerCaseCharacterCount());
+        }
+
+        if (policy.getUseUpperCaseCharacters()) {
+            charsets.add(avoid ? UNAMBIGUOUS_UPPER_CASE_CHARACTERS : UPPER_CASE_CHARACTERS);
+            requiredCounts.add(getRequiredCount(policy, CharacterType.UpperCase));
+            maxCounts.add(policy.getMaxUpperCaseCharacterCount());
+        }
+
+        if (policy.getUseDigits()) {
+            charsets.add(avoid ? UNAMBIGUOUS_DIGITS : DIGITS);
+            requiredCounts.add(getRequiredCount(policy, CharacterType.Digit));
+            maxCounts.add(policy.getMaxDigitCount());
+        }
+
+        if (policy.getUseSymbols()) {
+            charsets.add(SYMBOLS);
+            requiredCounts.add(getRequiredCount(policy, CharacterType.Special));
+            maxCounts.add(policy.getMaxSymbolCount());
+        }
+
+        for (CharacterClass characterClass : policy.getCharacterClasses()) {
+            charsets.add(characterClass.toCharArray());
+            requiredCounts.add(getRequiredCount(policy, characterClass));
+            maxCounts.add(characterClass.getMaxCount());
+        }
+    }
+
+    /**
+     * Count limits are counted in a sampler, which draws every valid password equally likely so its entropy is exact.
+     * Minimum counts alone can also be met by placing required characters at random positions, which favours
+     * passwords with more characters of the required classes; that is the fallback when they are too many to count.
+     *
+     * @return the sampler, null when there are no count limits or only minimum counts too many to count.
+     * @throws RandomPasswordGeneratorException thrown when no password satisfies the counts.
+     */
+    private static ConstrainedSampler compileSampler(PasswordPolicy policy, List<char[]> charsets, List<Integer> requiredCounts,
+                                                     List<Integer> maxCounts) throws RandomPasswordGeneratorException {
+        boolean limited = policy.getMaxConsecutiveCharacters() > 0;
+        boolean required = false;
+        final int[] min = new int[charsets.size()];
+        final int[] max = new int[charsets.size()];
+        for (int k = 0; k < charsets.size(); k++) {
+            min[k] = requiredCounts.get(k);
+            max[k] = maxCounts.get(k);
+            limited |= max[k] > 0;
+            required |= min[k] > 0;
+
+            if (max[k] > 0 && max[k] < min[k]) {
+                throw new RandomPasswordGeneratorException("Maximum character counts should not be less than minimum character counts.");
+            }
+        }
+
+        if (!limited) {
+            if (!required) {
+                return null;
+            }
+
+            /* the length covers the minimum counts, so the sampler can only refuse them for being too many */
+            try {
+                return new ConstrainedSampler(charsets.toArray(new char[charsets.size()][]), min, max, 0, policy.getPasswordLength());
+            } catch (RandomPasswordGeneratorException e) {
+                return null;
+            }
+        }
+
+        return new ConstrainedSampler(charsets.toArray(new char[charsets.size()][]), min, max,
+                policy.getMaxConsecutiveCharacters(), policy.getPasswordLength());
+    }
+
+    /**
+     * A character in two classes would be counted for both and drawn more often than the others.
+     *
+     * @throws RandomPasswordGeneratorException thrown when two classes share a character.
+     */
+    private static void checkOverlaps(List<char[]> charsets) throws RandomPasswordGeneratorException {
+        final BitSet seen = new BitSet();
+        for (char[] charset : charsets) {
+            for (char c : charset) {
+                if (seen.get(c)) {
+                    throw new RandomPasswordGeneratorException("Character classes should not share characters: " + c);
+                }
+                seen.set(c);
+            }
+        }
+    }
+
+    private static int getRequiredCount(PasswordPolicy policy, CharacterClass characterClass) {
+        final int min = characterClass.getMinCount();
+
+        return policy.getForceEveryCharacterType() && min <= 0 ? 1 : min;
+    }
+
+    /**
+     * Minimum count of a character type, raised to 1 for selected types when every type is forced.
+     */
+    private static int getRequiredCount(PasswordPolicy policy, CharacterType type) {
+        final boolean use;
+        final int min;
+        switch (type) {
+            case LowerCase:
+                use = policy.getUseLowerCaseCharacters();
+                min = policy.getMinLowerCaseCharacterCount();
+                break;
+            case UpperCase:
+                use = policy.getUseUpperCaseCharacters();
+                min = policy.getMinUpperCaseCharacterCount();
+                break;
+            case Digit:
+                use = policy.getUseDigits();
+                min = policy.getMinDigitCount();
+                break;
+            case Special:
+                use = policy.getUseSymbols();
+                min = policy.getMinSymbolCount();
+                break;
+            case Any:
+            default:
+                return 0;
+        }
+
+        if (!use) {
+            return 0;
+        }
+
+        return policy.getForceEveryCharacterType() && min <= 0 ? 1 : min;
+    }
+
+    private int fill(int from, char[] charset, int count) {
+        Arrays.fill(slotCharsets, from, from + count, charset);
+
+        return from + count;
+    }
+
+    /**
+     * Generates a password with the compiled rules.
+     * The String cannot be wiped, prefer {@link #generateChars()} or {@link #generateInto(char[])} for secrets
+     * that should not outlive their use on the heap.
+     *
+     * @return a random password.
+     */
+    public String generate() {
+        final InstrumentationListener listener = Instrumentation.listener;
+        final long start = null == listener ? 0 : System.nanoTime();
+
+        final ThreadState state = threadStates.get();
+        final char[] password = state.scratch(slotCharsets.length);
+        generate(password, 0, state.block);
+        final String result = new String(password, 0, slotCharsets.length);
+        Arrays.fill(password, 0, slotCharsets.length, '\0');
+
+        if (null != listener) {
+            listener.generated(policy, 1, System.nanoTime() - start);
+        }
+
+        return result;
+    }
+
+    /**
+     * Generates a password into a new array owned by the caller, who should wipe it after use.
+     *
+     * @return a random password.
+     */
+    public char[] generateChars() {
+        final char[] password = new char[slotCharsets.length];
+        generate(password, 0, 1);
+
+        return password;
+    }
+
+    /**
+     * Generates a password into the beginning of a caller owned array, nothing else keeps a copy of it.
+     *
+     * @param dest destination array, at least {@link #getPasswordLength()} long.
+     * @return length of the password.
+     */
+    public int generateInto(char[] dest) {
+        generate(dest, 0, 1);
+
+        return slotCharsets.length;
+    }
+
+    /**
+     * Generates passwords back to back into one newly allocated array.
+     * Password {@code i} occupies {@code [i * getPasswordLength(), (i + 1) * getPasswordLength())}.
+     *
+     * @param count number of passwords to generate.
+     * @return packed passwords.
+     */
+    public char[] generate(int count) {
+        final char[] passwords = new char[packedLength(count)];
+        generate(passwords, 0, count);
+
+        return passwords;
+    }
+
+    /**
+     * Generates passwords back to back into a caller supplied array, each taking {@link #getPasswordLength()} characters.
+     * Allocates nothing, randomness comes from the calling thread's buffered block.
+     *
+     * @param dest   destination array.
+     * @param offset index of the first character of the first password.
+     * @param count  number of passwords to generate.
+     */
+    public void generate(char[] dest, int offset, int count) {
+        if (count < 0 || offset < 0 || offset + (long) count * slotCharsets.length > dest.length) {
+            throw new IndexOutOfBoundsException("Destination cannot hold " + count + " passwords from offset " + offset + ".");
+        }
+
+        final InstrumentationListener listener = Instrumentation.listener;
+        final long start = null == listener ? 0 : System.nanoTime();
+
+        final RandomBlock block = threadStates.get().block;
+        for (int p = 0; p < count; p++, offset += slotCharsets.length) {
+            generate(dest, offset, block);
+        }
+
+        if (null != listener) {
+            listener.generated(policy, count, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Generates passwords back to back into a buffer starting at its position, each taking {@link #getPasswordLength()} characters.
+     * The position of the buffer is advanced past the written passwords.
+     *
+     * @param dest  destination buffer.
+     * @param count number of passwords to generate.
+     */
+    public void generate(CharBuffer dest, int count) {
+        final int length = packedLength(count);
+        if (length > dest.remaining()) {
+            throw new BufferOverflowException();
+        }
+
+        if (dest.hasArray()) {
+            generate(dest.array(), dest.arrayOffset() + dest.position(), count);
+            dest.position(dest.position() + length);
+            return;
+        }
+
+        final InstrumentationListener listener = Instrumentation.listener;
+        final long start = null == listener ? 0 : System.nanoTime();
+        final int total = count;
+
+        final ThreadState state = threadStates.get();
+        final RandomBlock block = state.block;
+        final char[] staging = state.scratch(Math.min(count, STAGING_PASSWORD_COUNT) * slotCharsets.length);
+        while (count > 0) {
+            final int n = Math.min(count, STAGING_PASSWORD_COUNT);
+            for (int p = 0; p < n; p++) {
+                generate(staging, p * slotCharsets.length, block);
+            }
+
+            dest.put(staging, 0, n * slotCharsets.length);
+            count -= n;
+        }
+
+        Arrays.fill(staging, 0, Math.min(total, STAGING_PASSWORD_COUNT) * slotCharsets.length, '\0');
+
+        if (null != listener) {
+            listener.generated(policy, total, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Generates passwords back to back into a byte buffer starting at its position, as ASCII, each taking
+     * {@link #getPasswordLength()} bytes. Characters are written straight into the buffer, e.g. a direct buffer
+     * about to be written to a channel, with no intermediate copy.
+     * The position of the buffer is advanced past the written passwords.
+     *
+     * @param dest  destination buffer.
+     * @param count number of passwords to generate.
+     * @see PasswordSink
+     */
+    public void generate(ByteBuffer dest, int count) {
+        if (!ascii) {
+            throw new IllegalStateException("Policy has non-ASCII characters.");
+        }
+
+        final int length = packedLength(count);
+        if (length > dest.remaining()) {
+            throw new BufferOverflowException();
+        }
+
+        generate(dest, dest.position(), count, slotCharsets.length);
+        dest.position(dest.position() + length);
+    }
+
+    /**
+     * @return number of characters of count passwords back to back.
+     * @throws IllegalArgumentException thrown when count is negative or the passwords do not fit in an array.
+     */
+    private int packedLength(int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Count cannot be negative.");
+        }
+
+        final long length = (long) count * slotCharsets.length;
+        if (length > MAX_ARRAY_LENGTH) {
+            throw new IllegalArgumentException(count + " passwords of " + slotCharsets.length + " characters do not fit in an array.");
+        }
+
+        return (int) length;
+    }
+
+    /**
+     * Writes passwords at absolute indexes of a buffer, password p starting at {@code index + p * stride}.
+     * Bounds are checked by the caller.
+     */
+    void generate(ByteBuffer dest, int index, int count, int stride) {
+        final InstrumentationListener listener = Instrumentation.listener;
+        final long start = null == listener ? 0 : System.nanoTime();
+
+        final RandomBlock block = threadStates.get().block;
+        for (int p = 0; p < count; p++, index += stride) {
+            generate(dest, index, block);
+        }
+
+        if (null != listener) {
+            listener.generated(policy, count, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Same as {@link #draw(char[], int, RandomBlock)}, callers check every table is ASCII so characters fit in a byte.
+     */
+    private void generate(ByteBuffer dest, int index, RandomBlock block) {
+        draw(dest, index, block);
+        if (null != blocklist) {
+            for (int attempt = 1; blocklist.contains(dest, index, slotCharsets.length); attempt++) {
+                checkAttempts(attempt);
+                draw(dest, index, block);
+            }
+        }
+    }
+
+    private void draw(ByteBuffer dest, int index, RandomBlock block) {
+        if (null != sampler) {
+            sampler.generate(dest, index, block);
+            return;
+        }
+
+        final int length = slotCharsets.length;
+
+        if (0 == requiredCount) {
+            final char[] charset = slotCharsets[0];
+            for (int i = 0; i < length; i++) {
+                dest.put(index + i, (byte) charset[block.nextIndex(charset.length)]);
+            }
+            return;
+        }
+
+        final int[] positions = block.partialPermutation(length, requiredCount);
+        for (int i = 0; i < length; i++) {
+            final char[] charset = slotCharsets[i];
+            dest.put(index + positions[i], (byte) charset[block.nextIndex(charset.length)]);
+        }
+    }
+
+    /**
+     * Draws a password, again while it is on the blocklist. Redrawing keeps every other password equally likely.
+     */
+    private void generate(char[] dest, int offset, RandomBlock block) {
+        draw(dest, offset, block);
+        if (null != blocklist) {
+            for (int attempt = 1; blocklist.contains(dest, offset, slotCharsets.length); attempt++) {
+                checkAttempts(attempt);
+                draw(dest, offset, block);
+            }
+        }
+    }
+
+    private void checkAttempts(int attempt) {
+        if (attempt >= MAX_BLOCKLIST_ATTEMPTS) {
+            final IllegalStateException e = new IllegalStateException("Generated passwords keep being on the blocklist, the policy allows too few passwords.");
+            final InstrumentationListener listener = Instrumentation.listener;
+            if (null != listener) {
+                listener.generationFailed(policy, e);
+            }
+            throw e;
+        }
+    }
+
+    private void draw(char[] dest, int offset, RandomBlock block) {
+        if (null != sampler) {
+            sampler.generate(dest, offset, block);
+            return;
+        }
+
+        final int length = slotCharsets.length;
+
+        if (0 == requiredCount) {
+            final char[] charset = slotCharsets[0];
+            for (int i = 0; i < length; i++) {
+                dest[offset + i] = charset[block.nextIndex(charset.length)];
+            }
+            return;
+        }
+
+        /*
+         * Only the required slots need random positions, the rest are independent draws from the same table,
+         * so a partial shuffle gives the same distribution as shuffling the whole password.
+         */
+        final int[] positions = block.partialPermutation(length, requiredCount);
+        for (int i = 0; i < length; i++) {
+            final char[] charset = slotCharsets[i];
+            dest[offset + positions[i]] = charset[block.nextIndex(charset.length)];
+        }
+    }
+
+    public int getPasswordLength() {
+        return slotCharsets.length;
+    }
+
+    public PasswordPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Bits of entropy of a generated password. Exact, as every valid password is equally likely, unless minimum counts
+     * are too many to count; then it is a lower bound counting the characters drawn but not the random positions of
+     * required characters. Passwords on a blocklist are not subtracted.
+     *
+     * @return log2 of the number of equally likely passwords.
+     */
+    public double getEntropy() {
+        return entropy;
+    }
+
+    /**
+     * @return true when every password is ASCII, so it can be written to byte buffers.
+     */
+    public boolean isAscii() {
+        return ascii;
+    }
+
+    /**
+     * Per thread random block and scratch buffer, the scratch buffer is wiped after every use.
+     */
+    private static final class ThreadState {
+        private final RandomBlock block;
+        private char[] scratch = new char[0];
+
+        private ThreadState(RandomBlock block) {
+            this.block = block;
+        }
+
+        private char[] scratch(int size) {
+            if (scratch.length < size) {
+                scratch = new char[size];
+            }
+
+            return scratch;
+        }
+    }
+}
@@ -16,10 +16,34 @@
 
 package com.canyapan.randompasswordgenerator;
 
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
 /**
  * This algorithm was originally published in javascript on http://www.passwordmeter.com/
  */
 public class PasswordMeter {
+    /*
+    Every 3 character sequence, forward or reverse, is identified by its middle character, which is unique across
+    all of them. SEQUENCE_BITS maps a middle character to the bit of its sequence, SEQUENCE_ENDS to its two ends.
+    Bits 0-22 are alpha, 23-30 numeric and 31-38 symbol sequences.
+    */
+    private static final long[] SEQUENCE_BITS = new long[128];
+    private static final char[][] SEQUENCE_ENDS = new char[128][];
+    private static final long ALPHA_SEQUENCES = register("abcdefghijklmnopqrstuvwxyz", 23, 0);
+    private static final long NUMERIC_SEQUENCES = register("01234567890", 8, 23);
+    private static final long SYMBOL_SEQUENCES = register(")!@#$%^&*()", 8, 31);
+    /* Up to this length repeats are found by comparing every pair of characters, which allocates nothing. */
+    private static final int PAIRWISE_REPEAT_LIMIT = 64;
+    /* Batches are split until a task meters at most this many passwords. */
+    private static final int BATCH_SPLIT_THRESHOLD = 512;
+    /* Iterated passwords are metered this many at a time, only two chunks are held at once. */
+    private static final int BATCH_CHUNK_SIZE = 1 << 16;
 
     /**
      * Meters strength of a given password.
@@ -28,43 +52,198 @@ public class PasswordMeter {
      * @return Strength in percent.
      */
     public static Result check(final String password) throws PasswordMeterException {
-        int score, uniqueCharacters, length,
-                requirements = 0, alphaUC = 0, alphaLC = 0, number = 0, symbol = 0, midChar = 0,
-                alphasOnly = 0, numbersOnly = 0, repChar = 0,
-                consecutiveAlphaUC = 0, consecutiveAlphaLC = 0, consecutiveNumber = 0, consecutiveSymbol = 0, consecutiveCharType = 0,
-                sequentialAlpha = 0, sequentialNumber = 0, sequentialSymbol = 0, sequentialChar = 0;
-        double repInc = 0d;
+        return check((CharSequence) password);
+    }
+
+    /**
+     * Meters strength of a password kept in an array, without copying it into a String.
+     *
+     * @param password A password to meter.
+     * @return Strength in percent.
+     */
+    public static Result check(final char[] password) throws PasswordMeterException {
+        return check(CharBuffer.wrap(password));
+    }
+
+    /**
+     * Meters strength of a given password without copying it into a String, e.g. a line decoded into a CharBuffer.
+     *
+     * @param password A password to meter.
+     * @return Strength in percent.
+     */
+    public static Result check(final CharSequence password) throws PasswordMeterException {
+        final InstrumentationListener listener = Instrumentation.listener;
+        if (isBlank(password)) {
+            final PasswordMeterException e = new PasswordMeterException("Password cannot be blank");
+            if (null != listener) {
+                listener.meterFailed(e);
+            }
+            throw e;
+        }
+
+        if (null == listener) {
+            return new Result(score(password));
+        }
+
+        final long start = System.nanoTime();
+        final int score = score(password);
+        listener.metered(score, System.nanoTime() - start);
+
+        return new Result(score);
+    }
+
+    /**
+     * Meters strength of a given password, passwords on the blocklist score 0 whatever they are made of.
+     *
+     * @param password  A password to meter.
+     * @param blocklist passwords known to attackers, e.g. of breach corpora.
+     * @return Strength in percent.
+     */
+    public static Result check(final CharSequence password, final Blocklist blocklist) throws PasswordMeterException {
+        final Result result = check(password);
+        if (blocklist.contains(password)) {
+            return new Result(0, true);
+        }
+
+        return result;
+    }
+
+    /**
+     * Meters strength of many passwords in parallel on the common fork/join pool.
+     *
+     * @param passwords Passwords to meter, blank and null entries are counted but not metered.
+     * @return scores and histograms of the batch.
+     */
+    public static BatchResult checkAll(final CharSequence[] passwords) {
+        return checkAll(passwords, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Meters strength of many passwords in parallel on the given pool.
+     *
+     * @param passwords Passwords to meter, blank and null entries are counted but not metered.
+     * @param pool      Pool to run on.
+     * @return scores and histograms of the batch.
+     */
+    public static BatchResult checkAll(final CharSequence[] passwords, final ForkJoinPool pool) {
+        final int[] scores = new int[passwords.length];
+        final long[] histogram = pool.invoke(new CheckTask(passwords, scores, 0, passwords.length, 0));
+
+        return new BatchResult(scores, histogram);
+    }
 
-        if (org.apache.commons.lang.StringUtils.isBlank(password)) {
-            throw new PasswordMeterException("Password cannot be blank");
+    /**
+     * Meters strength of many passwords in parallel on the common fork/join pool,
+     * e.g. {@code checkAll(list)} or {@code checkAll(stream::iterator)}.
+     *
+     * @param passwords Passwords to meter, blank and null entries are counted but not metered.
+     * @return scores, in iteration order, and histograms of the batch.
+     * @see #checkAll(Iterable, ForkJoinPool)
+     */
+    public static BatchResult checkAll(final Iterable<? extends CharSequence> passwords) {
+        return checkAll(passwords, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Meters strength of many passwords in parallel on the given pool. Passwords are metered in chunks while the next
+     * chunk is iterated, so only two chunks of passwords are referenced at once, however many are iterated.
+     *
+     * @param passwords Passwords to meter, blank and null entries are counted but not metered.
+     * @param pool      Pool to run on.
+     * @return scores, in iteration order, and histograms of the batch.
+     */
+    public static BatchResult checkAll(final Iterable<? extends CharSequence> passwords, final ForkJoinPool pool) {
+        final Iterator<? extends CharSequence> iterator = passwords.iterator();
+        final long[] histogram = new long[BatchResult.BLANK + 1];
+        CharSequence[] chunk = new CharSequence[BATCH_CHUNK_SIZE];
+        CharSequence[] next = new CharSequence[BATCH_CHUNK_SIZE];
+        int[] scores = new int[0];
+        int count = 0;
+
+        int length = fill(iterator, chunk);
+        while (length > 0) {
+            if (scores.length - count < length) {
+                scores = Arrays.copyOf(scores, Math.max(count + length, scores.length + (scores.length >> 1)));
+            }
+
+            final ForkJoinTask<long[]> task = pool.submit(new CheckTask(chunk, scores, 0, length, count));
+            final int nextLength = fill(iterator, next);
+            final long[] chunkHistogram = task.join();
+            for (int i = 0; i < histogram.length; i++) {
+                histogram[i] += chunkHistogram[i];
+            }
+
+            count += length;
+            final CharSequence[] metered = chunk;
+            chunk = next;
+            next = metered;
+            length = nextLength;
+        }
+
+        return new BatchResult(count == scores.length ? scores : Arrays.copyOf(scores, count), histogram);
+    }
+
+    /**
+     * Fills the chunk from the iterator, clearing the rest of it.
+     *
+     * @return number of passwords put in the chunk.
+     */
+    private static int fill(Iterator<? extends CharSequence> iterator, CharSequence[] chunk) {
+        int length = 0;
+        while (length < chunk.length && iterator.hasNext()) {
+            chunk[length++] = iterator.next();
         }
+        Arrays.fill(chunk, length, chunk.length, null);
 
-        final String alphas = "abcdefghijklmnopqrstuvwxyz";
-        final String numerics = "01234567890";
-        final String symbols = ")!@#$%^&*()";
+        return length;
+    }
+
+    /**
+     * Meters strength of a password which is not blank.
+     *
+     * @param password A password to meter.
+     * @return Strength in percent.
+     */
+    static int score(final CharSequence password) {
+        int length, alphaUC = 0, alphaLC = 0, number = 0, symbol = 0, midChar = 0,
+                consecutiveAlphaUC = 0, consecutiveAlphaLC = 0, consecutiveNumber = 0, consecutiveSymbol = 0, consecutiveCharType = 0;
 
         length = password.length();
-        String[] arrPwd = password.replaceAll("\\s+", "").split("\\s*");
-        int arrPwdLen = arrPwd.length;
+
+        /* Whitespace is not metered, arrPwdLen is the length without it. Non-ASCII passwords are lower cased the slow way. */
+        int arrPwdLen = 0;
+        boolean ascii = true;
+        for (int i = 0; i < length; i++) {
+            final char c = password.charAt(i);
+            if (!isWhitespace(c)) {
+                arrPwdLen++;
+            }
+            ascii &= c < 0x80;
+        }
 
         int tmpAlphaUC = -1, tmpAlphaLC = -1, tmpNumber = -1, tmpSymbol = -1;
         /* Loop through password to check for Symbol, Numeric, Lowercase and Uppercase pattern matches */
-        for (int a = 0; a < arrPwdLen; a++) {
-            if (arrPwd[a].matches("[A-Z]")) {
+        for (int i = 0, a = 0; i < length; i++) {
+            final char c = password.charAt(i);
+            if (isWhitespace(c)) {
+                continue;
+            }
+
+            if (c >= 'A' && c <= 'Z') {
                 if (tmpAlphaUC != -1 && (tmpAlphaUC + 1) == a) {
                     consecutiveAlphaUC++;
                     consecutiveCharType++;
                 }
                 tmpAlphaUC = a;
                 alphaUC++;
-            } else if (arrPwd[a].matches("[a-z]")) {
+            } else if (c >= 'a' && c <= 'z') {
                 if (tmpAlphaLC != -1 && (tmpAlphaLC + 1) == a) {
                     consecutiveAlphaLC++;
                     consecutiveCharType++;
                 }
                 tmpAlphaLC = a;
                 alphaLC++;
-            } else if (arrPwd[a].matches("[0-9]")) {
+            } else if (c >= '0' && c <= '9') {
                 if (a > 0 && a < (arrPwdLen - 1)) {
                     midChar++;
                 }
@@ -74,7 +253,7 @@ public class PasswordMeter {
                 }
                 tmpNumber = a;
                 number++;
-            } else if (arrPwd[a].matches("[^a-zA-Z0-9_]")) {
+            } else if (c != '_') {
                 if (a > 0 && a < (arrPwdLen - 1)) {
                     midChar++;
                 }
@@ -86,57 +265,39 @@ public class PasswordMeter {
                 symbol++;
             }
 
-            /* Internal loop through password to check for repeat characters */
-            boolean charExists = false;
-            for (int b = 0; b < arrPwdLen; b++) {
-                if (arrPwd[a].equals(arrPwd[b]) && a != b) { /* repeat character exists */
-                    charExists = true;
-                /*
-                Calculate increment deduction based on proximity to identical characters
-                Deduction is incremented each time a new match is discovered
-                Deduction amount is based on total password length divided by the
-                difference of distance between currently selected match
-                */
-                    repInc += Math.abs(arrPwdLen / (b - a));
-                }
-            }
-
-            if (charExists) {
-                repChar++;
-                uniqueCharacters = arrPwdLen - repChar;
-                repInc = uniqueCharacters > 0 ? Math.ceil(repInc / uniqueCharacters) : Math.ceil(repInc);
-            }
+            a++;
         }
 
-        /* Check for sequential alpha string patterns (forward and reverse) */
-        for (int s = 0; s < 23; s++) {
-            String fwd = alphas.substring(s, s + 3);
-            String rev = new StringBuilder(fwd).reverse().toString();
-            if (password.toLowerCase().contains(fwd) || password.toLowerCase().contains(rev)) {
-                sequentialAlpha++;
-                sequentialChar++;
-            }
-        }
+        final double repInc = repeatDeduction(password, arrPwdLen);
 
-        /* Check for sequential numeric string patterns (forward and reverse) */
-        for (int s = 0; s < 8; s++) {
-            String fwd = numerics.substring(s, s + 3);
-            String rev = new StringBuilder(fwd).reverse().toString();
-            if (password.toLowerCase().contains(fwd) || password.toLowerCase().contains(rev)) {
-                sequentialNumber++;
-                sequentialChar++;
-            }
-        }
+        /* Sequences are matched against the lower cased password, ASCII is lower cased on the fly */
+        final String lowerCase = ascii ? null : password.toString().toLowerCase();
+        final boolean dotlessI = ascii && isDotlessILocale();
 
-		    /* Check for sequential symbol string patterns (forward and reverse) */
-        for (int s = 0; s < 8; s++) {
-            String fwd = symbols.substring(s, s + 3);
-            String rev = new StringBuilder(fwd).reverse().toString();
-            if (password.toLowerCase().contains(fwd) || password.toLowerCase().contains(rev)) {
-                sequentialSymbol++;
-                sequentialChar++;
-            }
-        }
+        /* Check for sequential alpha, numeric and symbol string patterns (forward and reverse) */
+        final long sequences = findSequences(password, lowerCase, dotlessI);
+
+        return score(length, alphaUC, alphaLC, number, symbol, midChar, consecutiveAlphaUC, consecutiveAlphaLC, consecutiveNumber,
+                repInc, sequences);
+    }
+
+    /**
+     * Scores the counts collected from a password, shared by {@link #score(CharSequence)} and {@link IncrementalPasswordMeter}.
+     *
+     * @param length    length of the password, whitespace included.
+     * @param repInc    the repeat deduction.
+     * @param sequences bits of the sequences found.
+     * @return Strength in percent.
+     */
+    static int score(int length, int alphaUC, int alphaLC, int number, int symbol, int midChar,
+                     int consecutiveAlphaUC, int consecutiveAlphaLC, int consecutiveNumber, double repInc, long sequences) {
+        int score, requirements = 0, alphasOnly = 0, numbersOnly = 0,
+                sequentialAlpha, sequentialNumber, sequentialSymbol, sequentialChar;
+
+        sequentialAlpha = Long.bitCount(sequences & ALPHA_SEQUENCES);
+        sequentialNumber = Long.bitCount(sequences & NUMERIC_SEQUENCES);
+        sequentialSymbol = Long.bitCount(sequences & SYMBOL_SEQUENCES);
+        sequentialChar = sequentialAlpha + sequentialNumber + sequentialSymbol;
 
         final int multiplierMidChar = 2, multiplierConsecutiveAlphaUC = 2, multiplierConsecutiveAlphaLC = 2, multiplierConsecutiveNumber = 2,
                 multiplierSequentialAlpha = 3, multiplierSequentialNumber = 3, multiplierSequentialSymbol = 3,
@@ -171,7 +332,7 @@ public class PasswordMeter {
             score -= length;
             numbersOnly = length;
         }
-        if (repChar > 0) {  // Same character exists more than once
+        if (repInc > 0) {  // Same character exists more than once
             score -= repInc;
         }
         if (consecutiveAlphaUC > 0) {  // Consecutive Uppercase Letters exist
@@ -219,7 +380,7 @@ public class PasswordMeter {
             requirements++;
         }
 
-        int minimumRequirementsChars = password.length() >= minPwdLen ? 3 : 4;
+        int minimumRequirementsChars = length >= minPwdLen ? 3 : 4;
         if (requirements > minimumRequirementsChars) {  // One or more required characters exist
             score += requirements * 2;
         }
@@ -231,7 +392,326 @@ public class PasswordMeter {
             score = 0;
         }
 
-        return new Result(score);
+        return score;
+    }
+
+    /**
+     * Same as StringUtils.isBlank, for any character sequence.
+     */
+    static boolean isBlank(CharSequence password) {
+        if (null == password) {
+            return true;
+        }
+
+        for (int i = 0; i < password.length(); i++) {
+            if (!Character.isWhitespace(password.charAt(i))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Calculates the deduction for repeated characters.
+     * For every character (whitespace skipped) which exists more than once, in order, the deduction is increased by
+     * the password length divided by the distance to each of its identical characters, then divided by the count of
+     * unique characters left.
+     *
+     * @param password  password to meter.
+     * @param arrPwdLen length of the password without whitespace.
+     * @return the deduction, 0 when there are no repeated characters.
+     */
+    private static double repeatDeduction(CharSequence password, int arrPwdLen) {
+        final int[] increments = arrPwdLen <= PAIRWISE_REPEAT_LIMIT ? null : repeatIncrements(password, arrPwdLen);
+        final int length = password.length();
+
+        double repInc = 0d;
+        int repChar = 0;
+        for (int i = 0, a = 0; i < length; i++) {
+            final char c = password.charAt(i);
+            if (isWhitespace(c)) {
+                continue;
+            }
+
+            int increment = 0;
+            if (null != increments) {
+                increment = increments[a];
+            } else {
+                /* Internal loop through password to check for repeat characters */
+                for (int j = 0, b = 0; j < length; j++) {
+                    final char d = password.charAt(j);
+                    if (isWhitespace(d)) {
+                        continue;
+                    }
+
+                    if (c == d && a != b) { /* repeat character exists */
+                        increment += Math.abs(arrPwdLen / (b - a));
+                    }
+                    b++;
+                }
+            }
+
+            /*
+            Calculate increment deduction based on proximity to identical characters
+            Deduction is incremented each time a new match is discovered
+            Deduction amount is based on total password length divided by the
+            difference of distance between currently selected match
+            */
+            if (increment > 0) { /* repeat character exists */
+                repChar++;
+                repInc = addRepeat(repInc, increment, arrPwdLen - repChar);
+            }
+            a++;
+        }
+
+        return repInc;
+    }
+
+    /**
+     * Adds the increment of the next repeated character to the repeat deduction.
+     *
+     * @param uniqueCharacters count of unique characters left.
+     */
+    static double addRepeat(double repInc, int increment, int uniqueCharacters) {
+        repInc += increment;
+
+        return uniqueCharacters > 0 ? Math.ceil(repInc / uniqueCharacters) : Math.ceil(repInc);
+    }
+
+    /**
+     * Sums arrPwdLen / distance over the identical characters of every position (whitespace skipped).
+     * Positions are grouped per character by sorting, so unrelated characters are never compared.
+     * Characters repeated more than 2 * sqrt(n) times only walk their neighbours up to sqrt(n) apart; farther
+     * identical characters are counted per distinct quotient with a prefix count table, of which there are
+     * at most sqrt(n). That keeps the worst case, a single repeated character, at O(n * sqrt(n)).
+     */
+    private static int[] repeatIncrements(CharSequence password, int arrPwdLen) {
+        final int n = arrPwdLen, length = password.length();
+
+        /* character in the high half, position in the low half */
+        final long[] keys = new long[n];
+        for (int i = 0, a = 0; i < length; i++) {
+            final char c = password.charAt(i);
+            if (!isWhitespace(c)) {
+                keys[a] = ((long) c << 32) | a;
+                a++;
+            }
+        }
+        Arrays.sort(keys);
+
+        final int near = (int) Math.sqrt(n);
+        final int[] increments = new int[n];
+        int[] counts = null;
+        for (int from = 0, to; from < n; from = to) {
+            final long c = keys[from] >>> 32;
+            to = from + 1;
+            while (to < n && keys[to] >>> 32 == c) {
+                to++;
+            }
+
+            if (to - from <= 2 * near) {
+                for (int x = from; x < to; x++) {
+                    for (int y = x + 1; y < to; y++) {
+                        final int increment = n / ((int) keys[y] - (int) keys[x]);
+                        increments[(int) keys[x]] += increment;
+                        increments[(int) keys[y]] += increment;
+                    }
+                }
+                continue;
+            }
+
+            /* counts[p] is the number of identical characters before position p */
+            if (null == counts) {
+                counts = new int[n + 1];
+            } else {
+                Arrays.fill(counts, 0);
+            }
+            for (int x = from; x < to; x++) {
+                counts[(int) keys[x] + 1] = 1;
+            }
+            for (int p = 1; p <= n; p++) {
+                counts[p] += counts[p - 1];
+            }
+
+            for (int x = from; x < to; x++) {
+                final int p = (int) keys[x];
+                int increment = 0;
+
+                for (int y = x - 1; y >= from && p - (int) keys[y] <= near; y--) {
+                    increment += n / (p - (int) keys[y]);
+                }
+                for (int y = x + 1; y < to && (int) keys[y] - p <= near; y++) {
+                    increment += n / ((int) keys[y] - p);
+                }
+
+                /* every distance in [d0, d1] gives the same quotient */
+                for (int d0 = near + 1, d1; d0 < n; d0 = d1 + 1) {
+                    final int quotient = n / d0;
+                    d1 = Math.min(n - 1, n / quotient);
+
+                    final int matches = count(counts, p + d0, p + d1) + count(counts, p - d1, p - d0);
+                    increment += quotient * matches;
+                }
+
+                increments[p] = increment;
+            }
+        }
+
+        return increments;
+    }
+
+    /**
+     * Number of marked positions in [from, to] according to a prefix count table.
+     */
+    private static int count(int[] counts, int from, int to) {
+        from = Math.max(from, 0);
+        to = Math.min(to, counts.length - 2);
+
+        return from > to ? 0 : counts[to + 1] - counts[from];
+    }
+
+    /**
+     * Whitespace as matched by the regular expression \\s.
+     */
+    static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    /**
+     * Turkish and Azerbaijani lower case 'I' to dotless 'i', which is not part of any sequence.
+     */
+    static boolean isDotlessILocale() {
+        final String language = Locale.getDefault().getLanguage();
+
+        return "tr".equals(language) || "az".equals(language);
+    }
+
+    /**
+     * Character at the given index of the lower cased password.
+     *
+     * @param lowerCase lower cased password, or null to lower case the ASCII password on the fly.
+     */
+    static char lowerCaseAt(CharSequence password, CharSequence lowerCase, boolean dotlessI, int index) {
+        if (null != lowerCase) {
+            return lowerCase.charAt(index);
+        }
+
+        final char c = password.charAt(index);
+        if (c >= 'A' && c <= 'Z') {
+            return dotlessI && c == 'I' ? '\u0131' : (char) (c + ('a' - 'A'));
+        }
+
+        return c;
+    }
+
+    private static long register(String characters, int count, int firstBit) {
+        long bits = 0L;
+        for (int s = 0; s < count; s++) {
+            final char middle = characters.charAt(s + 1);
+            SEQUENCE_BITS[middle] = 1L << (firstBit + s);
+            SEQUENCE_ENDS[middle] = new char[]{characters.charAt(s), characters.charAt(s + 2)};
+            bits |= SEQUENCE_BITS[middle];
+        }
+
+        return bits;
+    }
+
+    /**
+     * @return bit of the sequence of a lower cased 3 character window, 0 when it is not one.
+     */
+    static long sequenceBit(char first, char middle, char last) {
+        if (middle < 128 && SEQUENCE_BITS[middle] != 0L) {
+            final char[] ends = SEQUENCE_ENDS[middle];
+            if ((first == ends[0] && last == ends[1]) || (first == ends[1] && last == ends[0])) {
+                return SEQUENCE_BITS[middle];
+            }
+        }
+
+        return 0L;
+    }
+
+    /**
+     * Finds every sequence present in the lower cased password with a single pass over its 3 character windows.
+     *
+     * @return bits of the sequences found.
+     */
+    static long findSequences(CharSequence password, CharSequence lowerCase, boolean dotlessI) {
+        final int length = null != lowerCase ? lowerCase.length() : password.length();
+        if (length < 3) {
+            return 0L;
+        }
+
+        long sequences = 0L;
+        char first = lowerCaseAt(password, lowerCase, dotlessI, 0);
+        char middle = lowerCaseAt(password, lowerCase, dotlessI, 1);
+        for (int i = 2; i < length; i++) {
+            final char last = lowerCaseAt(password, lowerCase, dotlessI, i);
+
+            sequences |= sequenceBit(first, middle, last);
+
+            first = middle;
+            middle = last;
+        }
+
+        return sequences;
+    }
+
+    /**
+     * Meters a range of a batch, splitting it in halves while it is larger than the threshold.
+     * Scores of the batch start at offset in scores.
+     * Returns the score histogram of the range with the blank count in the extra last slot.
+     */
+    private static final class CheckTask extends RecursiveTask<long[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final CharSequence[] passwords;
+        private final int[] scores;
+        private final int from, to, offset;
+
+        private CheckTask(CharSequence[] passwords, int[] scores, int from, int to, int offset) {
+            this.passwords = passwords;
+            this.scores = scores;
+            this.from = from;
+            this.to = to;
+            this.offset = offset;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from > BATCH_SPLIT_THRESHOLD) {
+                final int middle = (from + to) >>> 1;
+                final CheckTask left = new CheckTask(passwords, scores, from, middle, offset);
+                left.fork();
+                final long[] histogram = new CheckTask(passwords, scores, middle, to, offset).compute();
+                final long[] leftHistogram = left.join();
+                for (int i = 0; i < histogram.length; i++) {
+                    histogram[i] += leftHistogram[i];
+                }
+
+                return histogram;
+            }
+
+            final InstrumentationListener listener = Instrumentation.listener;
+            final long[] histogram = new long[BatchResult.BLANK + 1];
+            for (int i = from; i < to; i++) {
+                final int j = offset + i;
+                if (isBlank(passwords[i])) {
+                    scores[j] = -1;
+                    histogram[BatchResult.BLANK]++;
+                } else if (null == listener) {
+                    scores[j] = score(passwords[i]);
+                    histogram[scores[j]]++;
+                } else {
+                    final long start = System.nanoTime();
+                    scores[j] = score(passwords[i]);
+                    listener.metered(scores[j], System.nanoTime() - start);
+                    histogram[scores[j]]++;
+                }
+            }
+
+            return histogram;
+        }
     }
 
     public enum Complexity {
@@ -247,26 +727,41 @@ public class PasswordMeter {
         public String toString() {
             return text;
         }
-    }
-
-    public static class Result {
-        private final int score;
-        private Complexity complexity;
-
-        private Result(int score) {
-            this.score = score;
 
+        /**
+         * @param score Strength in percent.
+         * @return complexity of the score, null when it is out of range.
+         */
+        public static Complexity of(int score) {
             if (score >= 0 && score < 20) {
-                complexity = Complexity.TooWeak;
+                return TooWeak;
             } else if (score >= 20 && score < 40) {
-                complexity = Complexity.Weak;
+                return Weak;
             } else if (score >= 40 && score < 60) {
-                complexity = Complexity.Good;
+                return Good;
             } else if (score >= 60 && score < 80) {
-                complexity = Complexity.Strong;
+                return Strong;
             } else if (score >= 80 && score <= 100) {
-                complexity = Complexity.VeryStrong;
+                return VeryStrong;
             }
+
+            return null;
+        }
+    }
+
+    public static class Result {
+        private final int score;
+        private Complexity complexity;
+        private final boolean blocklisted;
+
+        Result(int score) {
+            this(score, false);
+        }
+
+        private Result(int score, boolean blocklisted) {
+            this.score = score;
+            this.complexity = Complexity.of(score);
+            this.blocklisted = blocklisted;
         }
 
         public int getScore() {
@@ -276,5 +771,70 @@ public class PasswordMeter {
         public Complexity getComplexity() {
             return complexity;
         }
+
+        /**
+         * @return true when the password is on the blocklist it was metered with.
+         */
+        public boolean isBlocklisted() {
+            return blocklisted;
+        }
+    }
+
+    /**
+     * Scores and histograms of a batch metered by {@link #checkAll(CharSequence[])}.
+     */
+    public static class BatchResult {
+        private static final int BLANK = 101;
+
+        private final int[] scores;
+        private final long[] scoreHistogram;
+        private final long[] complexityHistogram;
+        private final long blankCount;
+
+        private BatchResult(int[] scores, long[] histogram) {
+            this.scores = scores;
+            this.scoreHistogram = Arrays.copyOf(histogram, BLANK);
+            this.blankCount = histogram[BLANK];
+            this.complexityHistogram = new long[Complexity.values().length];
+            for (int score = 0; score < scoreHistogram.length; score++) {
+                complexityHistogram[Complexity.of(score).ordinal()] += scoreHistogram[score];
+            }
+        }
+
+        /**
+         * @return score of every password in batch order, -1 for blank ones.
+         */
+        public int[] getScores() {
+            return scores;
+        }
+
+        /**
+         * @return count of passwords per score, indexed by the score 0 to 100.
+         */
+        public long[] getScoreHistogram() {
+            return scoreHistogram;
+        }
+
+        /**
+         * @return count of passwords per complexity, indexed by {@link Complexity#ordinal()}.
+         */
+        public long[] getComplexityHistogram() {
+            return complexityHistogram;
+        }
+
+        public long getCount(Complexity complexity) {
+            return complexityHistogram[complexity.ordinal()];
+        }
+
+        public long getBlankCount() {
+            return blankCount;
+        }
+
+        /**
+         * @return count of metered passwords, blank ones excluded.
+         */
+        public long getMeteredCount() {
+            return scores.length - blankCount;
+        }
     }
 }
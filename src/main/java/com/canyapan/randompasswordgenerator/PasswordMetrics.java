@@ -0,0 +1,186 @@
+/*
+ * Copyright 2015 CAN YAPAN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.canyapan.randompasswordgenerator;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms of generation and metering, fed as an {@link InstrumentationListener}.
+ * <pre>
+ * PasswordMetrics metrics = new PasswordMetrics();
+ * Instrumentation.setListener(metrics);
+ * metrics.registerMBean();
+ * </pre>
+ * Generation latency is recorded per generate call, whatever the number of passwords it generates.
+ */
+public class PasswordMetrics implements InstrumentationListener, PasswordMetricsMXBean {
+    public static final String OBJECT_NAME = "com.canyapan.randompasswordgenerator:type=PasswordMetrics";
+    /* Distinct policies counted separately, passwords of any other policy only count in the total. */
+    private static final int MAX_POLICIES = 1024;
+
+    private final ConcurrentMap<PasswordPolicy, LongAdder> generatedByPolicy = new ConcurrentHashMap<PasswordPolicy, LongAdder>();
+    private final LongAdder generated = new LongAdder();
+    private final LongAdder generationFailures = new LongAdder();
+    private final LongAdder entropyBytes = new LongAdder();
+    private final LongAdder metered = new LongAdder();
+    private final LongAdder meterFailures = new LongAdder();
+    private final LatencyHistogram generateLatency = new LatencyHistogram();
+    private final LatencyHistogram checkLatency = new LatencyHistogram();
+
+    public void generated(PasswordPolicy policy, int count, long nanos) {
+        generated.add(count);
+        generateLatency.record(nanos);
+
+        LongAdder counter = generatedByPolicy.get(policy);
+        if (null == counter && generatedByPolicy.size() < MAX_POLICIES) {
+            final LongAdder created = new LongAdder();
+            counter = generatedByPolicy.putIfAbsent(policy, created);
+            if (null == counter) {
+                counter = created;
+            }
+        }
+
+        if (null != counter) {
+            counter.add(count);
+        }
+    }
+
+    public void generationFailed(PasswordPolicy policy, Exception e) {
+        generationFailures.increment();
+    }
+
+    public void entropyConsumed(int bytes) {
+        entropyBytes.add(bytes);
+    }
+
+    public void metered(int score, long nanos) {
+        metered.increment();
+        checkLatency.record(nanos);
+    }
+
+    public void meterFailed(PasswordMeterException e) {
+        meterFailures.increment();
+    }
+
+    /**
+     * Registers these metrics on the platform MBean server as {@value #OBJECT_NAME}.
+     */
+    public void registerMBean() throws JMException {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+    }
+
+    public void unregisterMBean() throws JMException {
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(OBJECT_NAME));
+    }
+
+    public long getGeneratedCount() {
+        return generated.sum();
+    }
+
+    /**
+     * @return count of generated passwords of the given policy.
+     */
+    public long getGeneratedCount(PasswordPolicy policy) {
+        final LongAdder counter = generatedByPolicy.get(policy);
+        return null == counter ? 0 : counter.sum();
+    }
+
+    public Map<String, Long> getGeneratedCountByPolicy() {
+        final Map<String, Long> counts = new TreeMap<String, Long>();
+        for (Map.Entry<PasswordPolicy, LongAdder> entry : generatedByPolicy.entrySet()) {
+            /* policies differing in their blocklist only print alike */
+            counts.merge(entry.getKey().toString(), entry.getValue().sum(), Long::sum);
+        }
+
+        return counts;
+    }
+
+    public long getGenerationFailureCount() {
+        return generationFailures.sum();
+    }
+
+    public long getEntropyBytesConsumed() {
+        return entropyBytes.sum();
+    }
+
+    public long getMeteredCount() {
+        return metered.sum();
+    }
+
+    public long getMeterFailureCount() {
+        return meterFailures.sum();
+    }
+
+    public LatencyHistogram getGenerateLatency() {
+        return generateLatency;
+    }
+
+    public LatencyHistogram getCheckLatency() {
+        return checkLatency;
+    }
+
+    public double getGenerateLatencyMeanNanos() {
+        return generateLatency.getMean();
+    }
+
+    public long getGenerateLatencyP50Nanos() {
+        return generateLatency.getPercentile(50);
+    }
+
+    public long getGenerateLatencyP99Nanos() {
+        return generateLatency.getPercentile(99);
+    }
+
+    public long getGenerateLatencyMaxNanos() {
+        return generateLatency.getMax();
+    }
+
+    public double getCheckLatencyMeanNanos() {
+        return checkLatency.getMean();
+    }
+
+    public long getCheckLatencyP50Nanos() {
+        return checkLatency.getPercentile(50);
+    }
+
+    public long getCheckLatencyP99Nanos() {
+        return checkLatency.getPercentile(99);
+    }
+
+    public long getCheckLatencyMaxNanos() {
+        return checkLatency.getMax();
+    }
+
+    public void reset() {
+        generatedByPolicy.clear();
+        generated.reset();
+        generationFailures.reset();
+        entropyBytes.reset();
+        metered.reset();
+        meterFailures.reset();
+        generateLatency.reset();
+        checkLatency.reset();
+    }
+}
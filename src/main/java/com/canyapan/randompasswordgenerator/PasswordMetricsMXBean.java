@@ -0,0 +1,58 @@
+/*
+ * Copyright 2015 CAN YAPAN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.canyapan.randompasswordgenerator;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link PasswordMetrics}, registered as {@value PasswordMetrics#OBJECT_NAME}.
+ */
+public interface PasswordMetricsMXBean {
+    long getGeneratedCount();
+
+    /**
+     * @return generated passwords per policy, keyed by {@link PasswordPolicy#toString()}; policies printed alike are summed.
+     */
+    Map<String, Long> getGeneratedCountByPolicy();
+
+    long getGenerationFailureCount();
+
+    long getEntropyBytesConsumed();
+
+    long getMeteredCount();
+
+    long getMeterFailureCount();
+
+    double getGenerateLatencyMeanNanos();
+
+    long getGenerateLatencyP50Nanos();
+
+    long getGenerateLatencyP99Nanos();
+
+    long getGenerateLatencyMaxNanos();
+
+    double getCheckLatencyMeanNanos();
+
+    long getCheckLatencyP50Nanos();
+
+    long getCheckLatencyP99Nanos();
+
+    long getCheckLatencyMaxNanos();
+
+    void reset();
+}
@@ -0,0 +1,281 @@
+/*
+ * Copyright 2015 CAN YAPAN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.canyapan.randompasswordgenerator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable snapshot of the rules configured on a {@link RandomPasswordGenerator}.
+ * Policies are safe to share between threads, compare and use as cache keys.
+ */
+public final class PasswordPolicy {
+    private final int passwordLength;
+    private final boolean useUpperCaseCharacters;
+    private final boolean useLowerCaseCharacters;
+    private final boolean useDigits;
+    private final boolean useSymbols;
+    private final boolean avoidAmbiguousCharacters;
+    private final boolean forceEveryCharacterType;
+    private final int minDigitCount;
+    private final int minLowerCaseCharacterCount;
+    private final int minUpperCaseCharacterCount;
+    private final int minSymbolCount;
+    private final int maxDigitCount;
+    private final int maxLowerCaseCharacterCount;
+    private final int maxUpperCaseCharacterCount;
+    private final int maxSymbolCount;
+    private final int maxConsecutiveCharacters;
+    private final List<CharacterClass> characterClasses;
+    private final Blocklist blocklist;
+
+    PasswordPolicy(RandomPasswordGenerator generator) {
+        passwordLength = generator.getPasswordLength();
+        useUpperCaseCharacters = generator.getUseUpperCaseCharacters();
+        useLowerCaseCharacters = generator.getUseLowerCaseCharacters();
+        useDigits = generator.getUseDigits();
+        useSymbols = generator.getUseSymbols();
+        avoidAmbiguousCharacters = generator.getAvoidAmbiguousCharacters();
+        forceEveryCharacterType = generator.getForceEveryCharacterType();
+        minDigitCount = generator.getMinDigitCount();
+        minLowerCaseCharacterCount = generator.getMinLowerCaseCharacterCount();
+        minUpperCaseCharacterCount = generator.getMinUpperCaseCharacterCount();
+        minSymbolCount = generator.getMinSymbolCount();
+        maxDigitCount = generator.getMaxDigitCount();
+        maxLowerCaseCharacterCount = generator.getMaxLowerCaseCharacterCount();
+        maxUpperCaseCharacterCount = generator.getMaxUpperCaseCharacterCount();
+        maxSymbolCount = generator.getMaxSymbolCount();
+        maxConsecutiveCharacters = generator.getMaxConsecutiveCharacters();
+        characterClasses = Collections.unmodifiableList(new ArrayList<CharacterClass>(generator.getCharacterClasses()));
+        blocklist = generator.getBlocklist();
+    }
+
+    /**
+     * Compiles this policy into a thread-safe generator backed by its own SecureRandom.
+     *
+     * @return a compiled generator which can be shared freely.
+     * @throws RandomPasswordGeneratorException thrown when the policy cannot produce a password.
+     */
+    public PasswordGenerator compile() throws RandomPasswordGeneratorException {
+        return compile(EntropySources.secureRandom());
+    }
+
+    /**
+     * Compiles this policy into a thread-safe generator backed by the given entropy source.
+     *
+     * @param entropySource source of random bytes.
+     * @return a compiled generator which can be shared freely.
+     * @throws RandomPasswordGeneratorException thrown when the policy cannot produce a password.
+     */
+    public PasswordGenerator compile(EntropySource entropySource) throws RandomPasswordGeneratorException {
+        return new PasswordGenerator(this, entropySource);
+    }
+
+    public int getPasswordLength() {
+        return passwordLength;
+    }
+
+    public boolean getUseUpperCaseCharacters() {
+        return useUpperCaseCharacters;
+    }
+
+    public boolean getUseLowerCaseCharacters() {
+        return useLowerCaseCharacters;
+    }
+
+    public boolean getUseDigits() {
+        return useDigits;
+    }
+
+    public boolean getUseSymbols() {
+        return useSymbols;
+    }
+
+    public boolean getAvoidAmbiguousCharacters() {
+        return avoidAmbiguousCharacters;
+    }
+
+    public boolean getForceEveryCharacterType() {
+        return forceEveryCharacterType;
+    }
+
+    public int getMinDigitCount() {
+        return minDigitCount;
+    }
+
+    public int getMinLowerCaseCharacterCount() {
+        return minLowerCaseCharacterCount;
+    }
+
+    public int getMinUpperCaseCharacterCount() {
+        return minUpperCaseCharacterCount;
+    }
+
+    public int getMinSymbolCount() {
+        return minSymbolCount;
+    }
+
+    public int getMaxDigitCount() {
+        return maxDigitCount;
+    }
+
+    public int getMaxLowerCaseCharacterCount() {
+        return maxLowerCaseCharacterCount;
+    }
+
+    public int getMaxUpperCaseCharacterCount() {
+        return maxUpperCaseCharacterCount;
+    }
+
+    public int getMaxSymbolCount() {
+        return maxSymbolCount;
+    }
+
+    public int getMaxConsecutiveCharacters() {
+        return maxConsecutiveCharacters;
+    }
+
+    /**
+     * @return custom character classes in the order they were added.
+     */
+    public List<CharacterClass> getCharacterClasses() {
+        return characterClasses;
+    }
+
+    /**
+     * @return passwords which are never generated, null for none.
+     */
+    public Blocklist getBlocklist() {
+        return blocklist;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+
+        if (!(o instanceof PasswordPolicy)) {
+            return false;
+        }
+
+        PasswordPolicy that = (PasswordPolicy) o;
+        return passwordLength == that.passwordLength
+                && useUpperCaseCharacters == that.useUpperCaseCharacters
+                && useLowerCaseCharacters == that.useLowerCaseCharacters
+                && useDigits == that.useDigits
+                && useSymbols == that.useSymbols
+                && avoidAmbiguousCharacters == that.avoidAmbiguousCharacters
+                && forceEveryCharacterType == that.forceEveryCharacterType
+                && minDigitCount == that.minDigitCount
+                && minLowerCaseCharacterCount == that.minLowerCaseCharacterCount
+                && minUpperCaseCharacterCount == that.minUpperCaseCharacterCount
+                && minSymbolCount == that.minSymbolCount
+                && maxDigitCount == that.maxDigitCount
+                && maxLowerCaseCharacterCount == that.maxLowerCaseCharacterCount
+                && maxUpperCaseCharacterCount == that.maxUpperCaseCharacterCount
+                && maxSymbolCount == that.maxSymbolCount
+                && maxConsecutiveCharacters == that.maxConsecutiveCharacters
+                && characterClasses.equals(that.characterClasses)
+                && blocklist == that.blocklist;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = passwordLength;
+        result = 31 * result + (useUpperCaseCharacters ? 1 : 0);
+        result = 31 * result + (useLowerCaseCharacters ? 1 : 0);
+        result = 31 * result + (useDigits ? 1 : 0);
+        result = 31 * result + (useSymbols ? 1 : 0);
+        result = 31 * result + (avoidAmbiguousCharacters ? 1 : 0);
+        result = 31 * result + (forceEveryCharacterType ? 1 : 0);
+        result = 31 * result + minDigitCount;
+        result = 31 * result + minLowerCaseCharacterCount;
+        result = 31 * result + minUpperCaseCharacterCount;
+        result = 31 * result + minSymbolCount;
+        result = 31 * result + maxDigitCount;
+        result = 31 * result + maxLowerCaseCharacterCount;
+        result = 31 * result + maxUpperCaseCharacterCount;
+        result = 31 * result + maxSymbolCount;
+        result = 31 * result + maxConsecutiveCharacters;
+        result = 31 * result + characterClasses.hashCode();
+        result = 31 * result + System.identityHashCode(blocklist);
+        return result;
+    }
+
+    /**
+     * @return the rules in short, e.g. {@code length=16,lower,upper,digits,minDigits=2,forceEvery}.
+     */
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("length=").append(passwordLength);
+        if (useLowerCaseCharacters) {
+            text.append(",lower");
+        }
+        if (useUpperCaseCharacters) {
+            text.append(",upper");
+        }
+        if (useDigits) {
+            text.append(",digits");
+        }
+        if (useSymbols) {
+            text.append(",symbols");
+        }
+        for (CharacterClass characterClass : characterClasses) {
+            text.append(',').append(characterClass);
+        }
+        if (minLowerCaseCharacterCount > 0) {
+            text.append(",minLower=").append(minLowerCaseCharacterCount);
+        }
+        if (minUpperCaseCharacterCount > 0) {
+            text.append(",minUpper=").append(minUpperCaseCharacterCount);
+        }
+        if (minDigitCount > 0) {
+            text.append(",minDigits=").append(minDigitCount);
+        }
+        if (minSymbolCount > 0) {
+            text.append(",minSymbols=").append(minSymbolCount);
+        }
+        if (maxLowerCaseCharacterCount > 0) {
+            text.append(",maxLower=").append(maxLowerCaseCharacterCount);
+        }
+        if (maxUpperCaseCharacterCount > 0) {
+            text.append(",maxUpper=").append(maxUpperCaseCharacterCount);
+        }
+        if (maxDigitCount > 0) {
+            text.append(",maxDigits=").append(maxDigitCount);
+        }
+        if (maxSymbolCount > 0) {
+            text.append(",maxSymbols=").append(maxSymbolCount);
+        }
+        if (maxConsecutiveCharacters > 0) {
+            text.append(",maxConsecutive=").append(maxConsecutiveCharacters);
+        }
+        if (avoidAmbiguousCharacters) {
+            text.append(",avoidAmbiguous");
+        }
+        if (forceEveryCharacterType) {
+            text.append(",forceEvery");
+        }
+        if (null != blocklist) {
+            text.append(",blocklist");
+        }
+
+        return text.toString();
+    }
+}
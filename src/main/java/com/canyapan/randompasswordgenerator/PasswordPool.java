@@ -0,0 +1,351 @@
+/*
+ * Copyright 2015 CAN YAPAN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.canyapan.randompasswordgenerator;
+
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded pool of pre-generated passwords of one compiled generator, so taking a password never waits for the
+ * entropy source. A background thread refills the pool up to its capacity whenever it drops below the low-water mark.
+ * <p>
+ * Passwords are handed over through a lock-free ring buffer (a bounded multi-producer multi-consumer queue with a
+ * sequence number per slot), so any number of threads can take concurrently. Taken passwords belong to the caller,
+ * who should wipe them after use; passwords still pooled are wiped when the pool is cleared or closed.
+ * <p>
+ * If the generator fails, e.g. because every password it draws is on the blocklist, the refill stops and takes fail
+ * with its exception once the pooled passwords run out.
+ */
+public final class PasswordPool implements Closeable {
+    /* The refill thread checks the level at least this often even if nobody wakes it up. */
+    private static final long REFILL_CHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final PasswordGenerator generator;
+    private final int capacity;
+    private final int lowWaterMark;
+    private final int mask;
+    private final char[][] slots;
+    /* Slot i is free for the producer at position p when its sequence is p, and holds a password for the consumer at p when it is p + 1. */
+    private final AtomicLongArray sequences;
+    private final AtomicLong enqueuePosition = new AtomicLong();
+    private final AtomicLong dequeuePosition = new AtomicLong();
+
+    private final Thread refiller;
+    private final Object waitLock = new Object();
+    private volatile int waiters;
+    private volatile boolean closed;
+    /* Thrown by the generator, the refill thread is gone. */
+    private volatile RuntimeException failure;
+    /* When the level first dropped below the low-water mark since the last refill, 0 when it did not. */
+    private final AtomicLong lowSince = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder refills = new LongAdder();
+    private final LatencyHistogram refillLag = new LatencyHistogram();
+
+    /**
+     * Creates a pool refilled when it is half empty, filling starts right away.
+     *
+     * @param generator generator of the pooled passwords.
+     * @param capacity  number of pooled passwords, rounded up to a power of two.
+     */
+    public PasswordPool(PasswordGenerator generator, int capacity) {
+        this(generator, capacity, -1);
+    }
+
+    /**
+     * Creates a pool, filling starts right away.
+     *
+     * @param generator    generator of the pooled passwords.
+     * @param capacity     number of pooled passwords, rounded up to a power of two.
+     * @param lowWaterMark the pool is refilled when fewer passwords than this are left, half of the capacity when negative.
+     */
+    public PasswordPool(PasswordGenerator generator, int capacity, int lowWaterMark) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity should be between 1 and 2^30.");
+        }
+
+        this.generator = generator;
+        this.capacity = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.lowWaterMark = lowWaterMark < 0 ? Math.max(1, this.capacity / 2) : Math.min(lowWaterMark, this.capacity);
+        this.mask = this.capacity - 1;
+        this.slots = new char[this.capacity][];
+        this.sequences = new AtomicLongArray(this.capacity);
+        for (int i = 0; i < this.capacity; i++) {
+            sequences.set(i, i);
+        }
+
+        refiller = new Thread(new Runnable() {
+            public void run() {
+                refill();
+            }
+        }, "password-pool-refill");
+        refiller.setDaemon(true);
+        refiller.start();
+    }
+
+    private boolean offer(char[] password) {
+        long position = enqueuePosition.get();
+        while (true) {
+            final int index = (int) position & mask;
+            final long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (enqueuePosition.compareAndSet(position, position + 1)) {
+                    slots[index] = password;
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = enqueuePosition.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = enqueuePosition.get();
+            }
+        }
+    }
+
+    private char[] poll() {
+        long position = dequeuePosition.get();
+        while (true) {
+            final int index = (int) position & mask;
+            final long difference = sequences.get(index) - (position + 1);
+            if (difference == 0) {
+                if (dequeuePosition.compareAndSet(position, position + 1)) {
+                    final char[] password = slots[index];
+                    slots[index] = null;
+                    sequences.set(index, position + capacity);
+                    return password;
+                }
+                position = dequeuePosition.get();
+            } else if (difference < 0) {
+                return null;
+            } else {
+                position = dequeuePosition.get();
+            }
+        }
+    }
+
+    private void refill() {
+        try {
+            refillUntilClosed();
+        } catch (RuntimeException e) {
+            failure = e;
+            synchronized (waitLock) {
+                waitLock.notifyAll();
+            }
+        }
+    }
+
+    private void refillUntilClosed() {
+        final int length = generator.getPasswordLength();
+        while (!closed) {
+            if (size() < lowWaterMark || lowSince.get() != 0) {
+                while (!closed && size() < capacity) {
+                    final char[] password = new char[length];
+                    generator.generate(password, 0, 1);
+                    if (!offer(password)) {
+                        Arrays.fill(password, '\0');
+                        break;
+                    }
+
+                    if (waiters > 0) {
+                        synchronized (waitLock) {
+                            waitLock.notifyAll();
+                        }
+                    }
+                }
+
+                refills.increment();
+                final long since = lowSince.getAndSet(0);
+                if (since != 0) {
+                    refillLag.record(System.nanoTime() - since);
+                }
+            }
+
+            LockSupport.parkNanos(this, REFILL_CHECK_NANOS);
+        }
+    }
+
+    private void taken() {
+        if (size() < lowWaterMark && lowSince.compareAndSet(0, System.nanoTime())) {
+            LockSupport.unpark(refiller);
+        }
+    }
+
+    private void checkFailure() {
+        final RuntimeException e = failure;
+        if (null != e) {
+            throw new IllegalStateException("Pool refill failed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Takes a pooled password without waiting.
+     *
+     * @return a password, or null when the pool is empty.
+     * @throws IllegalStateException thrown when the pool is empty and the refill failed.
+     */
+    public char[] tryTake() {
+        final char[] password = poll();
+        if (null == password) {
+            checkFailure();
+            misses.increment();
+            lowSince.compareAndSet(0, System.nanoTime());
+            LockSupport.unpark(refiller);
+            return null;
+        }
+
+        hits.increment();
+        taken();
+        return password;
+    }
+
+    /**
+     * Takes a pooled password, waiting for the refill when the pool is empty.
+     *
+     * @return a password.
+     * @throws IllegalStateException thrown when the pool is closed, or empty and the refill failed.
+     */
+    public char[] take() throws InterruptedException {
+        return take(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Takes a pooled password, waiting at most the given time for the refill when the pool is empty.
+     *
+     * @return a password, or null when none was available in time.
+     * @throws IllegalStateException thrown when the pool is closed, or empty and the refill failed.
+     */
+    public char[] take(long timeout, TimeUnit unit) throws InterruptedException {
+        char[] password = tryTake();
+        if (null != password) {
+            return password;
+        }
+
+        final long deadline = System.nanoTime() + Math.min(unit.toNanos(timeout), Long.MAX_VALUE / 2);
+        synchronized (waitLock) {
+            waiters++;
+            try {
+                while (null == (password = poll())) {
+                    if (closed) {
+                        throw new IllegalStateException("Pool is closed.");
+                    }
+                    checkFailure();
+
+                    final long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        return null;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(waitLock, remaining);
+                }
+            } finally {
+                waiters--;
+            }
+        }
+
+        taken();
+        return password;
+    }
+
+    /**
+     * Removes and wipes every pooled password, the pool is refilled afterwards.
+     */
+    public void clear() {
+        char[] password;
+        while (null != (password = poll())) {
+            Arrays.fill(password, '\0');
+        }
+    }
+
+    /**
+     * Stops the refill and wipes every pooled password. Threads waiting in {@link #take()} fail.
+     */
+    public void close() {
+        closed = true;
+        LockSupport.unpark(refiller);
+        boolean interrupted = false;
+        while (refiller.isAlive()) {
+            try {
+                refiller.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+
+        clear();
+        synchronized (waitLock) {
+            waitLock.notifyAll();
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return number of pooled passwords, approximate while other threads take or refill.
+     */
+    public int size() {
+        return (int) Math.max(0, Math.min(capacity, enqueuePosition.get() - dequeuePosition.get()));
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getLowWaterMark() {
+        return lowWaterMark;
+    }
+
+    /**
+     * @return number of takes served from the pool right away.
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return number of takes which found the pool empty.
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public double getHitRate() {
+        final long h = hits.sum();
+        final long total = h + misses.sum();
+        return total == 0 ? 1.0 : h / (double) total;
+    }
+
+    public long getRefillCount() {
+        return refills.sum();
+    }
+
+    /**
+     * @return time from the pool dropping below the low-water mark until it was full again, in nanoseconds.
+     */
+    public LatencyHistogram getRefillLag() {
+        return refillLag;
+    }
+}
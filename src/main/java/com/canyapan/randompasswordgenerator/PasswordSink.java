@@ -0,0 +1,165 @@
+/*
+ * Copyright 2015 CAN YAPAN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.canyapan.randompasswordgenerator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+
+/**
+ * Writes generated passwords as ASCII records straight into byte buffers and channels.
+ * A record is the password, preceded by its length as two big-endian bytes when length prefixed, followed by the separator.
+ * Passwords are generated directly into the destination buffer, so nothing but that buffer ever holds them.
+ * <pre>
+ * new PasswordSink(compiled).write(fileChannel, 10000000);
+ * new PasswordSink(compiled, "", PasswordSink.Framing.LENGTH_PREFIXED).write(directBuffer, 100);
+ * </pre>
+ * Sinks are immutable and can be shared between threads, each call uses its own buffer.
+ */
+public final class PasswordSink {
+    /* Size of the direct buffer channel writes go through, rounded down to whole records. */
+    private static final int CHANNEL_BUFFER_SIZE = 1 << 16;
+
+    public enum Framing {
+        /* Records are told apart by the separator only. */
+        NONE,
+        /* Every record starts with the password length as an unsigned 16 bit big-endian number. */
+        LENGTH_PREFIXED
+    }
+
+    private final PasswordGenerator generator;
+    private final byte[] separator;
+    private final Framing framing;
+    private final int prefixSize;
+    private final int recordSize;
+
+    /**
+     * Creates a sink of newline separated passwords.
+     */
+    public PasswordSink(PasswordGenerator generator) {
+        this(generator, "\n", Framing.NONE);
+    }
+
+    /**
+     * @param generator generator of the passwords, its policy should have ASCII characters only.
+     * @param separator ASCII text written after every record, may be empty.
+     * @param framing   framing of the records.
+     */
+    public PasswordSink(PasswordGenerator generator, String separator, Framing framing) {
+        if (!generator.isAscii()) {
+            throw new IllegalArgumentException("Generator should be ASCII.");
+        }
+
+        for (int i = 0; i < separator.length(); i++) {
+            if (separator.charAt(i) > 0x7F) {
+                throw new IllegalArgumentException("Separator should be ASCII.");
+            }
+        }
+
+        this.generator = generator;
+        this.separator = separator.getBytes(Charset.forName("US-ASCII"));
+        this.framing = framing;
+        this.prefixSize = framing == Framing.LENGTH_PREFIXED ? 2 : 0;
+        this.recordSize = prefixSize + generator.getPasswordLength() + this.separator.length;
+    }
+
+    /**
+     * @return bytes taken by every record.
+     */
+    public int getRecordSize() {
+        return recordSize;
+    }
+
+    /**
+     * Writes as many of the records as fit into the remaining space of the buffer, starting at its position.
+     * The position of the buffer is advanced past the written records.
+     *
+     * @param dest  destination buffer, preferably direct when it goes to a channel.
+     * @param count number of records wanted.
+     * @return number of records written.
+     */
+    public int write(ByteBuffer dest, int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Count cannot be negative.");
+        }
+
+        final int n = Math.min(count, dest.remaining() / recordSize);
+        final int start = dest.position();
+        final int length = generator.getPasswordLength();
+
+        /* Framing first, then the passwords into the gaps it left. */
+        for (int r = 0, index = start; r < n; r++, index += recordSize) {
+            if (prefixSize > 0) {
+                dest.put(index, (byte) (length >>> 8));
+                dest.put(index + 1, (byte) length);
+            }
+
+            for (int i = 0; i < separator.length; i++) {
+                dest.put(index + prefixSize + length + i, separator[i]);
+            }
+        }
+
+        generator.generate(dest, start + prefixSize, n, recordSize);
+        dest.position(start + n * recordSize);
+
+        return n;
+    }
+
+    /**
+     * Writes records to a channel through a direct buffer, which is wiped before returning.
+     *
+     * @param channel destination channel, e.g. a FileChannel or a SocketChannel in blocking mode.
+     * @param count   number of records.
+     */
+    public void write(WritableByteChannel channel, long count) throws IOException {
+        if (count < 0) {
+            throw new IllegalArgumentException("Count cannot be negative.");
+        }
+
+        final int perBuffer = Math.max(1, CHANNEL_BUFFER_SIZE / recordSize);
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(perBuffer * recordSize);
+        try {
+            while (count > 0) {
+                buffer.clear();
+                count -= write(buffer, (int) Math.min(count, perBuffer));
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+        } finally {
+            buffer.clear();
+            while (buffer.hasRemaining()) {
+                buffer.put((byte) 0);
+            }
+        }
+    }
+
+    public PasswordGenerator getGenerator() {
+        return generator;
+    }
+
+    public String getSeparator() {
+        return new String(separator, Charset.forName("US-ASCII"));
+    }
+
+    public Framing getFraming() {
+        return framing;
+    }
+}
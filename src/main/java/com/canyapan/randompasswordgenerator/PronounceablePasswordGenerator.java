@@ -0,0 +1,189 @@
+/*
+ * Copyright 2015 CAN YAPAN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.canyapan.randompasswordgenerator;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Compiled form of a {@link RandomPronounceablePasswordGenerator}, letters drawn from a {@link MarkovModel} with
+ * digits and symbols at random positions and random letters upper cased.
+ * Holds no mutable state, so one instance can be shared by any number of threads.
+ */
+public final class PronounceablePasswordGenerator {
+    private static final char[] DIGITS = "0123456789".toCharArray();
+    private static final char[] SYMBOLS = "!@#$%^&*".toCharArray();
+    /* Random bytes drawn at once per thread. */
+    private static final int RANDOM_BLOCK_SIZE = 4096;
+
+    private final EntropySource entropySource;
+    private final ThreadLocal<ThreadState> threadStates = new ThreadLocal<ThreadState>() {
+        @Override
+        protected ThreadState initialValue() {
+            return new ThreadState(new RandomBlock(entropySource, RANDOM_BLOCK_SIZE), passwordLength);
+        }
+    };
+    private final MarkovModel model;
+    private final int passwordLength;
+    private final int minDigitCount;
+    private final int minSymbolCount;
+    private final int minUpperCaseCharacterCount;
+    private final double entropy;
+
+    PronounceablePasswordGenerator(RandomPronounceablePasswordGenerator generator) throws RandomPasswordGeneratorException {
+        if (null == generator.getModel()) {
+            try {
+                this.model = MarkovModel.english();
+            } catch (IOException e) {
+                throw new RandomPasswordGeneratorException(e.getMessage(), e);
+            }
+        } else {
+            this.model = generator.getModel();
+        }
+
+        this.entropySource = generator.getEntropySource();
+        this.passwordLength = generator.getPasswordLength();
+        this.minDigitCount = generator.getMinDigitCount();
+        this.minSymbolCount = generator.getMinSymbolCount();
+        this.minUpperCaseCharacterCount = generator.getMinUpperCaseCharacterCount();
+
+        final int letters = passwordLength - minDigitCount - minSymbolCount;
+        if (letters < minUpperCaseCharacterCount) {
+            throw new RandomPasswordGeneratorException("Password length should be greater than sum of minimum character counts.");
+        }
+
+        /* which positions are digits, symbols, upper and lower case letters, what the digits and symbols are and the letters */
+        final double log2 = Math.log(2);
+        entropy = log2Factorial(passwordLength) - log2Factorial(minDigitCount) - log2Factorial(minSymbolCount)
+                - log2Factorial(minUpperCaseCharacterCount) - log2Factorial(letters - minUpperCaseCharacterCount)
+                + minDigitCount * Math.log(DIGITS.length) / log2
+                + minSymbolCount * Math.log(SYMBOLS.length) / log2
+                + model.entropy(letters);
+    }
+
+    private static double log2Factorial(int n) {
+        double bits = 0;
+        for (int i = 2; i <= n; i++) {
+            bits += Math.log(i) / Math.log(2);
+        }
+
+        return bits;
+    }
+
+    /**
+     * Generates a password. The String cannot be wiped, prefer {@link #generateInto(char[], int)} for secrets.
+     *
+     * @return a random pronounceable password.
+     */
+    public String generate() {
+        final ThreadState state = threadStates.get();
+        generate(state.scratch, 0, state);
+        final String result = new String(state.scratch);
+        Arrays.fill(state.scratch, '\0');
+
+        return result;
+    }
+
+    /**
+     * Generates a password into a new array owned by the caller, who should wipe it after use.
+     *
+     * @return a random pronounceable password.
+     */
+    public char[] generateChars() {
+        final char[] result = new char[passwordLength];
+        generate(result, 0, threadStates.get());
+
+        return result;
+    }
+
+    /**
+     * Generates a password into a caller owned array, nothing else keeps a copy of it.
+     *
+     * @param dest   destination array, at least {@link #getPasswordLength()} long from the offset.
+     * @param offset index of the first character.
+     */
+    public void generateInto(char[] dest, int offset) {
+        if (offset < 0 || offset + (long) passwordLength > dest.length) {
+            throw new IndexOutOfBoundsException("Destination cannot hold " + passwordLength + " characters from offset " + offset + ".");
+        }
+
+        generate(dest, offset, threadStates.get());
+    }
+
+    private void generate(char[] dest, int offset, ThreadState state) {
+        final RandomBlock block = state.block;
+
+        /* digits first and symbols next at random positions, letters everywhere else */
+        Arrays.fill(dest, offset, offset + passwordLength, '\0');
+        final int[] positions = block.partialPermutation(passwordLength, minDigitCount + minSymbolCount);
+        for (int i = 0; i < minDigitCount + minSymbolCount; i++) {
+            dest[offset + positions[i]] = i < minDigitCount ? DIGITS[block.nextIndex(DIGITS.length)] : SYMBOLS[block.nextIndex(SYMBOLS.length)];
+        }
+
+        int context = 0, letters = 0;
+        for (int i = offset; i < offset + passwordLength; i++) {
+            if (dest[i] == '\0') {
+                final int letter = model.nextLetter(context, block);
+                dest[i] = (char) ('a' + letter);
+                context = MarkovModel.next(context, letter);
+                state.letters[letters++] = i;
+            }
+        }
+
+        final int[] upper = block.partialPermutation(letters, minUpperCaseCharacterCount);
+        for (int i = 0; i < minUpperCaseCharacterCount; i++) {
+            dest[state.letters[upper[i]]] -= 'a' - 'A';
+        }
+
+        Arrays.fill(state.letters, 0);
+    }
+
+    public int getPasswordLength() {
+        return passwordLength;
+    }
+
+    /**
+     * Shannon entropy of a password: the positions and values of the digits and symbols, which letters are upper
+     * case, and the letters under the model. Letters are not equally likely, so guessing the likeliest passwords first
+     * takes fewer guesses than this suggests.
+     *
+     * @return expected bits of a password.
+     */
+    public double getEntropy() {
+        return entropy;
+    }
+
+    public MarkovModel getModel() {
+        return model;
+    }
+
+    /**
+     * Per thread random block and scratch buffers, the scratch buffers are wiped after every use.
+     */
+    private static final class ThreadState {
+        private final RandomBlock block;
+        private final char[] scratch;
+        private final int[] letters;
+
+        private ThreadState(RandomBlock block, int passwordLength) {
+            this.block = block;
+            this.scratch = new char[passwordLength];
+            this.letters = new int[passwordLength];
+        }
+    }
+}
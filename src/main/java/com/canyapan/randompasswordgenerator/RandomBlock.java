@@ -0,0 +1,141 @@
+/*
+ * Copyright 2015 CAN YAPAN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.canyapan.randompasswordgenerator;
+
+/**
+ * A buffer of random bytes refilled from an {@link EntropySource} in blocks and handed out as unbiased indexes.
+ * Not thread-safe, every thread should own its block.
+ * <p>
+ * Indexes are drawn by rejection sampling from a uniform value which is reused instead of thrown away: a value
+ * uniform in [0, range) yields an index uniform in [0, bound) and a quotient which is still uniform and independent,
+ * so the next draw continues with it. A draw costs close to log2(bound) bits of entropy, exactly that for powers of two.
+ */
+final class RandomBlock {
+    /* Bytes are appended to the value while its range is below this, keeping range * 256 within a long. */
+    private static final long MIN_RANGE = 1L << 40;
+
+    private final EntropySource entropySource;
+    private final byte[] bytes;
+    private int position;
+    /* value is uniformly distributed in [0, range). */
+    private long value;
+    private long range = 1L;
+    /* Scratch for partialPermutation. */
+    private int[] permutation = new int[0];
+
+    RandomBlock(EntropySource entropySource, int size) {
+        this.entropySource = entropySource;
+        this.bytes = new byte[size];
+        this.position = size;
+    }
+
+    /**
+     * Returns a uniformly distributed index.
+     * Values that fall into the incomplete last multiple of the bound are rejected so no index is favoured.
+     *
+     * @param bound A value > 0
+     * @return a value >= 0 and < bound
+     */
+    int nextIndex(int bound) {
+        while (true) {
+            while (range < MIN_RANGE) {
+                if (position == bytes.length) {
+                    entropySource.nextBytes(bytes);
+                    position = 0;
+
+                    final InstrumentationListener listener = Instrumentation.listener;
+                    if (null != listener) {
+                        listener.entropyConsumed(bytes.length);
+                    }
+                }
+
+                value = (value << 8) | (bytes[position] & 0xFF);
+                bytes[position++] = 0;
+                range <<= 8;
+            }
+
+            final long quotient = range / bound;
+            final long limit = quotient * bound;
+            if (value < limit) {
+                final int index = (int) (value % bound);
+                value /= bound;
+                range = quotient;
+
+                return index;
+            }
+
+            /* rejected, what is left over is uniform in [0, range - limit) */
+            value -= limit;
+            range -= limit;
+        }
+    }
+
+    /**
+     * Returns a uniformly distributed double of 53 random bits.
+     *
+     * @return a value >= 0 and < 1
+     */
+    double nextDouble() {
+        return (((long) nextIndex(1 << 26) << 27) | nextIndex(1 << 27)) * 0x1.0p-53;
+    }
+
+    /**
+     * Returns true with the given probability by comparing random bits with its binary digits, two bits on average.
+     *
+     * @param p A value >= 0 and < 1
+     */
+    boolean nextBoolean(double p) {
+        while (p > 0) {
+            p *= 2;
+            final int digit = p >= 1 ? 1 : 0;
+            p -= digit;
+
+            final int bit = nextIndex(2);
+            if (bit != digit) {
+                return bit < digit;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns a scratch array whose first count values are a uniformly random arrangement of count distinct
+     * values out of [0, n). The array is reused by the next call.
+     *
+     * @param n     A value > 0
+     * @param count A value >= 0 and <= n
+     */
+    int[] partialPermutation(int n, int count) {
+        if (permutation.length < n) {
+            permutation = new int[n];
+        }
+
+        for (int i = 0; i < n; i++) {
+            permutation[i] = i;
+        }
+
+        for (int i = 0; i < count; i++) {
+            final int j = i + nextIndex(n - i);
+            final int tmp = permutation[i];
+            permutation[i] = permutation[j];
+            permutation[j] = tmp;
+        }
+
+        return permutation;
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2015 CAN YAPAN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.canyapan.randompasswordgenerator;
+
+/**
+ * Random passphrase generator, words of a {@link WordList} joined by a separator, e.g. "correct horse battery staple".
+ * Check the chain methods with 'with' prefix.
+ */
+public class RandomPassphraseGenerator {
+    public enum Capitalization {
+        /* Words as they are in the list. */
+        NONE,
+        /* First letter of every word upper cased. */
+        WORDS,
+        /* First letter of every word upper cased or not at random, up to one more bit of entropy per word. */
+        RANDOM
+    }
+
+    private EntropySource entropySource;
+    private WordList wordList;
+    private int wordCount;
+    private String separator;
+    private Capitalization capitalization;
+    private int minDigitCount;
+    private int minSymbolCount;
+    /* Compiled generator of the current configuration, null when a setter made it stale. */
+    private PassphraseGenerator passphraseGenerator;
+
+    public RandomPassphraseGenerator() {
+        entropySource = EntropySources.secureRandom();
+        wordCount = 6;
+        separator = " ";
+        capitalization = Capitalization.NONE;
+    }
+
+    /**
+     * Compiles the current rules into a thread-safe generator which shares this object's entropy source.
+     * The result is cached until one of the rules changes.
+     *
+     * @return a compiled generator.
+     * @throws RandomPasswordGeneratorException thrown when there is no word list.
+     */
+    public PassphraseGenerator compile() throws RandomPasswordGeneratorException {
+        if (null == passphraseGenerator) {
+            passphraseGenerator = new PassphraseGenerator(this);
+        }
+
+        return passphraseGenerator;
+    }
+
+    /**
+     * Generates a passphrase with specified rules.
+     *
+     * @return a random passphrase.
+     * @throws RandomPasswordGeneratorException thrown when there is no word list.
+     */
+    public String generate() throws RandomPasswordGeneratorException {
+        return compile().generate();
+    }
+
+    /**
+     * Set the words passphrases are made of.
+     * @param wordList
+     * @return object itself
+     */
+    public RandomPassphraseGenerator withWordList(WordList wordList) {
+        this.setWordList(wordList);
+
+        return this;
+    }
+
+    /**
+     * Set number of words.
+     * @param wordCount A value > 0 and <= 64, 6 by default
+     * @return object itself
+     */
+    public RandomPassphraseGenerator withWordCount(int wordCount) {
+        this.setWordCount(wordCount);
+
+        return this;
+    }
+
+    /**
+     * Set text between words.
+     * @param separator a space by default, may be empty
+     * @return object itself
+     */
+    public RandomPassphraseGenerator withSeparator(String separator) {
+        this.setSeparator(separator);
+
+        return this;
+    }
+
+    /**
+     * Set how words are capitalized.
+     * @param capitalization
+     * @return object itself
+     */
+    public RandomPassphraseGenerator withCapitalization(Capitalization capitalization) {
+        this.setCapitalization(capitalization);
+
+        return this;
+    }
+
+    /**
+     * Set number of digits appended to random words.
+     * @param minDigitCount A value >= 0 and <= 256
+     * @return object itself
+     */
+    public RandomPassphraseGenerator withMinDigitCount(int minDigitCount) {
+        this.setMinDigitCount(minDigitCount);
+
+        return this;
+    }
+
+    /**
+     * Set number of symbols appended to random words.
+     * @param minSymbolCount A value >= 0 and <= 256
+     * @return object itself
+     */
+    public RandomPassphraseGenerator withMinSymbolCount(int minSymbolCount) {
+        this.setMinSymbolCount(minSymbolCount);
+
+        return this;
+    }
+
+    /**
+     * Set the source of random bytes, a SecureRandom of this object by default.
+     * @param entropySource
+     * @return object itself
+     * @see EntropySources
+     */
+    public RandomPassphraseGenerator withEntropySource(EntropySource entropySource) {
+        this.setEntropySource(entropySource);
+
+        return this;
+    }
+
+    public EntropySource getEntropySource() {
+        return entropySource;
+    }
+
+    private void setEntropySource(EntropySource entropySource) {
+        this.entropySource = null == entropySource ? EntropySources.secureRandom() : entropySource;
+        passphraseGenerator = null;
+    }
+
+    public WordList getWordList() {
+        return wordList;
+    }
+
+    private void setWordList(WordList wordList) {
+        this.wordList = wordList;
+        passphraseGenerator = null;
+    }
+
+    public int getWordCount() {
+        return wordCount;
+    }
+
+    private void setWordCount(int wordCount) {
+        if (wordCount <= 0) {
+            wordCount = 6;
+        } else if (wordCount > 64) {
+            wordCount = 64;
+        }
+
+        this.wordCount = wordCount;
+        passphraseGenerator = null;
+    }
+
+    public String getSeparator() {
+        return separator;
+    }
+
+    private void setSeparator(String separator) {
+        this.separator = null == separator ? "" : separator;
+        passphraseGenerator = null;
+    }
+
+    public Capitalization getCapitalization() {
+        return capitalization;
+    }
+
+    private void setCapitalization(Capitalization capitalization) {
+        this.capitalization = null == capitalization ? Capitalization.NONE : capitalization;
+        passphraseGenerator = null;
+    }
+
+    public int getMinDigitCount() {
+        return minDigitCount;
+    }
+
+    private void setMinDigitCount(int minDigitCount) {
+        this.minDigitCount = Math.max(0, Math.min(256, minDigitCount));
+        passphraseGenerator = null;
+    }
+
+    public int getMinSymbolCount() {
+        return minSymbolCount;
+    }
+
+    private void setMinSymbolCount(int minSymbolCount) {
+        this.minSymbolCount = Math.max(0, Math.min(256, minSymbolCount));
+        passphraseGenerator = null;
+    }
+}
@@ -16,18 +16,16 @@
 
 package com.canyapan.randompasswordgenerator;
 
-import java.security.SecureRandom;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.Random;
 
 /**
  * Random Password Generator Library
  * This library generates random passwords with specified rules.
  */
 public class RandomPasswordGenerator {
-    private final Random random;
+    private EntropySource entropySource;
     private int passwordLength;
     private boolean useUpperCaseCharacters;
     private boolean useLowerCaseCharacters;
@@ -39,118 +37,48 @@ public class RandomPasswordGenerator {
     private int minLowerCaseCharacterCount;
     private int minUpperCaseCharacterCount;
     private int minSymbolCount;
+    private int maxDigitCount;
+    private int maxLowerCaseCharacterCount;
+    private int maxUpperCaseCharacterCount;
+    private int maxSymbolCount;
+    private int maxConsecutiveCharacters;
+    private final List<CharacterClass> characterClasses = new ArrayList<CharacterClass>();
+    private Blocklist blocklist;
+    /* Compiled generator of the current configuration, null when a setter made it stale. */
+    private PasswordGenerator passwordGenerator;
 
     /**
      * Random Password Generator Library
      * This library generates random passwords with specified rules. Check the chain methods with 'with' prefix.
      */
     public RandomPasswordGenerator() {
-        random = new SecureRandom();
+        entropySource = EntropySources.secureRandom();
     }
 
-    private List<Character> getAllAvailableCharacters() {
-        List<Character> characters = new ArrayList<Character>();
-
-        if (getUseLowerCaseCharacters()) {
-            characters.addAll(getLowerCaseCharacters());
-        }
-
-        if (getUseUpperCaseCharacters()) {
-            characters.addAll(getUpperCaseCharacters());
-        }
-
-        if (getUseDigits()) {
-            characters.addAll(getDigits());
-        }
-
-        if (getUseSymbols()) {
-            characters.addAll(getSymbols());
-        }
-
-        Collections.shuffle(characters, random);
-
-        return characters;
-    }
-
-    private List<CharacterType> getRequiredCharacterTypes() {
-        List<CharacterType> characterTypes = new ArrayList<CharacterType>(getPasswordLength());
-
-        if (getUseLowerCaseCharacters()) {
-            for (int c = 0; c < getMinLowerCaseCharacterCount(); c++)
-                characterTypes.add(CharacterType.LowerCase);
-        }
-
-        if (getUseUpperCaseCharacters()) {
-            for (int c = 0; c < getMinUpperCaseCharacterCount(); c++)
-                characterTypes.add(CharacterType.UpperCase);
-        }
-
-        if (getUseDigits()) {
-            for (int c = 0; c < getMinDigitCount(); c++)
-                characterTypes.add(CharacterType.Digit);
-        }
-
-        if (getUseSymbols()) {
-            for (int c = 0; c < getMinSymbolCount(); c++)
-                characterTypes.add(CharacterType.Special);
-        }
-
-        for (; characterTypes.size() < getPasswordLength(); ) {
-            characterTypes.add(CharacterType.Any);
-        }
-
-        return characterTypes;
-    }
-
-    private List<Character> getCharacterList(String characters, String ambiguousCharacters, boolean avoidAmbiguousCharacters) {
-        List<Character> characterList = new ArrayList<Character>();
-        for (Character c : characters.toCharArray()) {
-            characterList.add(c);
-        }
-
-        if (!avoidAmbiguousCharacters) {
-            for (Character c : ambiguousCharacters.toCharArray()) {
-                characterList.add(c);
-            }
-        }
-
-        Collections.shuffle(characterList, random);
-
-        return characterList;
-    }
-
-    private List<Character> getLowerCaseCharacters() {
-        return getCharacterList("abcdefghjkmnpqrstuvwxyz", "ilo", getAvoidAmbiguousCharacters());
-    }
-
-    private List<Character> getUpperCaseCharacters() {
-        return getCharacterList("ABCDEFGHJKMNPQRSTUVWXYZ", "ILO", getAvoidAmbiguousCharacters());
-    }
-
-    private List<Character> getDigits() {
-        return getCharacterList("23456789", "10", getAvoidAmbiguousCharacters());
-    }
-
-    private List<Character> getSymbols() {
-        return getCharacterList("!@#$%^&*", null, true);
+    /**
+     * Takes an immutable snapshot of the current rules.
+     *
+     * @return the policy described by this object.
+     */
+    public PasswordPolicy toPolicy() {
+        return new PasswordPolicy(this);
     }
 
     /**
-     * Checks if the generator has enough knowledge to generate a password.
+     * Compiles the current rules into a thread-safe generator which shares this object's entropy source.
+     * The result is cached until one of the rules changes.
      *
+     * @return a compiled generator.
      * @throws RandomPasswordGeneratorException thrown when there is a problem with inputs.
+     *                                          At least one character set should be set before compiling.
+     *                                          Total sum of specified minimum characters should be less or equal than password length.
      */
-    private void check() throws RandomPasswordGeneratorException {
-        if (!getUseDigits() && !getUseLowerCaseCharacters() && !getUseUpperCaseCharacters() && !getUseSymbols()) {
-            throw new RandomPasswordGeneratorException("At least one character set should be selected.");
+    public PasswordGenerator compile() throws RandomPasswordGeneratorException {
+        if (null == passwordGenerator) {
+            passwordGenerator = toPolicy().compile(entropySource);
         }
 
-        if (getPasswordLength() < (getUseDigits() ? getMinDigitCount() : 0)
-                + (getUseLowerCaseCharacters() ? getMinLowerCaseCharacterCount() : 0)
-                + (getUseUpperCaseCharacters() ? getMinUpperCaseCharacterCount() : 0)
-                + (getUseSymbols() ? getMinSymbolCount() : 0)) {
-            throw new RandomPasswordGeneratorException("Password length should be greater than sum of minimum character counts.");
-        }
+        return passwordGenerator;
     }
 
     /**
@@ -162,62 +90,42 @@ public class RandomPasswordGenerator {
      *                                          Total sum of specified minimum characters should be less or equal than password length.
      */
     public String generate() throws RandomPasswordGeneratorException {
-        if (getForceEveryCharacterType()) {
-            if (getUseDigits() && getMinDigitCount() <= 0) {
-                setMinDigitCount(1);
-            }
-
-            if (getUseLowerCaseCharacters() && getMinLowerCaseCharacterCount() <= 0) {
-                setMinLowerCaseCharacterCount(1);
-            }
-
-            if (getUseUpperCaseCharacters() && getMinUpperCaseCharacterCount() <= 0) {
-                setMinUpperCaseCharacterCount(1);
-            }
-
-            if (getUseSymbols() && getMinSymbolCount() <= 0) {
-                setMinSymbolCount(1);
-            }
-        }
+        return compile().generate();
+    }
 
-        check();
-
-        List<CharacterType> requiredCharacterTypes = getRequiredCharacterTypes();
-
-        Collections.shuffle(requiredCharacterTypes, random);
-
-        List<Character> allAvailableCharacters = getAllAvailableCharacters(),
-                lowerCaseCharacters = getLowerCaseCharacters(),
-                upperCaseCharacters = getUpperCaseCharacters(),
-                digits = getDigits(),
-                specialCharacters = getSymbols();
-
-        StringBuilder password = new StringBuilder();
-        List<Character> charset;
-        for (int i = 0; i < getPasswordLength(); i++) {
-            switch (requiredCharacterTypes.get(i)) {
-                case LowerCase:
-                    charset = lowerCaseCharacters;
-                    break;
-                case UpperCase:
-                    charset = upperCaseCharacters;
-                    break;
-                case Digit:
-                    charset = digits;
-                    break;
-                case Special:
-                    charset = specialCharacters;
-                    break;
-                case Any:
-                default:
-                    charset = allAvailableCharacters;
-                    break;
-            }
+    /**
+     * Generates a password with specified rules into a new array, which the caller should wipe after use.
+     *
+     * @return a random password.
+     * @throws RandomPasswordGeneratorException thrown when there is a problem with inputs.
+     * @see PasswordGenerator#generateChars()
+     */
+    public char[] generateChars() throws RandomPasswordGeneratorException {
+        return compile().generateChars();
+    }
 
-            password.append(charset.get(random.nextInt(charset.size())));
-        }
+    /**
+     * Generates a password with specified rules into the beginning of a caller owned array.
+     *
+     * @param dest destination array, at least {@link #getPasswordLength()} long.
+     * @return length of the password.
+     * @throws RandomPasswordGeneratorException thrown when there is a problem with inputs.
+     * @see PasswordGenerator#generateInto(char[])
+     */
+    public int generateInto(char[] dest) throws RandomPasswordGeneratorException {
+        return compile().generateInto(dest);
+    }
 
-        return password.toString();
+    /**
+     * Generates passwords with specified rules back to back into one array.
+     *
+     * @param count number of passwords to generate.
+     * @return packed passwords, each {@link #getPasswordLength()} characters long.
+     * @throws RandomPasswordGeneratorException thrown when there is a problem with inputs.
+     * @see PasswordGenerator#generate(int)
+     */
+    public char[] generate(int count) throws RandomPasswordGeneratorException {
+        return compile().generate(count);
     }
 
     /**
@@ -320,6 +228,109 @@ public class RandomPasswordGenerator {
         return this;
     }
 
+    /**
+     * Set maximum digit count.
+     * @param maxDigitCount 0 for no limit
+     * @return object itself
+     */
+    public RandomPasswordGenerator withMaxDigitCount(int maxDigitCount) {
+        this.setMaxDigitCount(maxDigitCount);
+
+        return this;
+    }
+
+    /**
+     * Set maximum lower case character count.
+     * @param maxLowerCaseCharacterCount 0 for no limit
+     * @return object itself
+     */
+    public RandomPasswordGenerator withMaxLowerCaseCharacterCount(int maxLowerCaseCharacterCount) {
+        this.setMaxLowerCaseCharacterCount(maxLowerCaseCharacterCount);
+
+        return this;
+    }
+
+    /**
+     * Set maximum upper case character count.
+     * @param maxUpperCaseCharacterCount 0 for no limit
+     * @return object itself
+     */
+    public RandomPasswordGenerator withMaxUpperCaseCharacterCount(int maxUpperCaseCharacterCount) {
+        this.setMaxUpperCaseCharacterCount(maxUpperCaseCharacterCount);
+
+        return this;
+    }
+
+    /**
+     * Set maximum symbol count.
+     * @param maxSymbolCount 0 for no limit
+     * @return object itself
+     */
+    public RandomPasswordGenerator withMaxSymbolCount(int maxSymbolCount) {
+        this.setMaxSymbolCount(maxSymbolCount);
+
+        return this;
+    }
+
+    /**
+     * Set the maximum number of characters of the same type in a row, e.g. 2 allows "ab1" but not "abc1".
+     * Custom character classes are types of their own.
+     * @param maxConsecutiveCharacters 0 for no limit
+     * @return object itself
+     */
+    public RandomPasswordGenerator withMaxConsecutiveCharacters(int maxConsecutiveCharacters) {
+        this.setMaxConsecutiveCharacters(maxConsecutiveCharacters);
+
+        return this;
+    }
+
+    /**
+     * Add a named character class, e.g. a site specific symbol set or an alphabet of another language.
+     * Custom classes are used together with the selected built-in ones and should not share characters with them.
+     * @param name unique name of the class
+     * @param characters characters of the class
+     * @param minCount minimum count of characters of the class, a value >= 0
+     * @return object itself
+     */
+    public RandomPasswordGenerator withCharacterClass(String name, String characters, int minCount) {
+        return this.withCharacterClass(new CharacterClass(name, characters, minCount));
+    }
+
+    /**
+     * Add a named character class with a maximum count.
+     * @param name unique name of the class
+     * @param characters characters of the class
+     * @param minCount minimum count of characters of the class, a value >= 0
+     * @param maxCount maximum count of characters of the class, 0 for no limit
+     * @return object itself
+     */
+    public RandomPasswordGenerator withCharacterClass(String name, String characters, int minCount, int maxCount) {
+        return this.withCharacterClass(new CharacterClass(name, characters, minCount, maxCount));
+    }
+
+    /**
+     * Add a named character class.
+     * @param characterClass
+     * @return object itself
+     * @see #withCharacterClass(String, String, int)
+     */
+    public RandomPasswordGenerator withCharacterClass(CharacterClass characterClass) {
+        this.addCharacterClass(characterClass);
+
+        return this;
+    }
+
+    /**
+     * Remove every custom character class.
+     * @return object itself
+     */
+    public RandomPasswordGenerator withoutCharacterClasses() {
+        characterClasses.clear();
+        passwordGenerator = null;
+
+        return this;
+    }
+
     /**
      * Set should ambiguous characters be avoided.
      * @param avoidAmbiguousCharacters
@@ -342,6 +353,29 @@ public class RandomPasswordGenerator {
         return this;
     }
 
+    /**
+     * Set passwords which should never be generated, a password drawn from the list is drawn again.
+     * @param blocklist null for none
+     * @return object itself
+     */
+    public RandomPasswordGenerator withBlocklist(Blocklist blocklist) {
+        this.setBlocklist(blocklist);
+
+        return this;
+    }
+
+    /**
+     * Set the source of random bytes, a SecureRandom of this object by default.
+     * @param entropySource
+     * @return object itself
+     * @see EntropySources
+     */
+    public RandomPasswordGenerator withEntropySource(EntropySource entropySource) {
+        this.setEntropySource(entropySource);
+
+        return this;
+    }
+
     public RandomPasswordGenerator withDefault() {
         return this.withPasswordLength(8)
                 .withLowerCaseCharacters(true)
@@ -356,6 +390,19 @@ public class RandomPasswordGenerator {
                 .withForceEveryCharacterType(true);
     }
 
+    public EntropySource getEntropySource() {
+        return entropySource;
+    }
+
+    private void setEntropySource(EntropySource entropySource) {
+        if (null == entropySource) {
+            entropySource = EntropySources.secureRandom();
+        }
+
+        this.entropySource = entropySource;
+        passwordGenerator = null;
+    }
+
     public int getPasswordLength() {
         return passwordLength;
     }
@@ -368,6 +415,7 @@ public class RandomPasswordGenerator {
         }
 
         this.passwordLength = passwordLength;
+        passwordGenerator = null;
     }
 
     public boolean getUseUpperCaseCharacters() {
@@ -376,6 +424,7 @@ public class RandomPasswordGenerator {
 
     private void setUseUpperCaseCharacters(Boolean useUpperCaseCharacters) {
         this.useUpperCaseCharacters = useUpperCaseCharacters;
+        passwordGenerator = null;
     }
 
     public boolean getUseLowerCaseCharacters() {
@@ -384,6 +433,7 @@ public class RandomPasswordGenerator {
 
     private void setUseLowerCaseCharacters(Boolean useLowerCaseCharacters) {
         this.useLowerCaseCharacters = useLowerCaseCharacters;
+        passwordGenerator = null;
     }
 
     public boolean getUseDigits() {
@@ -392,6 +442,7 @@ public class RandomPasswordGenerator {
 
     private void setUseDigits(Boolean useDigits) {
         this.useDigits = useDigits;
+        passwordGenerator = null;
     }
 
     public boolean getUseSymbols() {
@@ -400,6 +451,7 @@ public class RandomPasswordGenerator {
 
     private void setUseSymbols(Boolean useSymbols) {
         this.useSymbols = useSymbols;
+        passwordGenerator = null;
     }
 
     public boolean getAvoidAmbiguousCharacters() {
@@ -408,6 +460,7 @@ public class RandomPasswordGenerator {
 
     private void setAvoidAmbiguousCharacters(Boolean avoidAmbiguousCharacters) {
         this.avoidAmbiguousCharacters = avoidAmbiguousCharacters;
+        passwordGenerator = null;
     }
 
     public boolean getForceEveryCharacterType() {
@@ -416,6 +469,7 @@ public class RandomPasswordGenerator {
 
     private void setForceEveryCharacterType(Boolean requireEveryCharacterType) {
         this.forceEveryCharacterType = requireEveryCharacterType;
+        passwordGenerator = null;
     }
 
     public int getMinDigitCount() {
@@ -430,6 +484,7 @@ public class RandomPasswordGenerator {
         }
 
         this.minDigitCount = minDigitCount;
+        passwordGenerator = null;
     }
 
     public int getMinLowerCaseCharacterCount() {
@@ -444,6 +499,7 @@ public class RandomPasswordGenerator {
         }
 
         this.minLowerCaseCharacterCount = minLowerCaseCharacterCount;
+        passwordGenerator = null;
     }
 
     public int getMinUpperCaseCharacterCount() {
@@ -458,6 +514,7 @@ public class RandomPasswordGenerator {
         }
 
         this.minUpperCaseCharacterCount = minUpperCaseCharacterCount;
+        passwordGenerator = null;
     }
 
     public int getMinSymbolCount() {
@@ -472,6 +529,106 @@ public class RandomPasswordGenerator {
         }
 
         this.minSymbolCount = minSymbolCount;
+        passwordGenerator = null;
+    }
+
+    public int getMaxDigitCount() {
+        return maxDigitCount;
+    }
+
+    private void setMaxDigitCount(int maxDigitCount) {
+        if (maxDigitCount < 0) {
+            maxDigitCount = 0;
+        } else if (maxDigitCount > 256) {
+            maxDigitCount = 256;
+        }
+
+        this.maxDigitCount = maxDigitCount;
+        passwordGenerator = null;
+    }
+
+    public int getMaxLowerCaseCharacterCount() {
+        return maxLowerCaseCharacterCount;
+    }
+
+    private void setMaxLowerCaseCharacterCount(int maxLowerCaseCharacterCount) {
+        if (maxLowerCaseCharacterCount < 0) {
+            maxLowerCaseCharacterCount = 0;
+        } else if (maxLowerCaseCharacterCount > 256) {
+            maxLowerCaseCharacterCount = 256;
+        }
+
+        this.maxLowerCaseCharacterCount = maxLowerCaseCharacterCount;
+        passwordGenerator = null;
+    }
+
+    public int getMaxUpperCaseCharacterCount() {
+        return maxUpperCaseCharacterCount;
+    }
+
+    private void setMaxUpperCaseCharacterCount(int maxUpperCaseCharacterCount) {
+        if (maxUpperCaseCharacterCount < 0) {
+            maxUpperCaseCharacterCount = 0;
+        } else if (maxUpperCaseCharacterCount > 256) {
+            maxUpperCaseCharacterCount = 256;
+        }
+
+        this.maxUpperCaseCharacterCount = maxUpperCaseCharacterCount;
+        passwordGenerator = null;
+    }
+
+    public int getMaxSymbolCount() {
+        return maxSymbolCount;
+    }
+
+    private void setMaxSymbolCount(int maxSymbolCount) {
+        if (maxSymbolCount < 0) {
+            maxSymbolCount = 0;
+        } else if (maxSymbolCount > 256) {
+            maxSymbolCount = 256;
+        }
+
+        this.maxSymbolCount = maxSymbolCount;
+        passwordGenerator = null;
+    }
+
+    public int getMaxConsecutiveCharacters() {
+        return maxConsecutiveCharacters;
+    }
+
+    private void setMaxConsecutiveCharacters(int maxConsecutiveCharacters) {
+        if (maxConsecutiveCharacters < 0) {
+            maxConsecutiveCharacters = 0;
+        } else if (maxConsecutiveCharacters > 256) {
+            maxConsecutiveCharacters = 256;
+        }
+
+        this.maxConsecutiveCharacters = maxConsecutiveCharacters;
+        passwordGenerator = null;
+    }
+
+    public Blocklist getBlocklist() {
+        return blocklist;
+    }
+
+    private void setBlocklist(Blocklist blocklist) {
+        this.blocklist = blocklist;
+        passwordGenerator = null;
+    }
+
+    public List<CharacterClass> getCharacterClasses() {
+        return Collections.unmodifiableList(characterClasses);
+    }
+
+    private void addCharacterClass(CharacterClass characterClass) {
+        for (CharacterClass existing : characterClasses) {
+            if (existing.getName().equals(characterClass.getName())) {
+                throw new IllegalArgumentException("Character class " + characterClass.getName() + " is already added.");
+            }
+        }
+
+        characterClasses.add(characterClass);
+        passwordGenerator = null;
     }
 
     enum CharacterType {
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2015 CAN YAPAN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.canyapan.randompasswordgenerator;
+
+/**
+ * Random pronounceable password generator, letters following the transitions of a {@link MarkovModel}.
+ * Check the chain methods with 'with' prefix.
+ */
+public class RandomPronounceablePasswordGenerator {
+    private EntropySource entropySource;
+    private MarkovModel model;
+    private int passwordLength;
+    private int minDigitCount;
+    private int minSymbolCount;
+    private int minUpperCaseCharacterCount;
+    /* Compiled generator of the current configuration, null when a setter made it stale. */
+    private PronounceablePasswordGenerator pronounceablePasswordGenerator;
+
+    public RandomPronounceablePasswordGenerator() {
+        entropySource = EntropySources.secureRandom();
+        passwordLength = 8;
+    }
+
+    /**
+     * Compiles the current rules into a thread-safe generator which shares this object's entropy source.
+     * The result is cached until one of the rules changes.
+     *
+     * @return a compiled generator.
+     * @throws RandomPasswordGeneratorException thrown when the minimum counts exceed the length.
+     */
+    public PronounceablePasswordGenerator compile() throws RandomPasswordGeneratorException {
+        if (null == pronounceablePasswordGenerator) {
+            pronounceablePasswordGenerator = new PronounceablePasswordGenerator(this);
+        }
+
+        return pronounceablePasswordGenerator;
+    }
+
+    /**
+     * Generates a password with specified rules.
+     *
+     * @return a random pronounceable password.
+     * @throws RandomPasswordGeneratorException thrown when the minimum counts exceed the length.
+     */
+    public String generate() throws RandomPasswordGeneratorException {
+        return compile().generate();
+    }
+
+    /**
+     * Set the letter transitions passwords follow.
+     * @param model {@link MarkovModel#english()} when null, the default
+     * @return object itself
+     */
+    public RandomPronounceablePasswordGenerator withModel(MarkovModel model) {
+        this.setModel(model);
+
+        return this;
+    }
+
+    /**
+     * Set password length.
+     * @param passwordLength A value > 0 and <= 256
+     * @return object itself
+     */
+    public RandomPronounceablePasswordGenerator withPasswordLength(int passwordLength) {
+        this.setPasswordLength(passwordLength);
+
+        return this;
+    }
+
+    /**
+     * Set number of digits, at random positions.
+     * @param minDigitCount A value >= 0 and <= 256
+     * @return object itself
+     */
+    public RandomPronounceablePasswordGenerator withMinDigitCount(int minDigitCount) {
+        this.setMinDigitCount(minDigitCount);
+
+        return this;
+    }
+
+    /**
+     * Set number of symbols, at random positions.
+     * @param minSymbolCount A value >= 0 and <= 256
+     * @return object itself
+     */
+    public RandomPronounceablePasswordGenerator withMinSymbolCount(int minSymbolCount) {
+        this.setMinSymbolCount(minSymbolCount);
+
+        return this;
+    }
+
+    /**
+     * Set number of letters upper cased at random.
+     * @param minUpperCaseCharacterCount A value >= 0 and <= 256
+     * @return object itself
+     */
+    public RandomPronounceablePasswordGenerator withMinUpperCaseCharacterCount(int minUpperCaseCharacterCount) {
+        this.setMinUpperCaseCharacterCount(minUpperCaseCharacterCount);
+
+        return this;
+    }
+
+    /**
+     * Set the source of random bytes, a SecureRandom of this object by default.
+     * @param entropySource
+     * @return object itself
+     * @see EntropySources
+     */
+    public RandomPronounceablePasswordGenerator withEntropySource(EntropySource entropySource) {
+        this.setEntropySource(entropySource);
+
+        return this;
+    }
+
+    public EntropySource getEntropySource() {
+        return entropySource;
+    }
+
+    private void setEntropySource(EntropySource entropySource) {
+        this.entropySource = null == entropySource ? EntropySources.secureRandom() : entropySource;
+        pronounceablePasswordGenerator = null;
+    }
+
+    public MarkovModel getModel() {
+        return model;
+    }
+
+    private void setModel(MarkovModel model) {
+        this.model = model;
+        pronounceablePasswordGenerator = null;
+    }
+
+    public int getPasswordLength() {
+        return passwordLength;
+    }
+
+    private void setPasswordLength(int passwordLength) {
+        if (passwordLength <= 0) {
+            passwordLength = 8;
+        } else if (passwordLength > 256) {
+            passwordLength = 256;
+        }
+
+        this.passwordLength = passwordLength;
+        pronounceablePasswordGenerator = null;
+    }
+
+    public int getMinDigitCount() {
+        return minDigitCount;
+    }
+
+    private void setMinDigitCount(int minDigitCount) {
+        this.minDigitCount = Math.max(0, Math.min(256, minDigitCount));
+        pronounceablePasswordGenerator = null;
+    }
+
+    public int getMinSymbolCount() {
+        return minSymbolCount;
+    }
+
+    private void setMinSymbolCount(int minSymbolCount) {
+        this.minSymbolCount = Math.max(0, Math.min(256, minSymbolCount));
+        pronounceablePasswordGenerator = null;
+    }
+
+    public int getMinUpperCaseCharacterCount() {
+        return minUpperCaseCharacterCount;
+    }
+
+    private void setMinUpperCaseCharacterCount(int minUpperCaseCharacterCount) {
+        this.minUpperCaseCharacterCount = Math.max(0, Math.min(256, minUpperCaseCharacterCount));
+        pronounceablePasswordGenerator = null;
+    }
+}
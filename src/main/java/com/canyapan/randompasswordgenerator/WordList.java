@@ -0,0 +1,231 @@
+/*
+ * Copyright 2015 CAN YAPAN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.canyapan.randompasswordgenerator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Words passphrases are made of, packed as UTF-8 into one array with the offset of every word, so a list of
+ * hundreds of thousands of words is two objects and copying a word out of it touches one contiguous range.
+ * Immutable and thread-safe.
+ */
+public final class WordList {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final byte[] bytes;
+    /* Word i is bytes[offsets[i], offsets[i + 1]). */
+    private final int[] offsets;
+    private final int maxLength;
+    private final boolean ascii;
+    /* Bits of entropy of a word drawn uniformly, with its first letter upper cased always or at random. */
+    private final double capitalizedEntropy;
+    private final double randomlyCapitalizedEntropy;
+
+    private WordList(byte[] bytes, int[] offsets, int maxLength, boolean ascii, double capitalizedEntropy,
+                     double randomlyCapitalizedEntropy) {
+        this.bytes = bytes;
+        this.offsets = offsets;
+        this.maxLength = maxLength;
+        this.ascii = ascii;
+        this.capitalizedEntropy = capitalizedEntropy;
+        this.randomlyCapitalizedEntropy = randomlyCapitalizedEntropy;
+    }
+
+    /**
+     * Reads a word list file of one word per line, repeated words are counted once.
+     * Diceware lists, which start every line with the dice rolls of the word, are read as they are.
+     *
+     * @param file UTF-8 text file.
+     * @return the words of the file.
+     * @throws IOException thrown when the file cannot be read or has less than 2 words.
+     */
+    public static WordList load(Path file) throws IOException {
+        /* streamed and deduplicated as read, so every word is held once */
+        final Set<String> words = new LinkedHashSet<String>();
+        final BufferedReader reader = Files.newBufferedReader(file, UTF_8);
+        try {
+            String line;
+            while (null != (line = reader.readLine())) {
+                final String[] tokens = line.trim().split("\\s+");
+                if (!tokens[tokens.length - 1].isEmpty()) {
+                    words.add(tokens[tokens.length - 1]);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+
+        try {
+            return pack(words);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage() + " " + file);
+        }
+    }
+
+    /**
+     * @param words words of the list, repeated ones are counted once.
+     * @return a packed list of the words.
+     */
+    public static WordList of(Iterable<? extends CharSequence> words) {
+        final Set<String> unique = new LinkedHashSet<String>();
+        for (CharSequence word : words) {
+            if (word.length() > 0) {
+                unique.add(word.toString());
+            }
+        }
+
+        return pack(unique);
+    }
+
+    /**
+     * @param unique distinct words, none of them empty.
+     */
+    private static WordList pack(Set<String> unique) {
+        if (unique.size() < 2) {
+            throw new IllegalArgumentException("Word list should have at least 2 words.");
+        }
+
+        final byte[][] encoded = new byte[unique.size()][];
+        final int[] offsets = new int[unique.size() + 1];
+        int maxLength = 0, i = 0;
+        boolean ascii = true;
+        for (String word : unique) {
+            encoded[i] = word.getBytes(UTF_8);
+            offsets[i + 1] = offsets[i] + encoded[i].length;
+            maxLength = Math.max(maxLength, word.length());
+            ascii &= encoded[i].length == word.length();
+            i++;
+        }
+
+        final byte[] bytes = new byte[offsets[unique.size()]];
+        for (i = 0; i < encoded.length; i++) {
+            System.arraycopy(encoded[i], 0, bytes, offsets[i], encoded[i].length);
+        }
+
+        /*
+        Capitalizing does not add a bit to words which do not start with a cased letter, and takes bits away when
+        words differ only in the case of their first letter, so the entropy is that of the words actually produced.
+        */
+        final Map<String, Integer> capitalized = new HashMap<String, Integer>();
+        final Map<String, Integer> randomlyCapitalized = new HashMap<String, Integer>();
+        for (String word : unique) {
+            final String upper = Character.toUpperCase(word.charAt(0)) + word.substring(1);
+            count(capitalized, upper);
+            count(randomlyCapitalized, upper);
+            count(randomlyCapitalized, word);
+        }
+
+        return new WordList(bytes, offsets, maxLength, ascii, entropy(capitalized, unique.size()),
+                entropy(randomlyCapitalized, 2 * unique.size()));
+    }
+
+    private static void count(Map<String, Integer> outcomes, String outcome) {
+        final Integer count = outcomes.get(outcome);
+        outcomes.put(outcome, null == count ? 1 : count + 1);
+    }
+
+    /**
+     * @return bits of entropy of the outcomes of the given number of equally likely draws.
+     */
+    private static double entropy(Map<String, Integer> outcomes, int draws) {
+        double collisions = 0d;
+        for (int count : outcomes.values()) {
+            collisions += count * Math.log(count);
+        }
+
+        return (Math.log(draws) - collisions / draws) / Math.log(2);
+    }
+
+    /**
+     * @return number of distinct words.
+     */
+    public int size() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * @param index A value >= 0 and < size()
+     * @return the word at the given index.
+     */
+    public String get(int index) {
+        return new String(bytes, offsets[index], offsets[index + 1] - offsets[index], UTF_8);
+    }
+
+    /**
+     * @param capitalization how the first letter of the word is cased.
+     * @return bits of entropy of a word drawn uniformly from the list and capitalized.
+     */
+    double getEntropy(RandomPassphraseGenerator.Capitalization capitalization) {
+        switch (capitalization) {
+            case WORDS:
+                return capitalizedEntropy;
+            case RANDOM:
+                return randomlyCapitalizedEntropy;
+            default:
+                return Math.log(size()) / Math.log(2);
+        }
+    }
+
+    /**
+     * @return length of the longest word in chars.
+     */
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    /**
+     * Copies a word into an array, decoding UTF-8 only when the list is not ASCII.
+     *
+     * @return index after the word.
+     */
+    int copy(int index, char[] dest, int at) {
+        final int end = offsets[index + 1];
+        int i = offsets[index];
+        if (ascii) {
+            while (i < end) {
+                dest[at++] = (char) bytes[i++];
+            }
+            return at;
+        }
+
+        while (i < end) {
+            final int b = bytes[i++] & 0xFF;
+            if (b < 0x80) {
+                dest[at++] = (char) b;
+            } else if (b < 0xE0) {
+                dest[at++] = (char) ((b & 0x1F) << 6 | (bytes[i++] & 0x3F));
+            } else if (b < 0xF0) {
+                dest[at++] = (char) ((b & 0x0F) << 12 | (bytes[i++] & 0x3F) << 6 | (bytes[i++] & 0x3F));
+            } else {
+                final int codePoint = (b & 0x07) << 18 | (bytes[i++] & 0x3F) << 12 | (bytes[i++] & 0x3F) << 6 | (bytes[i++] & 0x3F);
+                dest[at++] = Character.highSurrogate(codePoint);
+                dest[at++] = Character.lowSurrogate(codePoint);
+            }
+        }
+
+        return at;
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2015 CAN YAPAN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.canyapan.randompasswordgenerator.test;
+
+import com.canyapan.randompasswordgenerator.Blocklist;
+import com.canyapan.randompasswordgenerator.PasswordGenerator;
+import com.canyapan.randompasswordgenerator.PasswordMeter;
+import com.canyapan.randompasswordgenerator.RandomPasswordGenerator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BlocklistTest {
+    private Path file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = Files.createTempFile("blocklist", ".bloom");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.delete(file);
+    }
+
+    @Test
+    public void testContains() throws IOException {
+        List<String> passwords = new ArrayList<String>();
+        for (int i = 0; i < 100000; i++) {
+            passwords.add("password" + i);
+        }
+        Blocklist.build(passwords, passwords.size(), 0.01d, file);
+
+        Blocklist blocklist = Blocklist.open(file);
+        assertEquals(passwords.size(), blocklist.getCount());
+        for (String password : passwords) {
+            assertTrue(password, blocklist.contains(password));
+        }
+        assertTrue(blocklist.contains("password42".toCharArray()));
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100000; i++) {
+            if (blocklist.contains("Password" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives + " false positives", falsePositives < 2000);
+        assertFalse(blocklist.contains(""));
+    }
+
+    /**
+     * 0.0001 would take 13 hashes, the filter has at most 7 and makes up for them with more bits.
+     */
+    @Test
+    public void testFalsePositiveRateWithCappedHashes() throws IOException {
+        List<String> passwords = new ArrayList<String>();
+        for (int i = 0; i < 20000; i++) {
+            passwords.add("password" + i);
+        }
+        Blocklist.build(passwords, passwords.size(), 0.0001d, file);
+
+        Blocklist blocklist = Blocklist.open(file);
+        int falsePositives = 0;
+        for (int i = 0; i < 2000000; i++) {
+            if (blocklist.contains("other" + i)) {
+                falsePositives++;
+            }
+        }
+        /* 200 expected, the standard deviation is about 14 */
+        assertTrue(falsePositives + " false positives", falsePositives < 260);
+    }
+
+    @Test
+    public void testMeter() throws Exception {
+        Blocklist.build(Arrays.asList("P@ssw0rd!Tr0ub4dor&3"), 1, 0.001d, file);
+        Blocklist blocklist = Blocklist.open(file);
+
+        PasswordMeter.Result result = PasswordMeter.check("P@ssw0rd!Tr0ub4dor&3", blocklist);
+        assertEquals(0, result.getScore());
+        assertEquals(PasswordMeter.Complexity.TooWeak, result.getComplexity());
+        assertTrue(result.isBlocklisted());
+
+        result = PasswordMeter.check("P@ssw0rd!Tr0ub4dor&4", blocklist);
+        assertEquals(PasswordMeter.check("P@ssw0rd!Tr0ub4dor&4").getScore(), result.getScore());
+        assertFalse(result.isBlocklisted());
+    }
+
+    @Test
+    public void testGeneratorRedraws() throws Exception {
+        /* 90 of the 100 two digit passwords are blocked */
+        List<String> blocked = new ArrayList<String>();
+        for (int i = 0; i < 90; i++) {
+            blocked.add(String.format("%02d", i));
+        }
+        Blocklist.build(blocked, blocked.size(), 0.0001d, file);
+
+        final Blocklist blocklist = Blocklist.open(file);
+        PasswordGenerator compiled = new RandomPasswordGenerator().withPasswordLength(2)
+                .withCharacterClass("digits", "0123456789", 0)
+                .withBlocklist(blocklist)
+                .compile();
+
+        Set<String> seen = new HashSet<String>();
+        final char[] passwords = compiled.generate(1000);
+        for (int i = 0; i < passwords.length; i += 2) {
+            seen.add(new String(passwords, i, 2));
+        }
+        final ByteBuffer bytes = ByteBuffer.allocate(2000);
+        compiled.generate(bytes, 1000);
+        for (int i = 0; i < bytes.capacity(); i += 2) {
+            seen.add(new String(bytes.array(), i, 2, Charset.forName("US-ASCII")));
+        }
+        seen.add(compiled.generate());
+
+        for (String password : seen) {
+            assertTrue(password, Integer.parseInt(password) >= 90);
+        }
+
+        List<String> all = new ArrayList<String>(blocked);
+        for (int i = 90; i < 100; i++) {
+            all.add(String.valueOf(i));
+        }
+        /* another file, the first one is still mapped */
+        Path allFile = Files.createTempFile("blocklist", ".bloom");
+        try {
+            Blocklist.build(all, all.size(), 0.0001d, allFile);
+            new RandomPasswordGenerator().withPasswordLength(2)
+                    .withCharacterClass("digits", "0123456789", 0)
+                    .withBlocklist(Blocklist.open(allFile))
+                    .generate();
+            fail("Every password is blocked.");
+        } catch (IllegalStateException e) {
+            /* expected */
+        } finally {
+            Files.delete(allFile);
+        }
+    }
+
+    @Test
+    public void testNotABlocklist() throws IOException {
+        Files.write(file, new byte[64]);
+        try {
+            Blocklist.open(file);
+            fail("Zeros are not a blocklist.");
+        } catch (IOException e) {
+            /* expected */
+        }
+    }
+}
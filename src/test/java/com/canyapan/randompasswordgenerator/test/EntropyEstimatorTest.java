@@ -0,0 +1,123 @@
+/*
+ * Copyright 2015 CAN YAPAN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.canyapan.randompasswordgenerator.test;
+
+import com.canyapan.randompasswordgenerator.EntropyEstimator;
+import com.canyapan.randompasswordgenerator.RandomPasswordGenerator;
+import com.canyapan.randompasswordgenerator.RandomPasswordGeneratorException;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class EntropyEstimatorTest {
+    private static Path table;
+
+    @BeforeClass
+    public static void setUp() throws IOException {
+        final String[] words = {"password", "dragon", "monkey", "letmein", "qwerty", "sunshine"};
+        final Random random = new Random(42);
+        List<String> corpus = new ArrayList<String>();
+        for (int i = 0; i < 10000; i++) {
+            corpus.add(words[random.nextInt(words.length)] + (random.nextBoolean() ? "" : String.valueOf(random.nextInt(100))));
+        }
+
+        table = Files.createTempFile("entropy", ".table");
+        OutputStream out = Files.newOutputStream(table);
+        try {
+            EntropyEstimator.build(corpus, out);
+        } finally {
+            out.close();
+        }
+    }
+
+    @AfterClass
+    public static void tearDown() throws IOException {
+        Files.delete(table);
+    }
+
+    @Test
+    public void testPolicyEntropy() throws RandomPasswordGeneratorException {
+        assertEquals(8 * Math.log(10) / Math.log(2), new RandomPasswordGenerator().withPasswordLength(8).withDigits(true)
+                .compile().getEntropy(), 1e-9);
+
+        /* the 32 passwords of testConstrainedPasswordsAreUniform */
+        assertEquals(5d, new RandomPasswordGenerator().withPasswordLength(4)
+                .withCharacterClass("letters", "ab", 0)
+                .withCharacterClass("digits", "12", 0, 1)
+                .withMaxConsecutiveCharacters(2)
+                .compile().getEntropy(), 1e-9);
+
+        /* exactly one digit: 8 positions of 10 digits next to 26^7 letters */
+        assertEquals(Math.log(8 * 10 * Math.pow(26, 7)) / Math.log(2), new RandomPasswordGenerator().withPasswordLength(8)
+                .withLowerCaseCharacters(true).withDigits(true).withMinDigitCount(1).withMaxDigitCount(1)
+                .compile().getEntropy(), 1e-9);
+
+        /* at least one digit: every password of 36 characters but those of letters only */
+        assertEquals(Math.log(Math.pow(36, 8) - Math.pow(26, 8)) / Math.log(2), new RandomPasswordGenerator().withPasswordLength(8)
+                .withLowerCaseCharacters(true).withDigits(true).withMinDigitCount(1)
+                .compile().getEntropy(), 1e-9);
+
+        /* minimum counts too many to count: the lower bound of the required characters scattered at random */
+        final double symbol = new RandomPasswordGenerator().withPasswordLength(1).withSymbols(true).compile().getEntropy();
+        final double any = new RandomPasswordGenerator().withPasswordLength(1).withUpperCaseCharacters(true).withLowerCaseCharacters(true)
+                .withDigits(true).withSymbols(true).compile().getEntropy();
+        assertEquals(40 * (2 * Math.log(26) / Math.log(2) + Math.log(10) / Math.log(2) + symbol + any), new RandomPasswordGenerator()
+                .withPasswordLength(200).withUpperCaseCharacters(true).withLowerCaseCharacters(true).withDigits(true).withSymbols(true)
+                .withMinUpperCaseCharacterCount(40).withMinLowerCaseCharacterCount(40).withMinDigitCount(40).withMinSymbolCount(40)
+                .compile().getEntropy(), 1e-9);
+    }
+
+    @Test
+    public void testEstimate() throws IOException {
+        EntropyEstimator estimator = EntropyEstimator.open(table);
+
+        final double common = estimator.estimate("password");
+        final double digits = estimator.estimate("password42");
+        final double random = estimator.estimate("x9$Kq2!z");
+        assertTrue(common + " " + random, common * 4 < random);
+        assertTrue(common < digits);
+        assertEquals(0d, estimator.estimate(""), 0d);
+        assertEquals(random, estimator.estimate("x9$Kq2!z".toCharArray()), 0d);
+        assertTrue(estimator.estimate("\u00e7\u00e7\u00e7") > 0d);
+    }
+
+    @Test
+    public void testNotATable() throws IOException {
+        Path file = Files.createTempFile("entropy", ".table");
+        try {
+            EntropyEstimator.open(file);
+            fail("An empty file is not a table.");
+        } catch (IOException e) {
+            /* expected */
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2015 CAN YAPAN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.canyapan.randompasswordgenerator.test;
+
+import com.canyapan.randompasswordgenerator.EntropySources;
+import com.canyapan.randompasswordgenerator.PassphraseGenerator;
+import com.canyapan.randompasswordgenerator.RandomPassphraseGenerator;
+import com.canyapan.randompasswordgenerator.RandomPasswordGeneratorException;
+import com.canyapan.randompasswordgenerator.WordList;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PassphraseGeneratorTest {
+    private static WordList words(int count) {
+        List<String> words = new ArrayList<String>();
+        for (int i = 0; i < count; i++) {
+            StringBuilder word = new StringBuilder("word");
+            for (int n = i; n > 0; n /= 26) {
+                word.append((char) ('a' + n % 26));
+            }
+            words.add(word.toString());
+        }
+
+        return WordList.of(words);
+    }
+
+    @Test
+    public void testWordList() throws IOException {
+        Path file = Files.createTempFile("words", ".txt");
+        try {
+            Files.write(file, Arrays.asList("11111\tabacus", "11112\tabdomen", "", "11113 abacus", "  11114\tcaf\u00e9  ",
+                    "11115\t\ud83d\udd11"), Charset.forName("UTF-8"));
+
+            WordList list = WordList.load(file);
+            assertEquals(4, list.size());
+            assertEquals("abacus", list.get(0));
+            assertEquals("caf\u00e9", list.get(2));
+            assertEquals("\ud83d\udd11", list.get(3));
+            assertEquals(7, list.getMaxLength());
+        } finally {
+            Files.delete(file);
+        }
+
+        try {
+            WordList.of(Arrays.asList("one", "one"));
+            fail("A single word should not make a list.");
+        } catch (IllegalArgumentException ignored) {
+        }
+    }
+
+    @Test
+    public void testPassphrases() throws RandomPasswordGeneratorException {
+        WordList list = words(1000);
+        Set<String> known = new HashSet<String>();
+        for (int i = 0; i < list.size(); i++) {
+            known.add(list.get(i));
+        }
+
+        PassphraseGenerator generator = new RandomPassphraseGenerator()
+                .withWordList(list)
+                .withWordCount(5)
+                .withSeparator("-")
+                .withCapitalization(RandomPassphraseGenerator.Capitalization.WORDS)
+                .withMinDigitCount(2)
+                .withMinSymbolCount(1)
+                .withEntropySource(EntropySources.seeded(7))
+                .compile();
+
+        char[] dest = new char[generator.getMaxLength() + 3];
+        for (int i = 0; i < 1000; i++) {
+            final int length = generator.generateInto(dest, 3);
+            final String passphrase = new String(dest, 3, length);
+            assertTrue(length <= generator.getMaxLength());
+            assertEquals(2, passphrase.replaceAll("[^0-9]", "").length());
+            assertEquals(1, passphrase.replaceAll("[^!@#$%^&*]", "").length());
+
+            final String[] parts = passphrase.split("-");
+            assertEquals(5, parts.length);
+            for (String part : parts) {
+                assertTrue(part, Character.isUpperCase(part.charAt(0)));
+                assertTrue(part, known.contains(part.replaceAll("[0-9!@#$%^&*]", "").toLowerCase()));
+            }
+        }
+
+        assertEquals(5 * Math.log(1000) / Math.log(2) + 2 * Math.log(10) / Math.log(2) + 3, generator.getEntropy(), 1e-9);
+
+        try {
+            new RandomPassphraseGenerator().generate();
+            fail("A word list should be required.");
+        } catch (RandomPasswordGeneratorException ignored) {
+        }
+    }
+
+    /**
+     * Capitalizing adds nothing to "1st" and takes away from "apple" and "Apple", which share "Apple".
+     */
+    @Test
+    public void testEntropyOfCapitalization() throws RandomPasswordGeneratorException {
+        WordList list = WordList.of(Arrays.asList("apple", "Apple", "1st", "zebra"));
+        RandomPassphraseGenerator generator = new RandomPassphraseGenerator().withWordList(list).withWordCount(2);
+        final double log2 = Math.log(2);
+
+        assertEquals(2 * 2d, generator.compile().getEntropy(), 1e-9);
+
+        /* Apple twice, 1st and Zebra once out of 4 */
+        generator.withCapitalization(RandomPassphraseGenerator.Capitalization.WORDS);
+        assertEquals(2 * 1.5d, generator.compile().getEntropy(), 1e-9);
+
+        /* Apple 3 times, 1st twice, apple, Zebra and zebra once out of 8 */
+        generator.withCapitalization(RandomPassphraseGenerator.Capitalization.RANDOM);
+        assertEquals(2 * (3d - (3 * Math.log(3) / log2 + 2) / 8), generator.compile().getEntropy(), 1e-9);
+
+        list = WordList.of(Arrays.asList("apple", "zebra"));
+        assertEquals(2 * 2d, generator.withWordList(list).compile().getEntropy(), 1e-9);
+    }
+
+    @Test
+    public void testWordsAreUniform() throws RandomPasswordGeneratorException {
+        WordList list = words(16);
+        PassphraseGenerator generator = new RandomPassphraseGenerator().withWordList(list).withWordCount(1)
+                .withEntropySource(EntropySources.seeded(11)).compile();
+
+        final int samples = 160000;
+        int[] counts = new int[list.size()];
+        List<String> index = new ArrayList<String>();
+        for (int i = 0; i < list.size(); i++) {
+            index.add(list.get(i));
+        }
+        for (int i = 0; i < samples; i++) {
+            counts[index.indexOf(generator.generate())]++;
+        }
+
+        /* chi-squared with 15 degrees of freedom, p = 0.001 */
+        final double expected = (double) samples / counts.length;
+        double chiSquared = 0;
+        for (int count : counts) {
+            chiSquared += (count - expected) * (count - expected) / expected;
+        }
+        assertTrue("chi-squared " + chiSquared, chiSquared < 37.7);
+    }
+
+    @Test
+    public void testNonAsciiWords() throws RandomPasswordGeneratorException {
+        WordList list = WordList.of(Arrays.asList("\u00e7ilek", "\u0131\u015f\u0131k", "\ud83d\udd11key", "plain"));
+        PassphraseGenerator generator = new RandomPassphraseGenerator().withWordList(list).withWordCount(3).withSeparator("")
+                .withEntropySource(EntropySources.seeded(3)).compile();
+
+        for (int i = 0; i < 200; i++) {
+            String passphrase = generator.generate();
+            for (int w = 0; w < list.size(); w++) {
+                passphrase = passphrase.replace(list.get(w), "");
+            }
+            assertEquals("", passphrase);
+        }
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2015 CAN YAPAN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.canyapan.randompasswordgenerator.test;
+
+import com.canyapan.randompasswordgenerator.PasswordGenerator;
+import com.canyapan.randompasswordgenerator.RandomPasswordGenerator;
+import com.canyapan.randompasswordgenerator.RandomPasswordGeneratorException;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Chi-squared goodness of fit tests for the uniformity of generated characters and positions.
+ * A biased index mapping, such as taking a random byte modulo the charset size, fails these by a wide margin.
+ */
+public class PasswordGeneratorDistributionTest {
+
+    /**
+     * 70 characters: a byte modulo 70 would pick the first 46 characters a third more often than the rest.
+     */
+    @Test
+    public void testCharactersAreUniformWithNonPowerOfTwoCharset() throws RandomPasswordGeneratorException {
+        PasswordGenerator compiled = new RandomPasswordGenerator().withPasswordLength(1)
+                .withLowerCaseCharacters(true)
+                .withUpperCaseCharacters(true)
+                .withDigits(true)
+                .withSymbols(true)
+                .compile();
+
+        assertUniformCharacters(compiled.generate(70 * 2000), 70);
+
+        StringBuilder passwords = new StringBuilder();
+        for (int i = 0; i < 70 * 2000; i++) {
+            passwords.append(compiled.generate());
+        }
+        assertUniformCharacters(passwords.toString().toCharArray(), 70);
+    }
+
+    /**
+     * 8 characters: every draw takes exactly 3 bits of the random value.
+     */
+    @Test
+    public void testCharactersAreUniformWithPowerOfTwoCharset() throws RandomPasswordGeneratorException {
+        PasswordGenerator compiled = new RandomPasswordGenerator().withPasswordLength(16)
+                .withDigits(true)
+                .withAvoidAmbiguousCharacters(true)
+                .compile();
+
+        assertUniformCharacters(compiled.generate(1000), 8);
+    }
+
+    /**
+     * Every draw continues with what is left of the previous one, so consecutive characters must stay independent.
+     */
+    @Test
+    public void testConsecutiveCharactersAreIndependent() throws RandomPasswordGeneratorException {
+        final int size = 70;
+        PasswordGenerator compiled = new RandomPasswordGenerator().withPasswordLength(2)
+                .withLowerCaseCharacters(true)
+                .withUpperCaseCharacters(true)
+                .withDigits(true)
+                .withSymbols(true)
+                .compile();
+
+        final char[] passwords = compiled.generate(size * size * 50);
+        final int[] indexes = new int[128];
+        int distinct = 0;
+        long[] observed = new long[size * size];
+        for (int i = 0; i < passwords.length; i += 2) {
+            for (int j = i; j < i + 2; j++) {
+                if (0 == indexes[passwords[j]]) {
+                    assertTrue("More distinct characters than expected.", distinct < size);
+                    indexes[passwords[j]] = ++distinct;
+                }
+            }
+            observed[(indexes[passwords[i]] - 1) * size + indexes[passwords[i + 1]] - 1]++;
+        }
+
+        assertUniform(observed);
+    }
+
+    /**
+     * One character of every type: each of the 24 arrangements of the types is equally likely.
+     */
+    @Test
+    public void testRequiredCharacterTypesAreUniformlyArranged() throws RandomPasswordGeneratorException {
+        final int length = 4, count = 24 * 1000;
+        PasswordGenerator compiled = new RandomPasswordGenerator().withPasswordLength(length)
+                .withLowerCaseCharacters(true)
+                .withUpperCaseCharacters(true)
+                .withDigits(true)
+                .withSymbols(true)
+                .withForceEveryCharacterType(true)
+                .compile();
+
+        char[] passwords = compiled.generate(count);
+        long[] observed = new long[256];
+        for (int i = 0; i < passwords.length; i += length) {
+            int arrangement = 0;
+            for (int j = 0; j < length; j++) {
+                final char c = passwords[i + j];
+                final int type = Character.isLowerCase(c) ? 0 : Character.isUpperCase(c) ? 1 : Character.isDigit(c) ? 2 : 3;
+                arrangement = arrangement * length + type;
+            }
+            observed[arrangement]++;
+        }
+
+        long[] arrangements = new long[24];
+        int distinct = 0;
+        for (long o : observed) {
+            if (o > 0) {
+                assertTrue("Not one character of every type.", distinct < arrangements.length);
+                arrangements[distinct++] = o;
+            }
+        }
+
+        assertUniform(arrangements);
+    }
+
+    @Test
+    public void testRequiredCharactersAreUniformlyPlaced() throws RandomPasswordGeneratorException {
+        final int length = 11, count = 20000;
+        PasswordGenerator compiled = new RandomPasswordGenerator().withPasswordLength(length)
+                .withLowerCaseCharacters(true)
+                .withSymbols(true)
+                .withMinSymbolCount(1)
+                .compile();
+
+        char[] passwords = compiled.generate(count);
+        long[] observed = new long[length];
+        for (int i = 0; i < passwords.length; i++) {
+            if (!Character.isLetter(passwords[i])) {
+                observed[i % length]++;
+            }
+        }
+
+        assertUniform(observed);
+    }
+
+    /**
+     * Every valid password of at most one digit and no three letters in a row should be equally likely.
+     */
+    @Test
+    public void testConstrainedPasswordsAreUniform() throws RandomPasswordGeneratorException {
+        final String alphabet = "ab12";
+        final Map<String, Integer> valid = new HashMap<String, Integer>();
+        for (int i = 0; i < 256; i++) {
+            final String password = "" + alphabet.charAt(i & 3) + alphabet.charAt(i >> 2 & 3) + alphabet.charAt(i >> 4 & 3) + alphabet.charAt(i >> 6 & 3);
+            if (password.matches("^[ab]*[12]?[ab]*$") && !password.matches(".*[ab]{3}.*")) {
+                valid.put(password, valid.size());
+            }
+        }
+        assertEquals(32, valid.size());
+
+        PasswordGenerator compiled = new RandomPasswordGenerator().withPasswordLength(4)
+                .withCharacterClass("letters", "ab", 0)
+                .withCharacterClass("digits", "12", 0, 1)
+                .withMaxConsecutiveCharacters(2)
+                .compile();
+
+        char[] passwords = compiled.generate(32 * 1000);
+        long[] observed = new long[valid.size()];
+        for (int i = 0; i < passwords.length; i += 4) {
+            final Integer index = valid.get(new String(passwords, i, 4));
+            assertTrue(new String(passwords, i, 4), null != index);
+            observed[index]++;
+        }
+
+        assertUniform(observed);
+    }
+
+    private static void assertUniformCharacters(char[] characters, int expectedDistinct) {
+        long[] observed = new long[128];
+        for (char c : characters) {
+            observed[c]++;
+        }
+
+        long[] compact = new long[expectedDistinct];
+        int distinct = 0;
+        for (long o : observed) {
+            if (o > 0) {
+                assertTrue("More distinct characters than expected.", distinct < expectedDistinct);
+                compact[distinct++] = o;
+            }
+        }
+
+        assertUniform(compact);
+    }
+
+    private static void assertUniform(long[] observed) {
+        long total = 0;
+        for (long o : observed) {
+            total += o;
+        }
+
+        final double expected = (double) total / observed.length;
+        double chiSquared = 0d;
+        for (long o : observed) {
+            chiSquared += (o - expected) * (o - expected) / expected;
+        }
+
+        final double critical = criticalValue(observed.length - 1);
+        assertTrue("Chi-squared " + chiSquared + " exceeds " + critical, chiSquared < critical);
+    }
+
+    /**
+     * Wilson-Hilferty approximation of the chi-squared quantile at p = 0.9999.
+     */
+    private static double criticalValue(int degreesOfFreedom) {
+        final double z = 3.719, k = degreesOfFreedom;
+        final double a = 1d - 2d / (9d * k) + z * Math.sqrt(2d / (9d * k));
+
+        return k * a * a * a;
+    }
+}
@@ -0,0 +1,319 @@
+/*
+ * Copyright 2015 CAN YAPAN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.canyapan.randompasswordgenerator.test;
+
+import com.canyapan.randompasswordgenerator.EntropySource;
+import com.canyapan.randompasswordgenerator.EntropySources;
+import com.canyapan.randompasswordgenerator.PasswordGenerator;
+import com.canyapan.randompasswordgenerator.PasswordMeter;
+import com.canyapan.randompasswordgenerator.PasswordPolicy;
+import com.canyapan.randompasswordgenerator.RandomPasswordGenerator;
+import com.canyapan.randompasswordgenerator.RandomPasswordGeneratorException;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PasswordGeneratorTest {
+
+    @Test
+    public void testPolicyIsNotMutatedByForceEveryCharacterType() throws RandomPasswordGeneratorException {
+        RandomPasswordGenerator passwordGenerator = new RandomPasswordGenerator().withPasswordLength(8)
+                .withLowerCaseCharacters(true)
+                .withDigits(true)
+                .withForceEveryCharacterType(true);
+
+        PasswordPolicy policy = passwordGenerator.toPolicy();
+        passwordGenerator.generate();
+
+        assertEquals(0, passwordGenerator.getMinDigitCount());
+        assertEquals(0, policy.getMinDigitCount());
+        assertEquals(policy, passwordGenerator.toPolicy());
+        assertEquals(policy.hashCode(), passwordGenerator.toPolicy().hashCode());
+    }
+
+    @Test
+    public void testCompiledGeneratorIsShared() throws Exception {
+        final PasswordGenerator compiled = new RandomPasswordGenerator().withPasswordLength(12)
+                .withLowerCaseCharacters(true)
+                .withUpperCaseCharacters(true)
+                .withDigits(true)
+                .withSymbols(true)
+                .withMinSymbolCount(2)
+                .withForceEveryCharacterType(true)
+                .toPolicy()
+                .compile();
+
+        final AtomicReference<String> failure = new AtomicReference<String>();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(new Runnable() {
+                public void run() {
+                    for (int i = 0; i < 1000; i++) {
+                        String password = compiled.generate();
+                        if (!password.matches("(?=^.{12}$)(?=.*\\d)(?=.*[a-z])(?=.*[A-Z])(?=(.*[!@#$%^&*]){2})^.*")) {
+                            failure.set(password);
+                        }
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertNull(failure.get(), failure.get());
+    }
+
+    @Test
+    public void testCompileIsCachedUntilRulesChange() throws RandomPasswordGeneratorException {
+        RandomPasswordGenerator passwordGenerator = new RandomPasswordGenerator().withDefault();
+
+        PasswordGenerator compiled = passwordGenerator.compile();
+        assertTrue(compiled == passwordGenerator.compile());
+
+        passwordGenerator.withPasswordLength(12);
+        assertTrue(compiled != passwordGenerator.compile());
+        assertEquals(12, passwordGenerator.compile().generate().length());
+    }
+
+    @Test
+    public void testGenerateBatch() throws RandomPasswordGeneratorException {
+        PasswordGenerator compiled = new RandomPasswordGenerator().withPasswordLength(10)
+                .withLowerCaseCharacters(true)
+                .withDigits(true)
+                .withMinDigitCount(3)
+                .withAvoidAmbiguousCharacters(true)
+                .compile();
+
+        char[] passwords = compiled.generate(1000);
+        assertEquals(10000, passwords.length);
+
+        for (int i = 0; i < 1000; i++) {
+            String password = new String(passwords, i * 10, 10);
+            assertTrue(password, password.matches("(?=^.{10}$)(?=(.*\\d){3})(?!.*[iloILO01A-Z])^[a-z0-9]*"));
+        }
+    }
+
+    @Test
+    public void testGenerateBatchIntoBuffers() throws RandomPasswordGeneratorException {
+        PasswordGenerator compiled = new RandomPasswordGenerator().withPasswordLength(8)
+                .withUpperCaseCharacters(true)
+                .compile();
+
+        char[] dest = new char[2 + 3 * 8];
+        compiled.generate(dest, 2, 3);
+        assertEquals(0, dest[0]);
+        assertEquals(0, dest[1]);
+        assertTrue(new String(dest, 2, 24).matches("[A-Z]{24}"));
+
+        CharBuffer heap = CharBuffer.allocate(100);
+        heap.put('-');
+        compiled.generate(heap, 10);
+        assertEquals(81, heap.position());
+
+        CharBuffer direct = ByteBuffer.allocateDirect(2 * 8 * 100).asCharBuffer();
+        compiled.generate(direct, 100);
+        direct.flip();
+        assertTrue(direct.toString().matches("[A-Z]{800}"));
+    }
+
+    @Test
+    public void testGenerateBatchTooLarge() throws RandomPasswordGeneratorException {
+        PasswordGenerator compiled = new RandomPasswordGenerator().withPasswordLength(16)
+                .withLowerCaseCharacters(true)
+                .compile();
+
+        /* 16 * 2^28 overflows to 0 */
+        try {
+            compiled.generate(1 << 28);
+            fail("Passwords do not fit in an array.");
+        } catch (IllegalArgumentException e) {
+            /* expected */
+        }
+
+        try {
+            compiled.generate(CharBuffer.allocate(16), Integer.MAX_VALUE);
+            fail("Passwords do not fit in an array.");
+        } catch (IllegalArgumentException e) {
+            /* expected */
+        }
+
+        try {
+            compiled.generate(-1);
+            fail("Count cannot be negative.");
+        } catch (IllegalArgumentException e) {
+            /* expected */
+        }
+    }
+
+    @Test
+    public void testGenerateChars() throws Exception {
+        RandomPasswordGenerator passwordGenerator = new RandomPasswordGenerator().withDefault().withPasswordLength(12);
+
+        char[] password = passwordGenerator.generateChars();
+        assertTrue(new String(password).matches("(?=^.{12}$)(?=.*\\d)(?=.*[a-z])(?=.*[A-Z])^[a-zA-Z0-9]*"));
+        assertTrue(PasswordMeter.check(password).getScore() > 0);
+
+        char[] dest = new char[16];
+        Arrays.fill(dest, '-');
+        assertEquals(12, passwordGenerator.generateInto(dest));
+        assertTrue(new String(dest, 0, 12).matches("[a-zA-Z0-9]{12}"));
+        assertEquals("----", new String(dest, 12, 4));
+
+        /* the same thread scratch buffer serves every generator, whatever its length */
+        assertEquals(30, new RandomPasswordGenerator().withDefault().withPasswordLength(30).generate().length());
+        assertEquals(12, passwordGenerator.generate().length());
+
+        try {
+            passwordGenerator.generateInto(new char[11]);
+            fail();
+        } catch (IndexOutOfBoundsException e) {
+            /* expected */
+        }
+    }
+
+    @Test
+    public void testCharacterClasses() throws Exception {
+        RandomPasswordGenerator passwordGenerator = new RandomPasswordGenerator().withPasswordLength(16)
+                .withLowerCaseCharacters(true)
+                .withCharacterClass("greek", "\u03b1\u03b2\u03b3\u03b4", 3)
+                .withCharacterClass("site", "-_.", 0)
+                .withForceEveryCharacterType(true);
+
+        PasswordGenerator compiled = passwordGenerator.compile();
+        assertTrue(!compiled.isAscii());
+        for (int i = 0; i < 1000; i++) {
+            String password = compiled.generate();
+            assertTrue(password, password.matches("(?=(.*[\u03b1-\u03b4]){3})(?=.*[-_.])^[a-z\u03b1-\u03b4_.-]{16}$"));
+        }
+
+        assertEquals(passwordGenerator.toPolicy(), new RandomPasswordGenerator().withPasswordLength(16)
+                .withLowerCaseCharacters(true)
+                .withCharacterClass("greek", "\u03b1\u03b2\u03b3\u03b4\u03b1", 3)
+                .withCharacterClass("site", "-_.", 0)
+                .withForceEveryCharacterType(true)
+                .toPolicy());
+
+        String password = new RandomPasswordGenerator().withPasswordLength(8).withCharacterClass("hex", "0123456789abcdef", 0).generate();
+        assertTrue(password, password.matches("^[0-9a-f]{8}$"));
+
+        try {
+            compiled.generate(ByteBuffer.allocate(16), 1);
+            fail("Non-ASCII passwords cannot be written as bytes.");
+        } catch (IllegalStateException e) {
+            /* expected */
+        }
+
+        try {
+            new RandomPasswordGenerator().withLowerCaseCharacters(true).withCharacterClass("vowels", "aeiou", 0).generate();
+            fail("Classes cannot share characters.");
+        } catch (RandomPasswordGeneratorException e) {
+            /* expected */
+        }
+
+        try {
+            new RandomPasswordGenerator().withPasswordLength(4).withCharacterClass("site", "-_.", 5).generate();
+            fail("Minimum counts cannot exceed the length.");
+        } catch (RandomPasswordGeneratorException e) {
+            /* expected */
+        }
+
+        try {
+            passwordGenerator.withCharacterClass("site", "+", 0);
+            fail("Class names are unique.");
+        } catch (IllegalArgumentException e) {
+            /* expected */
+        }
+    }
+
+    @Test
+    public void testMaximumCounts() throws Exception {
+        PasswordGenerator compiled = new RandomPasswordGenerator().withPasswordLength(24)
+                .withLowerCaseCharacters(true)
+                .withUpperCaseCharacters(true)
+                .withDigits(true)
+                .withSymbols(true)
+                .withMinSymbolCount(1)
+                .withMaxSymbolCount(2)
+                .withMaxDigitCount(3)
+                .withMaxConsecutiveCharacters(2)
+                .withForceEveryCharacterType(true)
+                .compile();
+
+        for (String password : new String(compiled.generate(1000)).split("(?<=\\G.{24})")) {
+            assertTrue(password, password.matches("(?=.*[a-z])(?=.*[A-Z])(?=.*\\d)(?=.*[!@#$%^&*])(?!(.*[!@#$%^&*]){3})(?!(.*\\d){4})^.{24}$"));
+            assertTrue(password, !password.matches(".*([a-z]{3}|[A-Z]{3}|\\d{3}|[!@#$%^&*]{3}).*"));
+        }
+
+        try {
+            new RandomPasswordGenerator().withPasswordLength(8).withDigits(true).withMaxDigitCount(4).generate();
+            fail("Eight characters cannot be made of four digits.");
+        } catch (RandomPasswordGeneratorException e) {
+            /* expected */
+        }
+
+        try {
+            new RandomPasswordGenerator().withDigits(true).withMinDigitCount(3).withMaxDigitCount(2).generate();
+            fail("Maximum count cannot be less than minimum count.");
+        } catch (RandomPasswordGeneratorException e) {
+            /* expected */
+        }
+    }
+
+    @Test
+    public void testSeededEntropySourceIsDeterministic() throws RandomPasswordGeneratorException {
+        PasswordPolicy policy = new RandomPasswordGenerator().withDefault().withPasswordLength(20).toPolicy();
+
+        char[] first = policy.compile(EntropySources.seeded(42)).generate(100);
+        char[] second = policy.compile(EntropySources.seeded(42)).generate(100);
+        char[] other = policy.compile(EntropySources.seeded(43)).generate(100);
+
+        assertArrayEquals(first, second);
+        assertTrue(!new String(first).equals(new String(other)));
+    }
+
+    @Test
+    public void testEntropySources() throws Exception {
+        RandomPasswordGenerator passwordGenerator = new RandomPasswordGenerator().withDefault();
+        EntropySource[] sources = {
+                EntropySources.secureRandom(),
+                EntropySources.secureRandom("SHA1PRNG"),
+                EntropySources.striped(4),
+                EntropySources.threadLocal()
+        };
+
+        for (EntropySource source : sources) {
+            String password = passwordGenerator.withEntropySource(source).generate();
+            assertTrue(password, password.matches("(?=^.{8}$)(?=.*\\d)(?=.*[a-z])(?=.*[A-Z])^[a-zA-Z0-9]*"));
+            assertTrue(source == passwordGenerator.getEntropySource());
+        }
+    }
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright 2015 CAN YAPAN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.canyapan.randompasswordgenerator.test;
+
+import com.canyapan.randompasswordgenerator.IncrementalPasswordMeter;
+import com.canyapan.randompasswordgenerator.PasswordMeter;
+import com.canyapan.randompasswordgenerator.PasswordMeterException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PasswordMeterTest {
+    private Locale defaultLocale;
+
+    @Before
+    public void setUp() {
+        defaultLocale = Locale.getDefault();
+        Locale.setDefault(Locale.US);
+    }
+
+    @After
+    public void tearDown() {
+        Locale.setDefault(defaultLocale);
+    }
+
+    /**
+     * password-meter-golden.txt holds the scores the original regular expression based implementation gave
+     * to about 4000 generated passwords, including whitespace, sequences, repeats and non-ASCII characters.
+     * Each line is a score, a tab and the password with backslashes and characters outside 0x21-0x7E escaped as in Java.
+     */
+    @Test
+    public void testGoldenScores() throws IOException {
+        List<String[]> golden = readGolden();
+        assertTrue(golden.size() > 4000);
+
+        for (String[] entry : golden) {
+            assertEquals(entry[1], Integer.parseInt(entry[0]), PasswordMeter.check(entry[1]).getScore());
+        }
+    }
+
+    @Test
+    public void testCheckAll() throws IOException {
+        List<String[]> golden = readGolden();
+        List<CharSequence> passwords = new ArrayList<CharSequence>();
+        for (String[] entry : golden) {
+            passwords.add(entry[1]);
+        }
+        passwords.add(" ");
+        passwords.add(null);
+        passwords.add(new StringBuilder("\t\n"));
+
+        PasswordMeter.BatchResult result = PasswordMeter.checkAll(passwords);
+        int[] scores = result.getScores();
+        assertEquals(golden.size() + 3, scores.length);
+        assertEquals(3, result.getBlankCount());
+        assertEquals(golden.size(), result.getMeteredCount());
+
+        long[] complexities = new long[PasswordMeter.Complexity.values().length];
+        for (int i = 0; i < golden.size(); i++) {
+            assertEquals(golden.get(i)[1], Integer.parseInt(golden.get(i)[0]), scores[i]);
+            complexities[PasswordMeter.Complexity.of(scores[i]).ordinal()]++;
+        }
+        assertEquals(-1, scores[golden.size()]);
+
+        for (PasswordMeter.Complexity complexity : PasswordMeter.Complexity.values()) {
+            assertEquals(complexities[complexity.ordinal()], result.getCount(complexity));
+        }
+    }
+
+    /**
+     * More passwords than fit in a chunk, iterated lazily.
+     */
+    @Test
+    public void testCheckAllIterableInChunks() {
+        final int count = 150000;
+        final CharSequence[] passwords = new CharSequence[count];
+        for (int i = 0; i < count; i++) {
+            passwords[i] = i % 1000 == 0 ? "" : Integer.toString(i * 7919, 36) + (i % 3 == 0 ? "A!" : "");
+        }
+        Iterable<CharSequence> iterable = new Iterable<CharSequence>() {
+            public Iterator<CharSequence> iterator() {
+                return Arrays.asList(passwords).iterator();
+            }
+        };
+
+        PasswordMeter.BatchResult expected = PasswordMeter.checkAll(passwords);
+        ForkJoinPool pool = new ForkJoinPool(3);
+        PasswordMeter.BatchResult result;
+        try {
+            result = PasswordMeter.checkAll(iterable, pool);
+        } finally {
+            pool.shutdown();
+        }
+        assertArrayEquals(expected.getScores(), result.getScores());
+        assertArrayEquals(expected.getScoreHistogram(), result.getScoreHistogram());
+        assertEquals(150, result.getBlankCount());
+        assertEquals(count - 150, result.getMeteredCount());
+
+        assertEquals(0, PasswordMeter.checkAll(new ArrayList<CharSequence>()).getScores().length);
+    }
+
+    @Test
+    public void testIncrementalMeterTypingGoldenPasswords() throws IOException {
+        IncrementalPasswordMeter meter = new IncrementalPasswordMeter();
+        for (String[] entry : readGolden()) {
+            final String password = entry[1];
+            for (int i = 0; i < password.length(); i++) {
+                meter.append(password.charAt(i));
+                assertIncrementalScore(meter, password.substring(0, i + 1));
+            }
+            assertEquals(password, Integer.parseInt(entry[0]), meter.score());
+
+            for (int i = password.length() - 1; i > 0; i--) {
+                meter.deleteLast();
+                assertIncrementalScore(meter, password.substring(0, i));
+            }
+            meter.clear();
+            assertEquals(0, meter.length());
+        }
+    }
+
+    /**
+     * Random edits of long passwords of few distinct characters, where distances of repeats divide the length often.
+     */
+    @Test
+    public void testIncrementalMeterRandomEdits() throws PasswordMeterException {
+        final String alphabet = "aAb1_ !9\u00e7";
+        final Random random = new Random(42);
+        final IncrementalPasswordMeter meter = new IncrementalPasswordMeter();
+        final StringBuilder password = new StringBuilder();
+
+        for (int edit = 0; edit < 5000; edit++) {
+            if (password.length() > 0 && random.nextInt(3) == 0) {
+                password.setLength(password.length() - 1);
+                meter.deleteLast();
+            } else {
+                final char c = alphabet.charAt(random.nextInt(password.length() > 100 ? 3 : alphabet.length()));
+                password.append(c);
+                meter.append(c);
+            }
+
+            assertIncrementalScore(meter, password.toString());
+        }
+    }
+
+    /**
+     * Characters whose lower case form depends on the locale or on the next character, around ASCII sequences.
+     */
+    @Test
+    public void testIncrementalMeterLowerCasesLikeStrings() throws PasswordMeterException {
+        final String alphabet = "ghIjk\u0130\u0307\u00cc\u00cd\u0128\u212a\u03a3";
+        for (String language : new String[]{"en", "tr", "lt"}) {
+            Locale.setDefault(new Locale(language));
+            final IncrementalPasswordMeter meter = new IncrementalPasswordMeter();
+            for (String password : new String[]{"ghI\u0307jk", "gh\u0130jk", "gh\u00ccjk", "\u212alm"}) {
+                assertIncrementalScore(meter.append(password), password);
+                meter.clear();
+            }
+
+            final Random random = new Random(42);
+            final StringBuilder password = new StringBuilder();
+            for (int edit = 0; edit < 2000; edit++) {
+                if (password.length() > 40) {
+                    password.setLength(0);
+                    meter.clear();
+                }
+
+                final char c = alphabet.charAt(random.nextInt(alphabet.length()));
+                password.append(c);
+                meter.append(c);
+
+                assertIncrementalScore(meter, password.toString());
+            }
+        }
+    }
+
+    private static void assertIncrementalScore(IncrementalPasswordMeter meter, String password) {
+        int expected, actual;
+        try {
+            expected = PasswordMeter.check(password).getScore();
+        } catch (PasswordMeterException e) {
+            expected = -1;
+        }
+        try {
+            actual = meter.score();
+        } catch (PasswordMeterException e) {
+            actual = -1;
+        }
+
+        assertEquals(password, expected, actual);
+    }
+
+    @Test
+    public void testComplexity() throws PasswordMeterException {
+        assertEquals(PasswordMeter.Complexity.TooWeak, PasswordMeter.check("aaaaaaaa").getComplexity());
+        assertEquals(PasswordMeter.Complexity.VeryStrong, PasswordMeter.check("P@ssw0rd!Tr0ub4dor&3").getComplexity());
+    }
+
+    @Test(expected = PasswordMeterException.class)
+    public void testBlankPassword() throws PasswordMeterException {
+        PasswordMeter.check(" \t ");
+    }
+
+    private static List<String[]> readGolden() throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+                PasswordMeterTest.class.getResourceAsStream("/password-meter-golden.txt"), "US-ASCII"));
+        try {
+            List<String[]> golden = new ArrayList<String[]>();
+            String line;
+            while (null != (line = reader.readLine())) {
+                final int tab = line.indexOf('\t');
+                golden.add(new String[]{line.substring(0, tab), unescape(line.substring(tab + 1))});
+            }
+
+            return golden;
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static String unescape(String escaped) {
+        StringBuilder sb = new StringBuilder(escaped.length());
+        for (int i = 0; i < escaped.length(); i++) {
+            char c = escaped.charAt(i);
+            if (c == '\\') {
+                c = escaped.charAt(++i);
+                if (c == 'u') {
+                    sb.append((char) Integer.parseInt(escaped.substring(i + 1, i + 5), 16));
+                    i += 4;
+                    continue;
+                }
+            }
+            sb.append(c);
+        }
+
+        return sb.toString();
+    }
+}
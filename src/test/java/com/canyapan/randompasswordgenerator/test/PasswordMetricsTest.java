@@ -0,0 +1,162 @@
+/*
+ * Copyright 2015 CAN YAPAN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.canyapan.randompasswordgenerator.test;
+
+import com.canyapan.randompasswordgenerator.Blocklist;
+import com.canyapan.randompasswordgenerator.Instrumentation;
+import com.canyapan.randompasswordgenerator.LatencyHistogram;
+import com.canyapan.randompasswordgenerator.PasswordGenerator;
+import com.canyapan.randompasswordgenerator.PasswordMeter;
+import com.canyapan.randompasswordgenerator.PasswordMeterException;
+import com.canyapan.randompasswordgenerator.PasswordMetrics;
+import com.canyapan.randompasswordgenerator.RandomPasswordGenerator;
+import com.canyapan.randompasswordgenerator.RandomPasswordGeneratorException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PasswordMetricsTest {
+    private PasswordMetrics metrics;
+
+    @Before
+    public void install() {
+        metrics = new PasswordMetrics();
+        Instrumentation.setListener(metrics);
+    }
+
+    @After
+    public void uninstall() {
+        Instrumentation.setListener(null);
+    }
+
+    @Test
+    public void testGenerationIsCounted() throws RandomPasswordGeneratorException {
+        RandomPasswordGenerator rpg = new RandomPasswordGenerator().withPasswordLength(16).withLowerCaseCharacters(true);
+        PasswordGenerator compiled = rpg.compile();
+        compiled.generate();
+        compiled.generate(10);
+
+        assertEquals(11, metrics.getGeneratedCount());
+        assertEquals(11, metrics.getGeneratedCount(rpg.toPolicy()));
+        assertEquals(Long.valueOf(11), metrics.getGeneratedCountByPolicy().get("length=16,lower"));
+        assertEquals(2, metrics.getGenerateLatency().getCount());
+        assertTrue(metrics.getEntropyBytesConsumed() > 0);
+
+        try {
+            new RandomPasswordGenerator().generate();
+            fail();
+        } catch (RandomPasswordGeneratorException e) {
+            assertEquals(1, metrics.getGenerationFailureCount());
+        }
+
+        Instrumentation.setListener(null);
+        compiled.generate();
+        assertEquals(11, metrics.getGeneratedCount());
+    }
+
+    @Test
+    public void testBlocklistPoliciesAreCounted() throws IOException {
+        final Path file = Files.createTempFile("blocklist", ".bin");
+        try {
+            Blocklist.build(Arrays.asList("0", "1", "2", "3", "4", "5", "6", "7", "8", "9"), 10, 0.001d, file);
+
+            /* distinct blocklists, so distinct policies printed alike */
+            new RandomPasswordGenerator().withPasswordLength(16).withLowerCaseCharacters(true).withBlocklist(Blocklist.open(file)).compile().generate(3);
+            new RandomPasswordGenerator().withPasswordLength(16).withLowerCaseCharacters(true).withBlocklist(Blocklist.open(file)).compile().generate(4);
+            assertEquals(Long.valueOf(7), metrics.getGeneratedCountByPolicy().get("length=16,lower,blocklist"));
+
+            try {
+                new RandomPasswordGenerator().withPasswordLength(1).withDigits(true).withBlocklist(Blocklist.open(file)).compile().generate();
+                fail();
+            } catch (IllegalStateException e) {
+                assertEquals(1, metrics.getGenerationFailureCount());
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testMeteringIsCounted() throws PasswordMeterException {
+        PasswordMeter.check("Password1!");
+        PasswordMeter.checkAll(new CharSequence[]{"abc", " ", "abcDEF123"});
+
+        assertEquals(3, metrics.getMeteredCount());
+        assertEquals(3, metrics.getCheckLatency().getCount());
+
+        try {
+            PasswordMeter.check(" ");
+            fail();
+        } catch (PasswordMeterException e) {
+            assertEquals(1, metrics.getMeterFailureCount());
+        }
+    }
+
+    @Test
+    public void testHistogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100000; value++) {
+            histogram.record(value * 1000);
+        }
+
+        assertEquals(100000, histogram.getCount());
+        assertEquals(100000000L, histogram.getMax());
+        assertEquals(50000500.0, histogram.getMean(), 1.0);
+        assertWithin(50000000L, histogram.getPercentile(50));
+        assertWithin(99000000L, histogram.getPercentile(99));
+        assertEquals(histogram.getMax(), histogram.getPercentile(100));
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(50));
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(expected + " ~ " + actual, Math.abs(actual - expected) <= expected / 32);
+    }
+
+    @Test
+    public void testMBean() throws Exception {
+        metrics.registerMBean();
+        try {
+            new RandomPasswordGenerator().withDefault().generate(5);
+
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(PasswordMetrics.OBJECT_NAME);
+            assertEquals(5L, server.getAttribute(name, "GeneratedCount"));
+            assertTrue((Long) server.getAttribute(name, "GenerateLatencyMaxNanos") > 0);
+
+            server.invoke(name, "reset", null, null);
+            assertEquals(0L, server.getAttribute(name, "GeneratedCount"));
+        } finally {
+            metrics.unregisterMBean();
+        }
+    }
+}
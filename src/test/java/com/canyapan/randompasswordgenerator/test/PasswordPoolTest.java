@@ -0,0 +1,164 @@
+/*
+ * Copyright 2015 CAN YAPAN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.canyapan.randompasswordgenerator.test;
+
+import com.canyapan.randompasswordgenerator.Blocklist;
+import com.canyapan.randompasswordgenerator.PasswordGenerator;
+import com.canyapan.randompasswordgenerator.PasswordPool;
+import com.canyapan.randompasswordgenerator.RandomPasswordGenerator;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PasswordPoolTest {
+
+    private static PasswordGenerator generator() throws Exception {
+        return new RandomPasswordGenerator().withPasswordLength(20).withLowerCaseCharacters(true).withDigits(true).compile();
+    }
+
+    private static void awaitSize(PasswordPool pool, int size) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (pool.size() < size) {
+            assertTrue("pool stuck at " + pool.size(), System.nanoTime() < deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    @Test(timeout = 20000)
+    public void testFillAndRefill() throws Exception {
+        PasswordPool pool = new PasswordPool(generator(), 100, 30);
+        try {
+            assertEquals(128, pool.getCapacity());
+            assertEquals(30, pool.getLowWaterMark());
+            awaitSize(pool, 128);
+
+            /* 29 left, one below the low-water mark */
+            for (int i = 0; i < 99; i++) {
+                char[] password = pool.tryTake();
+                assertNotNull(password);
+                assertTrue(new String(password).matches("[a-z0-9]{20}"));
+            }
+            assertEquals(99, pool.getHitCount());
+            assertEquals(0, pool.getMissCount());
+
+            awaitSize(pool, 128);
+            assertTrue(pool.getRefillLag().getCount() >= 1);
+        } finally {
+            pool.close();
+        }
+    }
+
+    @Test(timeout = 20000)
+    public void testConcurrentTakesAreUnique() throws Exception {
+        final PasswordPool pool = new PasswordPool(generator(), 64);
+        final Set<String> passwords = Collections.synchronizedSet(new HashSet<String>());
+        final List<Throwable> failures = Collections.synchronizedList(new ArrayList<Throwable>());
+        List<Thread> threads = new ArrayList<Thread>();
+        try {
+            for (int t = 0; t < 8; t++) {
+                Thread thread = new Thread(new Runnable() {
+                    public void run() {
+                        try {
+                            for (int i = 0; i < 500; i++) {
+                                passwords.add(new String(pool.take()));
+                            }
+                        } catch (Throwable e) {
+                            failures.add(e);
+                        }
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } finally {
+            pool.close();
+        }
+
+        assertTrue(failures.toString(), failures.isEmpty());
+        assertEquals(4000, passwords.size());
+        assertEquals(4000, pool.getHitCount() + pool.getMissCount());
+    }
+
+    @Test(timeout = 20000)
+    public void testClose() throws Exception {
+        final PasswordPool pool = new PasswordPool(generator(), 8);
+        awaitSize(pool, 8);
+        pool.close();
+
+        assertEquals(0, pool.size());
+        assertNull(pool.tryTake());
+        try {
+            pool.take(1, TimeUnit.SECONDS);
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("Pool is closed.", e.getMessage());
+        }
+    }
+
+    @Test(timeout = 20000)
+    public void testRefillFailure() throws Exception {
+        Path file = Files.createTempFile("blocklist", ".bloom");
+        try {
+            Blocklist.build(Arrays.asList("0", "1", "2", "3", "4", "5", "6", "7", "8", "9"), 10, 0.0001d, file);
+            PasswordGenerator generator = new RandomPasswordGenerator().withPasswordLength(1)
+                    .withDigits(true)
+                    .withBlocklist(Blocklist.open(file))
+                    .compile();
+
+            PasswordPool pool = new PasswordPool(generator, 8);
+            try {
+                try {
+                    pool.take();
+                    fail("Every password is blocked.");
+                } catch (IllegalStateException e) {
+                    assertTrue(e.getCause() instanceof IllegalStateException);
+                }
+
+                try {
+                    pool.tryTake();
+                    fail("Every password is blocked.");
+                } catch (IllegalStateException e) {
+                    assertFalse("Pool is closed.".equals(e.getMessage()));
+                }
+            } finally {
+                pool.close();
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
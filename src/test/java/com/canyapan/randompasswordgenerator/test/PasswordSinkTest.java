@@ -0,0 +1,114 @@
+/*
+ * Copyright 2015 CAN YAPAN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.canyapan.randompasswordgenerator.test;
+
+import com.canyapan.randompasswordgenerator.PasswordGenerator;
+import com.canyapan.randompasswordgenerator.PasswordSink;
+import com.canyapan.randompasswordgenerator.RandomPasswordGenerator;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PasswordSinkTest {
+
+    private static PasswordGenerator generator(int length) throws Exception {
+        return new RandomPasswordGenerator().withPasswordLength(length)
+                .withLowerCaseCharacters(true)
+                .withSymbols(true)
+                .withForceEveryCharacterType(true)
+                .compile();
+    }
+
+    @Test
+    public void testGenerateIntoByteBuffer() throws Exception {
+        PasswordGenerator generator = generator(10);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(35);
+        buffer.put((byte) '>');
+
+        generator.generate(buffer, 3);
+        assertEquals(31, buffer.position());
+
+        byte[] bytes = new byte[31];
+        buffer.flip();
+        buffer.get(bytes);
+        String text = new String(bytes, "US-ASCII");
+        assertTrue(text, text.matches(">((?=[^!@#$%^&*]*[!@#$%^&*])(?=[^a-z]*[a-z])[a-z!@#$%^&*]{10}){3}"));
+
+        try {
+            generator.generate(ByteBuffer.allocate(9), 1);
+            fail();
+        } catch (BufferOverflowException e) {
+            /* expected */
+        }
+    }
+
+    @Test
+    public void testSeparatedRecords() throws Exception {
+        PasswordSink sink = new PasswordSink(generator(12), "\r\n", PasswordSink.Framing.NONE);
+        assertEquals(14, sink.getRecordSize());
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(50);
+        assertEquals(3, sink.write(buffer, 5));
+        assertEquals(42, buffer.position());
+
+        byte[] bytes = new byte[42];
+        buffer.flip();
+        buffer.get(bytes);
+        assertTrue(new String(bytes, "US-ASCII").matches("([a-z!@#$%^&*]{12}\r\n){3}"));
+    }
+
+    @Test
+    public void testLengthPrefixedRecords() throws Exception {
+        PasswordSink sink = new PasswordSink(generator(256), "", PasswordSink.Framing.LENGTH_PREFIXED);
+        ByteBuffer buffer = ByteBuffer.allocate(2 * 258);
+        assertEquals(2, sink.write(buffer, 2));
+
+        buffer.flip();
+        for (int r = 0; r < 2; r++) {
+            assertEquals(256, buffer.getShort() & 0xFFFF);
+            byte[] password = new byte[256];
+            buffer.get(password);
+            assertTrue(new String(password, "US-ASCII").matches("[a-z!@#$%^&*]{256}"));
+        }
+    }
+
+    @Test
+    public void testWriteToChannel() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new PasswordSink(generator(8)).write(Channels.newChannel(out), 20000);
+
+        String[] lines = out.toString("US-ASCII").split("\n", -1);
+        assertEquals(20001, lines.length);
+        assertEquals("", lines[20000]);
+        for (int i = 0; i < 20000; i++) {
+            assertEquals(8, lines[i].length());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSeparatorShouldBeAscii() throws Exception {
+        new PasswordSink(generator(8), "\u00a7", PasswordSink.Framing.NONE);
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2015 CAN YAPAN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.canyapan.randompasswordgenerator.test;
+
+import com.canyapan.randompasswordgenerator.EntropySources;
+import com.canyapan.randompasswordgenerator.MarkovModel;
+import com.canyapan.randompasswordgenerator.PronounceablePasswordGenerator;
+import com.canyapan.randompasswordgenerator.RandomPasswordGeneratorException;
+import com.canyapan.randompasswordgenerator.RandomPronounceablePasswordGenerator;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PronounceablePasswordGeneratorTest {
+    private static MarkovModel model(String... corpus) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MarkovModel.build(Arrays.asList(corpus), out);
+        assertEquals(16 + 27 * 27 * 26 * 2, out.size());
+
+        return MarkovModel.read(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    @Test
+    public void testConstraints() throws IOException, RandomPasswordGeneratorException {
+        /* every letter has one successor, abcabc... */
+        PronounceablePasswordGenerator generator = new RandomPronounceablePasswordGenerator()
+                .withModel(model("abcabcabc"))
+                .withPasswordLength(10)
+                .withMinDigitCount(2)
+                .withMinSymbolCount(1)
+                .withMinUpperCaseCharacterCount(3)
+                .withEntropySource(EntropySources.seeded(5))
+                .compile();
+
+        for (int i = 0; i < 1000; i++) {
+            final String password = generator.generate();
+            assertEquals(10, password.length());
+            assertEquals(password, 2, password.replaceAll("[^0-9]", "").length());
+            assertEquals(password, 1, password.replaceAll("[^!@#$%^&*]", "").length());
+            assertEquals(password, 3, password.replaceAll("[^A-Z]", "").length());
+            assertEquals(password, "abcabca", password.replaceAll("[^A-Za-z]", "").toLowerCase());
+        }
+
+        /* 10!/(2! 1! 3! 4!) arrangements, 100 digit pairs and 8 symbols, the letters are certain */
+        assertEquals(Math.log(12600d * 100 * 8) / Math.log(2), generator.getEntropy(), 1e-9);
+
+        try {
+            new RandomPronounceablePasswordGenerator().withModel(model("abc")).withPasswordLength(4)
+                    .withMinDigitCount(2).withMinUpperCaseCharacterCount(3).generate();
+            fail("Minimum counts should not exceed the length.");
+        } catch (RandomPasswordGeneratorException ignored) {
+        }
+
+    }
+
+    @Test
+    public void testEnglishModelIsTheDefault() throws IOException, RandomPasswordGeneratorException {
+        PronounceablePasswordGenerator generator = new RandomPronounceablePasswordGenerator()
+                .withPasswordLength(12)
+                .withEntropySource(EntropySources.seeded(3))
+                .compile();
+        assertSame(MarkovModel.english(), generator.getModel());
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(generator.generate().matches("[a-z]{12}"));
+        }
+
+        /* fewer than the 56 bits of 12 letters drawn uniformly, but not much fewer */
+        assertTrue("entropy " + generator.getEntropy(), generator.getEntropy() > 24 && generator.getEntropy() < 56);
+    }
+
+    /**
+     * The shipped model is trained from the word list in the test resources, rebuild it with
+     * {@code -markovmodel english-words.txt -o english.markov} after changing either.
+     */
+    @Test
+    public void testEnglishModelIsTrainedFromTheWordList() throws IOException {
+        List<String> words = new ArrayList<String>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+                PronounceablePasswordGeneratorTest.class.getResourceAsStream("/english-words.txt"), "US-ASCII"));
+        try {
+            String line;
+            while (null != (line = reader.readLine())) {
+                words.add(line);
+            }
+        } finally {
+            reader.close();
+        }
+
+        ByteArrayOutputStream built = new ByteArrayOutputStream();
+        MarkovModel.build(words, built);
+
+        ByteArrayOutputStream shipped = new ByteArrayOutputStream();
+        InputStream in = MarkovModel.class.getResourceAsStream("english.markov");
+        try {
+            final byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                shipped.write(buffer, 0, read);
+            }
+        } finally {
+            in.close();
+        }
+
+        assertArrayEquals(built.toByteArray(), shipped.toByteArray());
+    }
+
+    @Test
+    public void testTransitionsAreFollowed() throws IOException, RandomPasswordGeneratorException {
+        /* words start with a, then b or c equally often, then either may follow anything */
+        PronounceablePasswordGenerator generator = new RandomPronounceablePasswordGenerator()
+                .withModel(model("ab", "ac", "AB, AC"))
+                .withPasswordLength(2)
+                .withEntropySource(EntropySources.seeded(9))
+                .compile();
+        assertEquals(1d, generator.getEntropy(), 1e-9);
+
+        final int samples = 100000;
+        int b = 0;
+        for (int i = 0; i < samples; i++) {
+            final String password = generator.generate();
+            assertTrue(password, password.equals("ab") || password.equals("ac"));
+            b += password.charAt(1) == 'b' ? 1 : 0;
+        }
+
+        /* within 4 standard deviations of half */
+        assertTrue("b " + b, Math.abs(b - samples / 2) < 4 * Math.sqrt(samples / 4d));
+    }
+
+    @Test
+    public void testNotAModel() {
+        try {
+            MarkovModel.read(new ByteArrayInputStream(new byte[64]));
+            fail("Zeros should not be a model.");
+        } catch (IOException ignored) {
+        }
+
+        try {
+            MarkovModel.build(Arrays.asList("1234", "!!"), new ByteArrayOutputStream());
+            fail("A corpus without letters should not make a model.");
+        } catch (IllegalArgumentException ignored) {
+        } catch (IOException e) {
+            fail(e.getMessage());
+        }
+    }
+}